@@ -0,0 +1,75 @@
+package benchmarks;
+
+import models.CelestialBody;
+import org.openjdk.jmh.annotations.*;
+import utils.BatchPhysics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gravity for a whole catalogue: one virtual calculateGravity() call per object, against the batch kernels
+ * over primitive arrays. The fork adds the incubator vector module, so the SIMD kernel is used when the jar
+ * was built with {@code -P jmh,vector}; {@code batchScalar} always runs the scalar kernel for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BatchPhysicsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private CelestialBody[] bodies;
+    private double[] mass;
+    private double[] diameter;
+    private double[] out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<CelestialBody> generated = new CatalogueGenerator(42, 100).bodies(size);
+        bodies = generated.toArray(new CelestialBody[0]);
+        mass = new double[size];
+        diameter = new double[size];
+        for (int i = 0; i < size; i++) {
+            mass[i] = bodies[i].getMass();
+            diameter[i] = bodies[i].getDiameter();
+        }
+        out = new double[size];
+    }
+
+    @Benchmark
+    public double[] perObject() {
+        for (int i = 0; i < bodies.length; i++) {
+            out[i] = bodies[i].calculateGravity();
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] batch() {
+        BatchPhysics.kernel().gravity(mass, diameter, out, size);
+        return out;
+    }
+
+    @Benchmark
+    public double[] batchScalar() {
+        BatchPhysics.SCALAR.gravity(mass, diameter, out, size);
+        return out;
+    }
+
+    @Benchmark
+    public double[] batchEscapeVelocity() {
+        BatchPhysics.kernel().escapeVelocity(mass, diameter, out, size);
+        return out;
+    }
+
+    @Benchmark
+    public double[] batchDensity() {
+        BatchPhysics.kernel().density(mass, diameter, out, size);
+        return out;
+    }
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * An Appendable that hands everything to a JMH Blackhole, so report benchmarks measure producing
+ * the rows rather than building one huge string.
+ */
+public class BlackholeAppendable implements Appendable {
+
+    private final Blackhole blackhole;
+
+    public BlackholeAppendable(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+        blackhole.consume(csq);
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+        blackhole.consume(csq);
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+        blackhole.consume(c);
+        return this;
+    }
+}
@@ -0,0 +1,133 @@
+package benchmarks;
+
+import models.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds synthetic catalogues for the benchmarks. Every CelestialBody subclass is generated in turn,
+ * with random but valid field values. A fixed seed makes runs comparable with each other.
+ */
+public class CatalogueGenerator {
+
+    private static final String SPECTRAL_TYPES = "OBAFGKM";
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private final Random random;
+    private final PlanetarySystem[] systems;
+
+    /**
+     * Creates a generator whose bodies are spread over a number of planetary systems.
+     *
+     * @param seed the random seed
+     * @param systemCount the number of planetary systems to spread the bodies over
+     */
+    public CatalogueGenerator(long seed, int systemCount) {
+        random = new Random(seed);
+        systems = new PlanetarySystem[systemCount];
+        for (int i = 0; i < systemCount; i++) {
+            systems[i] = planetarySystem(i);
+        }
+    }
+
+    /**
+     * Creates a planetary system with a random name that stays unique through its number.
+     *
+     * @param i the number of the system
+     * @return a new planetary system
+     */
+    public PlanetarySystem planetarySystem(int i) {
+        return new PlanetarySystem(word(6) + " System " + i, word(5) + "-" + i);
+    }
+
+    /**
+     * Gets the planetary systems the generated bodies belong to.
+     *
+     * @return the planetary systems
+     */
+    public PlanetarySystem[] getSystems() {
+        return systems;
+    }
+
+    /**
+     * Generates a catalogue cycling through stars, gas planets, ice planets and dwarf planets.
+     *
+     * @param count the number of bodies to generate
+     * @return the generated bodies
+     */
+    public List<CelestialBody> bodies(int count) {
+        List<CelestialBody> bodies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            bodies.add(body(i));
+        }
+        return bodies;
+    }
+
+    /**
+     * Generates one body; its type is chosen by its number.
+     *
+     * @param i the number of the body
+     * @return a new celestial body
+     */
+    public CelestialBody body(int i) {
+        return switch (i % 4) {
+            case 0 -> star(i);
+            case 1 -> gasPlanet(i);
+            case 2 -> icePlanet(i);
+            default -> dwarfPlanet(i);
+        };
+    }
+
+    public Star star(int i) {
+        return new Star(name(i), mass(1e29, 1e32), diameter(1e5, 1e8), system(),
+                SPECTRAL_TYPES.charAt(random.nextInt(SPECTRAL_TYPES.length())), random.nextDouble() * 1e6);
+    }
+
+    public GasPlanet gasPlanet(int i) {
+        return new GasPlanet(name(i), mass(1e25, 1e28), diameter(2e4, 2e5), system(),
+                temperature(), "Gas", false, "Hydrogen, Helium", "Rocky", random.nextDouble() * 100);
+    }
+
+    public IcePlanet icePlanet(int i) {
+        return new IcePlanet(name(i), mass(1e24, 1e27), diameter(1e4, 6e4), system(),
+                temperature(), "Icy", false, "Methane Ice");
+    }
+
+    public DwarfPlanet dwarfPlanet(int i) {
+        return new DwarfPlanet(name(i), mass(1e20, 1e23), diameter(500, 3000), system(),
+                temperature(), "Rocky", false, "Nitrogen Ice");
+    }
+
+    // A random word first so the list is not already in name order, then the number to keep names distinct
+    private String name(int i) {
+        return word(8) + " " + i;
+    }
+
+    private String word(int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        }
+        chars[0] = Character.toUpperCase(chars[0]);
+        return new String(chars);
+    }
+
+    // Log-uniform, since masses span many orders of magnitude
+    private double mass(double min, double max) {
+        return min * Math.pow(max / min, random.nextDouble());
+    }
+
+    private double diameter(double min, double max) {
+        return min + random.nextDouble() * (max - min);
+    }
+
+    private double temperature() {
+        return random.nextDouble() * 800 - 400;
+    }
+
+    private PlanetarySystem system() {
+        return systems[random.nextInt(systems.length)];
+    }
+}
@@ -0,0 +1,178 @@
+package benchmarks;
+
+import controllers.CelestialSystemAPI;
+import models.CelestialBody;
+import models.PlanetarySystem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts, searches, reports and top-K queries of CelestialSystemAPI over synthetic catalogues of 10³ to 10⁷ bodies.
+ * The largest sizes need a big heap, e.g. {@code java -Xmx16g -jar target/benchmarks.jar}, or pick sizes with
+ * {@code -p size=1000,100000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CelestialSystemAPIBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private CelestialSystemAPI api;
+    private PlanetarySystem probeSystem;
+    private String probeName;
+    private String probePrefix;
+    private double probeMass;
+    private int probeId;
+    private double heavierThreshold; // about 1% of the bodies are heavier
+    private double smallerThreshold; // about 1% of the bodies are smaller
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CatalogueGenerator generator = new CatalogueGenerator(42, Math.max(1, size / 100));
+        api = new CelestialSystemAPI(new File("benchmark-bodies.xml"));
+        for (CelestialBody body : generator.bodies(size)) {
+            api.addCelestialObject(body);
+        }
+        CelestialBody probe = api.getCelestialBodyByIndex(size / 2);
+        probeSystem = probe.getPlanetarySystem();
+        probeName = probe.getName();
+        probePrefix = probeName.substring(0, 3);
+        probeMass = probe.getMass();
+        probeId = probe.getId();
+
+        double[] masses = api.getCelestialList().stream().mapToDouble(CelestialBody::getMass).sorted().toArray();
+        double[] diameters = api.getCelestialList().stream().mapToDouble(CelestialBody::getDiameter).sorted().toArray();
+        heavierThreshold = masses[(int) (masses.length * 0.99)];
+        smallerThreshold = diameters[(int) (diameters.length * 0.01)];
+
+        CelestialSystemAPI.searchCelestialBodyByName(probeName); // builds the lazy query indexes outside the measurement
+    }
+
+    /**
+     * Puts the catalogue back in a random order before each sort, so no sort starts from sorted input.
+     */
+    @State(Scope.Benchmark)
+    public static class Shuffled {
+        private final Random random = new Random(7);
+
+        @Setup(Level.Invocation)
+        public void shuffle(CelestialSystemAPIBenchmark benchmark) {
+            benchmark.api.shuffle(random);
+        }
+    }
+
+    // ================================
+    // Sorting
+    // ================================
+
+    @Benchmark
+    public List<CelestialBody> sortByMassDescending(Shuffled shuffled) {
+        api.sortByMassDescending();
+        return api.getCelestialList();
+    }
+
+    @Benchmark
+    public List<CelestialBody> sortByNameAscending(Shuffled shuffled) {
+        api.sortByNameAscending();
+        return api.getCelestialList();
+    }
+
+    @Benchmark
+    public List<CelestialBody> sortBySystemThenMassDescending(Shuffled shuffled) {
+        api.sortBySystemThenMassDescending();
+        return api.getCelestialList();
+    }
+
+    // ================================
+    // Searching
+    // ================================
+
+    @Benchmark
+    public CelestialBody searchCelestialBodyByName() {
+        return CelestialSystemAPI.searchCelestialBodyByName(probeName);
+    }
+
+    @Benchmark
+    public List<CelestialBody> searchCelestialBodiesByNamePrefix() {
+        return CelestialSystemAPI.searchCelestialBodiesByNamePrefix(probePrefix);
+    }
+
+    @Benchmark
+    public CelestialBody searchCelestialBodyByMass() {
+        return CelestialSystemAPI.searchCelestialBodyByMass(probeMass);
+    }
+
+    @Benchmark
+    public CelestialBody searchCelestialBodyByNearestMass() {
+        return CelestialSystemAPI.searchCelestialBodyByNearestMass(probeMass * 1.0001);
+    }
+
+    @Benchmark
+    public CelestialBody getCelestialBodyById() {
+        return api.getCelestialBodyById(probeId);
+    }
+
+    // ================================
+    // Reports
+    // ================================
+
+    @Benchmark
+    public void listAllCelestialObjectsHeavierThan(Blackhole blackhole) throws IOException {
+        api.writeAllCelestialObjectsHeavierThan(heavierThreshold, new BlackholeAppendable(blackhole));
+    }
+
+    @Benchmark
+    public void listAllCelestialObjectsSmallerThan(Blackhole blackhole) throws IOException {
+        api.writeAllCelestialObjectsSmallerThan(smallerThreshold, new BlackholeAppendable(blackhole));
+    }
+
+    @Benchmark
+    public void listAllStarsForSpectralType(Blackhole blackhole) throws IOException {
+        api.writeAllStarsForSpectralType('O', new BlackholeAppendable(blackhole));
+    }
+
+    @Benchmark
+    public void listAllCelestialObjectsForGivenPlanetary(Blackhole blackhole) throws IOException {
+        api.writeAllCelestialObjectsForGivenPlanetary(probeSystem, new BlackholeAppendable(blackhole));
+    }
+
+    @Benchmark
+    public void listAllStars(Blackhole blackhole) throws IOException {
+        api.writeAllStars(new BlackholeAppendable(blackhole));
+    }
+
+    @Benchmark
+    public void listAllCelestialBodies(Blackhole blackhole) throws IOException {
+        api.writeAllCelestialBodies(new BlackholeAppendable(blackhole));
+    }
+
+    @Benchmark
+    public int numberOfCelestialBodyByChosenPlanetarySystem() {
+        return api.numberOfCelestialBodyByChosenPlanetarySystem(probeSystem);
+    }
+
+    // ================================
+    // Top-K
+    // ================================
+
+    @Benchmark
+    public Object topFiveHighestRadiationGasPlanet() {
+        return api.topFiveHighestRadiationGasPlanet();
+    }
+
+    @Benchmark
+    public Object topHighestGravity() {
+        return api.topHighestGravity(5);
+    }
+}
@@ -0,0 +1,130 @@
+package benchmarks;
+
+import controllers.BinarySnapshot;
+import controllers.CelestialSystemAPI;
+import controllers.LazyCatalogue;
+import controllers.ParallelLoader;
+import controllers.PlanetarySystemAPI;
+import models.CelestialBody;
+import models.PlanetarySystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XStream save and load of CelestialSystemAPI, next to the binary snapshot of both APIs.
+ * Each save follows a change to one body, since saving an unchanged catalogue writes nothing: the XML file is
+ * rewritten in full, while the snapshot appends only the changed segment. saveSnapshot writes a whole new snapshot.
+ * The files are written to the working directory; the setup refuses to overwrite an existing one.
+ * XML files grow to gigabytes at the largest sizes, so the default sizes stop at 10⁵;
+ * pass e.g. {@code -p size=1000000,10000000} to go further.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private final File xmlFile = new File("benchmark-bodies.xml");
+    private final File snapshotFile = new File("benchmark-snapshot.bin");
+    private final File systemsFile = new File("benchmark-systems.xml");
+    private final File lazyFile = new File("benchmark-catalogue.lazy");
+    private PlanetarySystemAPI planetarySystemAPI;
+    private CelestialSystemAPI api;
+    private BinarySnapshot snapshot;
+    private String firstSystemName;
+    private int changed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (xmlFile.exists() || snapshotFile.exists()) {
+            throw new IllegalStateException("Run the persistence benchmarks from an empty directory, "
+                    + xmlFile + " or " + snapshotFile + " already exists");
+        }
+        CatalogueGenerator generator = new CatalogueGenerator(42, Math.max(1, size / 100));
+        planetarySystemAPI = new PlanetarySystemAPI(systemsFile);
+        for (PlanetarySystem system : generator.getSystems()) {
+            planetarySystemAPI.addPLanetSystem(system);
+        }
+        api = new CelestialSystemAPI(xmlFile);
+        api.setPlanetarySystemInterner(planetarySystemAPI.getInterner());
+        for (CelestialBody body : generator.bodies(size)) {
+            api.addCelestialObject(body);
+        }
+        snapshot = new BinarySnapshot(snapshotFile, planetarySystemAPI, api);
+        api.save(); // so the load benchmarks have something to read
+        planetarySystemAPI.save();
+        snapshot.save();
+        LazyCatalogue.write(lazyFile, api.getCelestialList());
+        firstSystemName = generator.getSystems()[0].getSystemName();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        xmlFile.delete();
+        snapshotFile.delete();
+        systemsFile.delete();
+        lazyFile.delete();
+    }
+
+    @Benchmark
+    public void saveXml() {
+        changeOneBody();
+        api.save();
+    }
+
+    @Benchmark
+    public int loadXml() {
+        api.load();
+        return api.numberOfCelestialBodies();
+    }
+
+    @Benchmark
+    public int loadBothXml() throws Exception {
+        planetarySystemAPI.load();
+        api.load();
+        return api.numberOfCelestialBodies();
+    }
+
+    @Benchmark
+    public int loadBothXmlInParallel() throws Exception {
+        new ParallelLoader(planetarySystemAPI, api).load();
+        return api.numberOfCelestialBodies();
+    }
+
+    @Benchmark
+    public void saveSnapshot() throws IOException {
+        new BinarySnapshot(snapshotFile, planetarySystemAPI, api).save();
+    }
+
+    @Benchmark
+    public void saveSnapshotAfterOneChange() throws IOException {
+        changeOneBody();
+        snapshot.save();
+    }
+
+    @Benchmark
+    public int loadSnapshot() throws IOException {
+        snapshot.load();
+        return api.numberOfCelestialBodies();
+    }
+
+    @Benchmark
+    public int openLazyCatalogueAndReadOneSystem() throws IOException {
+        try (LazyCatalogue catalogue = LazyCatalogue.open(lazyFile, 1000)) {
+            return catalogue.getCelestialBodiesInSystem(firstSystemName).size();
+        }
+    }
+
+    private void changeOneBody() {
+        CelestialBody body = api.getCelestialBodyByIndex(changed++ % size);
+        body.setMass(body.getMass());
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import controllers.PlanetarySystemAPI;
+import models.PlanetarySystem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding, finding and listing planetary systems in a PlanetarySystemAPI that already holds 10³ to 10⁷ systems.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanetarySystemAPIBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private CatalogueGenerator generator;
+    private PlanetarySystemAPI api;
+    private String probeName;
+    private int added;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new CatalogueGenerator(42, size);
+        probeName = generator.getSystems()[size / 2].getSystemName();
+    }
+
+    /**
+     * Starts every iteration from the same systems, so the systems added by addPLanetSystem do not pile up.
+     */
+    @Setup(Level.Iteration)
+    public void fill() {
+        api = new PlanetarySystemAPI(new File("benchmark-systems.xml"));
+        for (PlanetarySystem system : generator.getSystems()) {
+            api.addPLanetSystem(system);
+        }
+        added = 0;
+    }
+
+    @Benchmark
+    public boolean addPLanetSystem() {
+        return api.addPLanetSystem(new PlanetarySystem("Added System " + added++, "Added Star"));
+    }
+
+    @Benchmark
+    public PlanetarySystem getPlanetarySystemByName() {
+        return api.getPlanetarySystemByName(probeName);
+    }
+
+    @Benchmark
+    public List<PlanetarySystem> searchPlanetarySystemsByPrefix() {
+        return api.searchPlanetarySystemsByPrefix(probeName.substring(0, 3));
+    }
+
+    @Benchmark
+    public void listPlanetarySystems(Blackhole blackhole) throws IOException {
+        api.writePlanetarySystems(new BlackholeAppendable(blackhole));
+    }
+}
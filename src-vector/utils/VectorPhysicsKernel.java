@@ -0,0 +1,63 @@
+package utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+import models.CelestialBody;
+
+/**
+ * The SIMD kernel for {@link BatchPhysics}, using the incubating Vector API. Each loop processes as
+ * many bodies per instruction as the CPU's preferred vector width allows, then finishes the tail
+ * with the scalar formulas. The operations run in the same order as the formulas in
+ * {@link CelestialBody}, so the results are identical to the scalar kernel.
+ * <p>
+ * Compile and run with {@code --add-modules jdk.incubator.vector}; it is picked up by
+ * BatchPhysics when it is on the class path.
+ */
+public class VectorPhysicsKernel implements BatchPhysics.Kernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double G = CelestialBody.GRAVITATIONAL_CONSTANT;
+    private static final double TWO_G = 2.0 * G;
+    private static final double SPHERE_VOLUME = 4.0 / 3.0 * Math.PI;
+    private static final double METERS = CelestialBody.METERS_PER_KILOMETER;
+
+    @Override
+    public void gravity(double[] mass, double[] diameter, double[] out, int length) {
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector radius = DoubleVector.fromArray(SPECIES, diameter, i).mul(0.5).mul(METERS); // 0.5 is exact, same as dividing by 2.0
+            DoubleVector.fromArray(SPECIES, mass, i).mul(G).div(radius.mul(radius)).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = CelestialBody.gravityOf(mass[i], diameter[i]);
+        }
+    }
+
+    @Override
+    public void escapeVelocity(double[] mass, double[] diameter, double[] out, int length) {
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector radius = DoubleVector.fromArray(SPECIES, diameter, i).mul(0.5).mul(METERS); // 0.5 is exact, same as dividing by 2.0
+            DoubleVector.fromArray(SPECIES, mass, i).mul(TWO_G).div(radius).sqrt().intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = CelestialBody.escapeVelocityOf(mass[i], diameter[i]);
+        }
+    }
+
+    @Override
+    public void density(double[] mass, double[] diameter, double[] out, int length) {
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector radius = DoubleVector.fromArray(SPECIES, diameter, i).mul(0.5); // exact, same as dividing by 2.0
+            DoubleVector volume = radius.mul(SPHERE_VOLUME).mul(radius).mul(radius).mul(1e9);
+            DoubleVector.fromArray(SPECIES, mass, i).div(volume).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = CelestialBody.densityOf(mass[i], diameter[i]);
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package controllers;
+
+import models.CelestialBody;
+import models.PlanetarySystem;
+import utils.ISerializer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and loads the planetary systems and the celestial bodies together in a compact,
+ * versioned binary file. This is much faster to read and smaller on disk than the XStream XML files.
+ * <p>
+ * The bodies are stored in segments, one per block of 4096 ids, so a save only rewrites the segments whose bodies
+ * changed: the changed segments and a new directory are appended, and then the header is switched over to the new
+ * directory. Until that last step the header still points at the previous directory, so a crash while saving leaves
+ * the previous snapshot intact. Once replaced segments take up more of the file than the live data, the next save
+ * rewrites the whole file into a temporary file and moves it into place. Saving an unchanged catalogue writes nothing.
+ * <p>
+ * Layout (all numbers big-endian):
+ * <pre>
+ *   int    magic "SPCE"
+ *   short  format version
+ *   2 header slots of 32 bytes; the valid slot with the higher sequence is current:
+ *          long sequence, long directory offset, int directory length, int directory CRC-32,
+ *          int CRC-32 of the slot's first 24 bytes, 4 unused bytes
+ *   then segments and directories, in the order they were appended
+ *
+ *   segment:    per body, in id order: int record length, then a {@link CelestialRecordCodec} record whose
+ *               planetary system is an int system number from the directory (-1 for none)
+ *   directory:  int number of planetary systems
+ *               per system:  int system number, boolean listed, string systemName, string orbittingStarName
+ *               int number of segments
+ *               per segment: int id block, long offset, int length, int CRC-32, int number of bodies
+ *               int number of celestial bodies
+ *               per body:    int position of its record, counting through the segments in directory order
+ * </pre>
+ * Each planetary system object is written once, and keeps its number while it is in use so unchanged segments
+ * stay valid. "Listed" systems belong to the PlanetarySystemAPI, in list order; the rest are only referenced by bodies.
+ * Bodies that shared a system object share it again after loading. Files of any other version are refused.
+ * <p>
+ * A save can only tell which segments are unchanged if the file was last saved or loaded through the same
+ * BinarySnapshot; otherwise it rewrites the whole file.
+ */
+public class BinarySnapshot implements ISerializer {
+
+    private static final int MAGIC = 0x53504345; // "SPCE"
+    private static final short VERSION = 2;
+    private static final int SEGMENT_ID_BITS = 12; // 4096 ids per segment
+    private static final int SLOT_SIZE = 32;
+    private static final int HEADER_SIZE = 6 + 2 * SLOT_SIZE;
+
+    private final File file;
+    private final PlanetarySystemAPI planetarySystemAPI;
+    private final CelestialSystemAPI celestialAPI;
+    private FileState onDisk; // what the file holds, or null if not known
+
+    /**
+     * Creates a snapshot serializer for a pair of APIs.
+     *
+     * @param file the binary snapshot file
+     * @param planetarySystemAPI the planetary systems to save and load
+     * @param celestialAPI the celestial bodies to save and load
+     */
+    public BinarySnapshot(File file, PlanetarySystemAPI planetarySystemAPI, CelestialSystemAPI celestialAPI) {
+        this.file = file;
+        this.planetarySystemAPI = planetarySystemAPI;
+        this.celestialAPI = celestialAPI;
+    }
+
+    /**
+     * Checks whether the snapshot file exists.
+     *
+     * @return true if there is a snapshot to load
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Saves both APIs to the snapshot file, rewriting only the segments that changed since the last save or load.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void save() throws IOException {
+        int bodyClock = CelestialBody.getChangeClock(); // taken first, so a change made while writing is saved next time
+        int systemClock = PlanetarySystem.getChangeClock();
+        List<PlanetarySystem> listed = new ArrayList<>(planetarySystemAPI.getPlanetarySystems());
+        List<CelestialBody> bodies = celestialAPI.getCelestialList();
+
+        // Group the bodies by id block, in id order within a block, so sorting the list leaves the segments alone
+        TreeMap<Integer, List<CelestialBody>> blocks = new TreeMap<>();
+        for (CelestialBody body : bodies) {
+            blocks.computeIfAbsent(body.getId() >> SEGMENT_ID_BITS, block -> new ArrayList<>()).add(body);
+        }
+        Map<CelestialBody, Integer> recordPositions = new IdentityHashMap<>();
+        int position = 0;
+        for (List<CelestialBody> block : blocks.values()) {
+            block.sort(Comparator.comparingInt(CelestialBody::getId));
+            for (CelestialBody body : block) {
+                recordPositions.put(body, position++);
+            }
+        }
+        int[] order = new int[bodies.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = recordPositions.get(bodies.get(i));
+        }
+
+        FileState previous = onDisk;
+        if (previous != null && (file.length() != previous.length || previous.length - previous.liveBytes > previous.liveBytes)) {
+            previous = null; // changed behind our back, or mostly replaced data: rewrite it compactly
+        }
+        if (previous != null && previous.holds(blocks, listed, order)) {
+            return;
+        }
+
+        // System table: listed systems first, then any other system a body points at. Systems already
+        // in the file keep their numbers, since unchanged segments refer to them by number.
+        FileState next = new FileState(bodyClock, systemClock, listed, order);
+        next.nextSystemNumber = previous == null ? 0 : previous.nextSystemNumber;
+        List<PlanetarySystem> table = new ArrayList<>();
+        for (PlanetarySystem system : listed) {
+            next.number(system, previous, table);
+        }
+        int listedCount = table.size();
+        for (CelestialBody body : bodies) {
+            if (body.getPlanetarySystem() != null) {
+                next.number(body.getPlanetarySystem(), previous, table);
+            }
+        }
+
+        Path target = file.toPath();
+        Path path = previous == null ? target.resolveSibling(target.getFileName() + ".tmp") : target;
+        try (FileChannel channel = previous == null
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                : FileChannel.open(path, StandardOpenOption.WRITE)) {
+            long end = HEADER_SIZE;
+            if (previous == null) {
+                write(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).array(), 0);
+            } else {
+                end = previous.length;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream recordOut = new DataOutputStream(record);
+            CelestialRecordCodec.SystemWriter systemRef =
+                    (o, system) -> o.writeInt(system == null ? -1 : next.systemNumbers.get(system));
+            long live = HEADER_SIZE;
+            for (Map.Entry<Integer, List<CelestialBody>> entry : blocks.entrySet()) {
+                List<CelestialBody> block = entry.getValue();
+                Segment segment = previous == null ? null : previous.segments.get(entry.getKey());
+                if (segment == null || !segment.holds(block, previous.bodyClock)) {
+                    bytes.reset();
+                    for (CelestialBody body : block) {
+                        record.reset();
+                        CelestialRecordCodec.write(recordOut, body, systemRef);
+                        out.writeInt(record.size());
+                        record.writeTo(out);
+                    }
+                    byte[] data = bytes.toByteArray();
+                    segment = new Segment(end, data.length, crc(data), block);
+                    write(channel, data, end);
+                    end += data.length;
+                }
+                next.segments.put(entry.getKey(), segment);
+                live += segment.length;
+            }
+
+            bytes.reset();
+            out.writeInt(table.size());
+            for (int i = 0; i < table.size(); i++) {
+                PlanetarySystem system = table.get(i);
+                out.writeInt(next.systemNumbers.get(system));
+                out.writeBoolean(i < listedCount);
+                CelestialRecordCodec.writeString(out, system.getSystemName());
+                CelestialRecordCodec.writeString(out, system.getOrbittingStarName());
+            }
+            out.writeInt(next.segments.size());
+            for (Map.Entry<Integer, Segment> entry : next.segments.entrySet()) {
+                Segment segment = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeLong(segment.offset);
+                out.writeInt(segment.length);
+                out.writeInt(segment.crc);
+                out.writeInt(segment.bodies.length);
+            }
+            out.writeInt(order.length);
+            for (int recordPosition : order) {
+                out.writeInt(recordPosition);
+            }
+            byte[] directory = bytes.toByteArray();
+            write(channel, directory, end);
+            long directoryOffset = end;
+            end += directory.length;
+            channel.force(true); // segments and directory are on disk before the header points at them
+
+            next.sequence = previous == null ? 1 : previous.sequence + 1;
+            next.slot = previous == null ? 0 : 1 - previous.slot;
+            ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE)
+                    .putLong(next.sequence).putLong(directoryOffset).putInt(directory.length).putInt(crc(directory));
+            slot.putInt(crc(Arrays.copyOf(slot.array(), 24)));
+            write(channel, slot.array(), 6 + (long) next.slot * SLOT_SIZE);
+            channel.force(true);
+
+            next.length = end;
+            next.liveBytes = live + directory.length;
+        }
+        if (previous == null) {
+            Files.move(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        onDisk = next;
+    }
+
+    /**
+     * Loads both APIs from the snapshot file, replacing their contents.
+     * Nothing is replaced if the file cannot be read completely.
+     *
+     * @throws IOException if the file is missing, unreadable or not a snapshot of a supported version
+     */
+    @Override
+    public void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer start = read(channel, 0, 6);
+            if (start.getInt() != MAGIC) {
+                throw new IOException(file + " is not a binary snapshot");
+            }
+            short version = start.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            loadSegmented(channel);
+        }
+    }
+
+    /**
+     * Returns the file name used for the snapshot.
+     *
+     * @return the snapshot file name
+     */
+    @Override
+    public String fileName() {
+        return file.getName();
+    }
+
+    /**
+     * Converts the XML files of both APIs into a binary snapshot.
+     *
+     * @param planetarySystemAPI the planetary systems, loaded from their XML file
+     * @param celestialAPI the celestial bodies, loaded from their XML file
+     * @param binaryFile the snapshot file to write
+     * @throws Exception if either XML file cannot be read or the snapshot cannot be written
+     */
+    public static void convertXmlToBinary(PlanetarySystemAPI planetarySystemAPI, CelestialSystemAPI celestialAPI,
+                                          File binaryFile) throws Exception {
+        planetarySystemAPI.load();
+        celestialAPI.load();
+        new BinarySnapshot(binaryFile, planetarySystemAPI, celestialAPI).save();
+    }
+
+    /**
+     * Converts a binary snapshot back into the XML files of both APIs.
+     *
+     * @param binaryFile the snapshot file to read
+     * @param planetarySystemAPI the planetary systems, saved to their XML file
+     * @param celestialAPI the celestial bodies, saved to their XML file
+     * @throws Exception if the snapshot cannot be read or either XML file cannot be written
+     */
+    public static void convertBinaryToXml(File binaryFile, PlanetarySystemAPI planetarySystemAPI,
+                                          CelestialSystemAPI celestialAPI) throws Exception {
+        new BinarySnapshot(binaryFile, planetarySystemAPI, celestialAPI).load();
+        planetarySystemAPI.save();
+        celestialAPI.save();
+    }
+
+    /**
+     * Loads a version 2 file through its current header slot.
+     *
+     * @param channel the open snapshot file
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    private void loadSegmented(FileChannel channel) throws IOException {
+        int bodyClock = CelestialBody.getChangeClock();
+        int systemClock = PlanetarySystem.getChangeClock();
+        ByteBuffer slots = read(channel, 6, 2 * SLOT_SIZE);
+        int current = -1;
+        long sequence = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            ByteBuffer entry = slots.slice(slot * SLOT_SIZE, SLOT_SIZE);
+            long slotSequence = entry.getLong(0);
+            if (slotSequence > sequence && entry.getInt(24) == crc(Arrays.copyOfRange(slots.array(), slot * SLOT_SIZE, slot * SLOT_SIZE + 24))) {
+                current = slot;
+                sequence = slotSequence;
+            }
+        }
+        if (current == -1) {
+            throw new IOException(file + " has no valid header");
+        }
+        ByteBuffer slot = slots.slice(current * SLOT_SIZE, SLOT_SIZE);
+        byte[] directory = read(channel, slot.getLong(8), slot.getInt(16)).array();
+        if (crc(directory) != slot.getInt(20)) {
+            throw new IOException("Damaged directory in " + file);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(directory));
+
+        int systemCount = in.readInt();
+        Map<Integer, PlanetarySystem> systems = new HashMap<>();
+        List<PlanetarySystem> listed = new ArrayList<>();
+        FileState state = new FileState(bodyClock, systemClock, null, null);
+        for (int i = 0; i < systemCount; i++) {
+            int number = in.readInt();
+            boolean isListed = in.readBoolean();
+            PlanetarySystem system = new PlanetarySystem(CelestialRecordCodec.readString(in), CelestialRecordCodec.readString(in));
+            systems.put(number, system);
+            state.systemNumbers.put(system, number);
+            state.nextSystemNumber = Math.max(state.nextSystemNumber, number + 1);
+            if (isListed) {
+                listed.add(system);
+            }
+        }
+        state.listed = new ArrayList<>(listed);
+
+        CelestialRecordCodec.SystemReader systemRef = i -> {
+            int number = i.readInt();
+            if (number == -1) {
+                return null;
+            }
+            PlanetarySystem system = systems.get(number);
+            if (system == null) {
+                throw new IOException("Unknown planetary system " + number + " in " + file);
+            }
+            return system;
+        };
+        int segmentCount = in.readInt();
+        List<CelestialBody> records = new ArrayList<>();
+        long live = HEADER_SIZE + directory.length;
+        for (int i = 0; i < segmentCount; i++) {
+            int block = in.readInt();
+            long offset = in.readLong();
+            int length = in.readInt();
+            int checksum = in.readInt();
+            int count = in.readInt();
+            byte[] data = read(channel, offset, length).array();
+            if (crc(data) != checksum) {
+                throw new IOException("Damaged segment " + block + " in " + file);
+            }
+            DataInputStream segmentIn = new DataInputStream(new ByteArrayInputStream(data));
+            List<CelestialBody> segmentBodies = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                segmentIn.readInt(); // record length, only needed by readers that skip records
+                segmentBodies.add(CelestialRecordCodec.read(segmentIn, systemRef));
+            }
+            records.addAll(segmentBodies);
+            state.segments.put(block, new Segment(offset, length, checksum, segmentBodies));
+            live += length;
+        }
+
+        int bodyCount = in.readInt();
+        ArrayList<CelestialBody> bodies = new ArrayList<>(bodyCount);
+        state.order = new int[bodyCount];
+        for (int i = 0; i < bodyCount; i++) {
+            int recordPosition = in.readInt();
+            if (recordPosition < 0 || recordPosition >= records.size()) {
+                throw new IOException("Damaged directory in " + file);
+            }
+            state.order[i] = recordPosition;
+            bodies.add(records.get(recordPosition));
+        }
+
+        planetarySystemAPI.replacePlanetarySystems(listed);
+        celestialAPI.replaceCelestialBodies(bodies);
+        state.sequence = sequence;
+        state.slot = current;
+        state.length = channel.size();
+        state.liveBytes = live;
+        onDisk = state;
+    }
+
+    /**
+     * What a version 2 file holds, as last written or read through this object.
+     */
+    private static class FileState {
+        final int bodyClock; // change clocks taken before the file was written or read
+        final int systemClock;
+        List<PlanetarySystem> listed; // a copy, never the list held by the PlanetarySystemAPI
+        int[] order;
+        final Map<Integer, Segment> segments = new TreeMap<>(); // id block -> segment
+        final Map<PlanetarySystem, Integer> systemNumbers = new IdentityHashMap<>();
+        int nextSystemNumber;
+        long sequence;
+        int slot;
+        long length;
+        long liveBytes; // header, current segments and current directory
+
+        FileState(int bodyClock, int systemClock, List<PlanetarySystem> listed, int[] order) {
+            this.bodyClock = bodyClock;
+            this.systemClock = systemClock;
+            this.listed = listed;
+            this.order = order;
+        }
+
+        /**
+         * Checks whether the file already holds exactly this catalogue.
+         */
+        boolean holds(Map<Integer, List<CelestialBody>> blocks, List<PlanetarySystem> currentListed, int[] currentOrder) {
+            if (!segments.keySet().equals(blocks.keySet()) || !Arrays.equals(order, currentOrder)
+                    || listed.size() != currentListed.size()) {
+                return false;
+            }
+            for (int i = 0; i < listed.size(); i++) {
+                if (listed.get(i) != currentListed.get(i)) {
+                    return false;
+                }
+            }
+            for (PlanetarySystem system : systemNumbers.keySet()) {
+                if (system.isChangedSince(systemClock)) {
+                    return false;
+                }
+            }
+            for (Map.Entry<Integer, List<CelestialBody>> entry : blocks.entrySet()) {
+                if (!segments.get(entry.getKey()).holds(entry.getValue(), bodyClock)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Gives a planetary system its number in the table, keeping the number it had in the previous file.
+         */
+        void number(PlanetarySystem system, FileState previous, List<PlanetarySystem> table) {
+            if (!systemNumbers.containsKey(system)) {
+                Integer number = previous == null ? null : previous.systemNumbers.get(system);
+                systemNumbers.put(system, number != null ? number : nextSystemNumber++);
+                table.add(system);
+            }
+        }
+    }
+
+    /**
+     * One segment in the file, with the body and planetary system objects its records were written from or read into.
+     */
+    private static class Segment {
+        final long offset;
+        final int length;
+        final int crc;
+        final CelestialBody[] bodies;
+        final PlanetarySystem[] systems;
+
+        Segment(long offset, int length, int crc, List<CelestialBody> bodies) {
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+            this.bodies = bodies.toArray(new CelestialBody[0]);
+            this.systems = new PlanetarySystem[this.bodies.length];
+            for (int i = 0; i < systems.length; i++) {
+                systems[i] = this.bodies[i].getPlanetarySystem();
+            }
+        }
+
+        /**
+         * Checks whether the segment still holds the given bodies: the same objects, in the same systems,
+         * none of them changed since the file was written.
+         */
+        boolean holds(List<CelestialBody> block, int bodyClock) {
+            if (block.size() != bodies.length) {
+                return false;
+            }
+            for (int i = 0; i < bodies.length; i++) {
+                CelestialBody body = block.get(i);
+                if (body != bodies[i] || body.getPlanetarySystem() != systems[i] || body.isChangedSince(bodyClock)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static void write(FileChannel channel, byte[] bytes, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of the snapshot file");
+            }
+        }
+        return buffer.flip();
+    }
+}
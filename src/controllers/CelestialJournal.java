@@ -0,0 +1,440 @@
+package controllers;
+
+import models.CelestialBody;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes made to a {@link CelestialSystemAPI} since its last
+ * {@link BinarySnapshot}, so saving a change costs one small record instead of rewriting the whole catalogue.
+ * <p>
+ * Layout (all numbers big-endian):
+ * <pre>
+ *   int    magic "SPJL"
+ *   short  format version
+ *   per record:  int payload length, int CRC-32 of the payload, then the payload:
+ *                byte PUT followed by a {@link CelestialRecordCodec} record with its planetary system inline, or
+ *                byte DELETE followed by an int id
+ * </pre>
+ * Records are replayed in order on top of the snapshot. A PUT adds the body or replaces the body with the same id,
+ * and a DELETE removes the id if it is there, so replaying a record twice does no harm, e.g. after a crash
+ * between saving a checkpoint and truncating the journal. A record cut short by a crash is dropped on replay.
+ * <p>
+ * Records are buffered and written with one fsync per group: once {@code groupCommitSize} records are waiting,
+ * or when {@link #sync()} is called. Threads logging at the same time share that fsync. Once
+ * {@code checkpointEvery} records are journaled a checkpoint is due; the owner of the catalogue takes it by calling
+ * {@link #checkpointIfDue()} at a point where the catalogue is not being changed, e.g. right after logging a change.
+ * <p>
+ * The journal only sees what it is told: log each change after the API has accepted it. Changes to planetary
+ * systems are not journaled; call {@link #checkpoint()} after them.
+ */
+public class CelestialJournal implements Closeable {
+
+    private static final int MAGIC = 0x53504A4C; // "SPJL"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final int FRAME_HEADER_SIZE = 8; // payload length and CRC
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    public static final int DEFAULT_CHECKPOINT_EVERY = 10_000;
+
+    private final File file;
+    private final BinarySnapshot snapshot;
+    private final CelestialSystemAPI celestialAPI;
+    private final int groupCommitSize;
+    private final int checkpointEvery;
+
+    // Guards the pending buffer and the counters; held only while copying bytes or counters, never during I/O
+    private final Object appendLock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(); // framed records not yet written
+    private long appendedGroups;      // number of log calls so far
+    private int pendingGroups;        // log calls whose records are still in the buffer
+    private int recordsSinceCheckpoint;
+
+    // Held by the one thread writing and forcing a group; the others wait and usually find their records done
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long durableGroups; // log calls known to be on disk
+    private FileChannel channel; // opened on the first write
+
+    /**
+     * Creates a journal that forces every change to disk before the log call returns.
+     *
+     * @param file the journal file
+     * @param snapshot the snapshot the journal is replayed on top of, and checkpointed into
+     * @param celestialAPI the celestial bodies being journaled
+     */
+    public CelestialJournal(File file, BinarySnapshot snapshot, CelestialSystemAPI celestialAPI) {
+        this(file, snapshot, celestialAPI, 1, DEFAULT_CHECKPOINT_EVERY);
+    }
+
+    /**
+     * Creates a journal.
+     *
+     * @param file the journal file
+     * @param snapshot the snapshot the journal is replayed on top of, and checkpointed into
+     * @param celestialAPI the celestial bodies being journaled
+     * @param groupCommitSize how many log calls are buffered before they are written and forced together (at least 1)
+     * @param checkpointEvery how many records are journaled before {@link #checkpointIfDue()} takes a checkpoint (at least 1)
+     */
+    public CelestialJournal(File file, BinarySnapshot snapshot, CelestialSystemAPI celestialAPI,
+                            int groupCommitSize, int checkpointEvery) {
+        if (groupCommitSize < 1 || checkpointEvery < 1) {
+            throw new IllegalArgumentException("groupCommitSize and checkpointEvery must be at least 1");
+        }
+        this.file = file;
+        this.snapshot = snapshot;
+        this.celestialAPI = celestialAPI;
+        this.groupCommitSize = groupCommitSize;
+        this.checkpointEvery = checkpointEvery;
+    }
+
+    // ================================
+    // Logging Methods
+    // ================================
+
+    /**
+     * Logs a celestial body that was added to the catalogue.
+     *
+     * @param body the added celestial body
+     * @throws IOException if the journal cannot be written
+     */
+    public void logAdded(CelestialBody body) throws IOException {
+        append(put(body));
+    }
+
+    /**
+     * Logs a celestial body that replaced the body with the given id.
+     *
+     * @param id the ID the update was made for
+     * @param updatedDetails the celestial body now in the catalogue
+     * @throws IOException if the journal cannot be written
+     */
+    public void logUpdated(int id, CelestialBody updatedDetails) throws IOException {
+        if (updatedDetails.getId() == id) {
+            append(put(updatedDetails));
+        } else {
+            append(delete(id), put(updatedDetails)); // the slot now answers to a different id
+        }
+    }
+
+    /**
+     * Logs a celestial body that was deleted from the catalogue.
+     *
+     * @param id the ID of the deleted celestial body
+     * @throws IOException if the journal cannot be written
+     */
+    public void logDeleted(int id) throws IOException {
+        append(delete(id));
+    }
+
+    /**
+     * Writes and forces every buffered record to disk with a single fsync.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void sync() throws IOException {
+        long target;
+        synchronized (appendLock) {
+            target = appendedGroups;
+        }
+        syncThrough(target);
+    }
+
+    // ================================
+    // Checkpoint and Recovery Methods
+    // ================================
+
+    /**
+     * Saves the snapshot and empties the journal, whose changes the snapshot now contains.
+     * Must not run while the catalogue is being changed.
+     *
+     * @throws IOException if the snapshot or the journal cannot be written
+     */
+    public void checkpoint() throws IOException {
+        syncLock.lock(); // keeps other threads from writing the journal until it has been emptied
+        try {
+            long covered;
+            synchronized (appendLock) {
+                // the snapshot saved below includes every change logged so far, so the buffered records are not needed
+                covered = appendedGroups;
+                pending.reset();
+                pendingGroups = 0;
+                recordsSinceCheckpoint = 0;
+            }
+            // Records logged from here on stay buffered and are written after the truncate. If the snapshot
+            // already holds their change as well, replaying them does no harm.
+            snapshot.save();
+            FileChannel journal = channel();
+            journal.truncate(HEADER_SIZE);
+            journal.position(HEADER_SIZE);
+            journal.force(true);
+            durableGroups = covered;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Takes a checkpoint if {@code checkpointEvery} records have been journaled since the last one.
+     * Call it where the catalogue is not being changed, e.g. right after logging a change.
+     *
+     * @return true if a checkpoint was taken
+     * @throws IOException if the snapshot or the journal cannot be written
+     */
+    public boolean checkpointIfDue() throws IOException {
+        if (getRecordsSinceCheckpoint() < checkpointEvery) {
+            return false;
+        }
+        checkpoint();
+        return true;
+    }
+
+    /**
+     * Applies the journaled changes to the catalogue, e.g. right after loading the snapshot.
+     * A damaged or incomplete record at the end of the journal, left by a crash while writing, is cut off.
+     *
+     * @return the number of records applied
+     * @throws IOException if the journal cannot be read or is not a journal
+     */
+    public int replay() throws IOException {
+        syncLock.lock();
+        try {
+            sync();
+            closeChannel();
+            if (!file.exists()) {
+                return 0;
+            }
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < HEADER_SIZE) {
+                Files.delete(file.toPath()); // crashed while creating it
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a celestial journal");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported journal version " + version + " in " + file);
+            }
+
+            int applied = 0;
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 1 || length > buffer.remaining()) {
+                    buffer.position(buffer.position() - FRAME_HEADER_SIZE);
+                    break;
+                }
+                crc.reset();
+                crc.update(bytes, buffer.position(), length);
+                if ((int) crc.getValue() != checksum) {
+                    buffer.position(buffer.position() - FRAME_HEADER_SIZE);
+                    break;
+                }
+                apply(new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length)));
+                buffer.position(buffer.position() + length);
+                applied++;
+            }
+            if (buffer.position() < bytes.length) {
+                try (FileChannel torn = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    torn.truncate(buffer.position());
+                    torn.force(true);
+                }
+            }
+            synchronized (appendLock) {
+                recordsSinceCheckpoint = applied;
+            }
+            return applied;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces any buffered records to disk and closes the journal file.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            sync();
+            closeChannel();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // ================================
+    // Getters
+    // ================================
+
+    /**
+     * Returns the number of records in the journal since the last checkpoint, including buffered ones.
+     *
+     * @return the number of journaled records
+     */
+    public int getRecordsSinceCheckpoint() {
+        synchronized (appendLock) {
+            return recordsSinceCheckpoint;
+        }
+    }
+
+    /**
+     * Returns the journal file.
+     *
+     * @return the journal file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    // ================================
+    // Helpers
+    // ================================
+
+    private static byte[] put(CelestialBody body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PUT);
+        CelestialRecordCodec.write(out, body, CelestialRecordCodec.INLINE_SYSTEM_WRITER);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] delete(int id) {
+        return ByteBuffer.allocate(5).put(DELETE).putInt(id).array();
+    }
+
+    /**
+     * Buffers the records of one change, and writes the buffer once a whole group is waiting.
+     *
+     * @param payloads the records making up the change, applied in order on replay
+     * @throws IOException if the journal cannot be written
+     */
+    private void append(byte[]... payloads) throws IOException {
+        long group;
+        boolean groupFull;
+        synchronized (appendLock) {
+            CRC32 crc = new CRC32();
+            for (byte[] payload : payloads) {
+                crc.reset();
+                crc.update(payload);
+                pending.write(ByteBuffer.allocate(FRAME_HEADER_SIZE).putInt(payload.length)
+                        .putInt((int) crc.getValue()).array());
+                pending.write(payload);
+            }
+            group = ++appendedGroups;
+            groupFull = ++pendingGroups >= groupCommitSize;
+            recordsSinceCheckpoint += payloads.length;
+        }
+        if (groupFull) {
+            syncThrough(group);
+        }
+    }
+
+    /**
+     * Makes sure every log call up to the given one is on disk. The first thread in writes and forces everything
+     * buffered so far, which usually covers the threads queued behind it as well.
+     *
+     * @param group the log call that must be durable
+     * @throws IOException if the journal cannot be written
+     */
+    private void syncThrough(long group) throws IOException {
+        if (durableGroups >= group) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableGroups >= group) {
+                return; // forced by the thread ahead of us
+            }
+            byte[] batch;
+            long batchEnd;
+            synchronized (appendLock) {
+                batch = pending.toByteArray();
+                batchEnd = appendedGroups;
+                pending.reset();
+                pendingGroups = 0;
+            }
+            FileChannel journal = channel();
+            long start = journal.position();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+                journal.force(false);
+            } catch (IOException e) {
+                journal.truncate(start); // do not leave half a group for later records to follow
+                journal.position(start);
+                throw e;
+            }
+            durableGroups = batchEnd;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Applies one journal record to the catalogue.
+     *
+     * @param in the record payload
+     * @throws IOException if the record cannot be decoded
+     */
+    private void apply(DataInputStream in) throws IOException {
+        byte operation = in.readByte();
+        if (operation == PUT) {
+            CelestialBody body = CelestialRecordCodec.read(in, CelestialRecordCodec.INLINE_SYSTEM_READER);
+            int id = body.getId();
+            if (celestialAPI.isValidId(id) == -1) {
+                celestialAPI.addCelestialObject(body);
+            } else if (!celestialAPI.updateCelestial(id, body)) {
+                celestialAPI.deleteCelestialId(id); // the id now belongs to a body of another type
+                celestialAPI.addCelestialObject(body);
+            }
+        } else if (operation == DELETE) {
+            celestialAPI.deleteCelestialId(in.readInt());
+        } else {
+            throw new IOException("Unknown journal operation " + operation + " in " + file);
+        }
+    }
+
+    /**
+     * Opens the journal file for appending, writing the header if the file is new.
+     *
+     * @return the open journal file
+     * @throws IOException if the file cannot be opened
+     */
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            FileChannel opened = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (opened.size() < HEADER_SIZE) {
+                opened.truncate(0);
+                opened.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).flip());
+                opened.force(true);
+            }
+            opened.position(opened.size());
+            channel = opened;
+        }
+        return channel;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
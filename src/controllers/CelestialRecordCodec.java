@@ -0,0 +1,386 @@
+package controllers;
+
+import models.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of a single celestial body, shared by the binary persistence formats.
+ * A record is a type tag, the id, the common {@link CelestialBody} fields and then the
+ * fields of the concrete subclass. How the planetary system is written is left to the caller,
+ * so a snapshot can write a reference into its system table while other formats write it inline.
+ * <p>
+ * Records can also be laid out at fixed width (see {@link FixedLayout}), for the catalogues that read single
+ * fields in place instead of reading a whole record.
+ */
+public class CelestialRecordCodec {
+
+    // Type tags, one per concrete CelestialBody subclass (never reuse or renumber)
+    public static final byte GAS_PLANET = 1;
+    public static final byte ICE_PLANET = 2;
+    public static final byte DWARF_PLANET = 3;
+    public static final byte STAR = 4;
+
+    // Tag for other subclasses in in-memory views; never written to a file
+    public static final byte OTHER = 0;
+
+    /**
+     * Writes the planetary system of a record.
+     */
+    public interface SystemWriter {
+        void write(DataOutput out, PlanetarySystem system) throws IOException;
+    }
+
+    /**
+     * Reads back the planetary system of a record.
+     */
+    public interface SystemReader {
+        PlanetarySystem read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Writes the planetary system inline as its two (nullable) names.
+     */
+    public static final SystemWriter INLINE_SYSTEM_WRITER = (out, system) -> {
+        out.writeBoolean(system != null);
+        if (system != null) {
+            writeString(out, system.getSystemName());
+            writeString(out, system.getOrbittingStarName());
+        }
+    };
+
+    /**
+     * Reads a planetary system written by {@link #INLINE_SYSTEM_WRITER}.
+     */
+    public static final SystemReader INLINE_SYSTEM_READER = in ->
+            in.readBoolean() ? new PlanetarySystem(readString(in), readString(in)) : null;
+
+    /**
+     * Gets the type tag for a celestial body.
+     *
+     * @param body the celestial body
+     * @return its type tag
+     * @throws IllegalArgumentException if the body's type has no tag
+     */
+    public static byte typeTag(CelestialBody body) {
+        if (body instanceof GasPlanet) return GAS_PLANET;
+        if (body instanceof IcePlanet) return ICE_PLANET;
+        if (body instanceof DwarfPlanet) return DWARF_PLANET;
+        if (body instanceof Star) return STAR;
+        throw new IllegalArgumentException("No binary type tag for " + body.getClass().getName());
+    }
+
+    /**
+     * Gets the type tag for a celestial body, or {@link #OTHER} if its type has no tag.
+     *
+     * @param body the celestial body
+     * @return its type tag
+     */
+    public static byte typeTagOrOther(CelestialBody body) {
+        if (body instanceof GasPlanet || body instanceof IcePlanet || body instanceof DwarfPlanet || body instanceof Star) {
+            return typeTag(body);
+        }
+        return OTHER;
+    }
+
+    /**
+     * Writes one celestial body.
+     *
+     * @param out where the record is written
+     * @param body the celestial body to write
+     * @param systems how to write the body's planetary system
+     * @throws IOException if writing fails
+     */
+    public static void write(DataOutput out, CelestialBody body, SystemWriter systems) throws IOException {
+        out.writeByte(typeTag(body));
+        out.writeInt(body.getId());
+        writeString(out, body.getName());
+        out.writeDouble(body.getMass());
+        out.writeDouble(body.getDiameter());
+        systems.write(out, body.getPlanetarySystem());
+
+        if (body instanceof Planet planet) {
+            out.writeDouble(planet.getAverageTemperature());
+            writeString(out, planet.getSurfaceType());
+            out.writeBoolean(planet.hasLiquidWater());
+        }
+        if (body instanceof GasPlanet gasPlanet) {
+            writeString(out, gasPlanet.getGasComposition());
+            writeString(out, gasPlanet.getCoreComposition());
+            out.writeDouble(gasPlanet.getRadiationLevel());
+        } else if (body instanceof IcePlanet icePlanet) {
+            writeString(out, icePlanet.getIceComposition());
+        } else if (body instanceof DwarfPlanet dwarfPlanet) {
+            writeString(out, dwarfPlanet.getSurfaceComposition());
+        } else if (body instanceof Star star) {
+            out.writeChar(star.getSpectralType());
+            out.writeDouble(star.getLuminosity());
+        }
+    }
+
+    /**
+     * Reads one celestial body, keeping the id it was written with.
+     *
+     * @param in where the record is read from
+     * @param systems how to read the body's planetary system
+     * @return the celestial body
+     * @throws IOException if reading fails or the type tag is unknown
+     */
+    public static CelestialBody read(DataInput in, SystemReader systems) throws IOException {
+        byte tag = in.readByte();
+        int id = in.readInt();
+        String name = readString(in);
+        double mass = in.readDouble();
+        double diameter = in.readDouble();
+        PlanetarySystem system = systems.read(in);
+
+        if (tag == STAR) {
+            char spectralType = in.readChar();
+            double luminosity = in.readDouble();
+            return CelestialBody.restore(id, () -> new Star(name, mass, diameter, system, spectralType, luminosity));
+        }
+        if (tag != GAS_PLANET && tag != ICE_PLANET && tag != DWARF_PLANET) {
+            throw new IOException("Unknown celestial body type tag " + tag);
+        }
+        double averageTemperature = in.readDouble();
+        String surfaceType = readString(in);
+        boolean hasLiquidWater = in.readBoolean();
+        String composition = readString(in);
+        if (tag == GAS_PLANET) {
+            String coreComposition = readString(in);
+            double radiationLevel = in.readDouble();
+            return CelestialBody.restore(id, () -> new GasPlanet(name, mass, diameter, system, averageTemperature,
+                    surfaceType, hasLiquidWater, composition, coreComposition, radiationLevel));
+        }
+        if (tag == ICE_PLANET) {
+            return CelestialBody.restore(id, () -> new IcePlanet(name, mass, diameter, system, averageTemperature,
+                    surfaceType, hasLiquidWater, composition));
+        }
+        return CelestialBody.restore(id, () -> new DwarfPlanet(name, mass, diameter, system, averageTemperature,
+                surfaceType, hasLiquidWater, composition));
+    }
+
+    // ================================
+    // Fixed-width records
+    // ================================
+
+    /**
+     * Where each field sits in a fixed-width record, e.g. in a {@link MappedCatalogue} or an {@link OffHeapCatalogue}.
+     * String fields hold references of a width chosen by the catalogue, whose meaning is up to the catalogue:
+     * <pre>
+     *   0 int id, 4 byte type tag, 5 byte has liquid water, 6 char spectral type,
+     *   8 name, system name, star name, surface type, first composition, second composition (references),
+     *   then double mass, diameter, average temperature, radiation level, luminosity
+     * </pre>
+     * The compositions are the gas and core composition of a gas planet, the ice composition of an
+     * ice planet, or the surface composition of a dwarf planet.
+     */
+    static final class FixedLayout {
+        static final int ID = 0, TYPE = 4, LIQUID_WATER = 5, SPECTRAL_TYPE = 6, NAME = 8;
+        final int systemName, starName, surfaceType, compositionA, compositionB;
+        final int mass, diameter, averageTemperature, radiationLevel, luminosity;
+        final int recordSize;
+
+        /**
+         * Lays out a record whose string references are a given number of bytes wide.
+         *
+         * @param referenceSize the width of a string reference, 4 or 8
+         */
+        FixedLayout(int referenceSize) {
+            systemName = NAME + referenceSize;
+            starName = systemName + referenceSize;
+            surfaceType = starName + referenceSize;
+            compositionA = surfaceType + referenceSize;
+            compositionB = compositionA + referenceSize;
+            mass = compositionB + referenceSize;
+            diameter = mass + Double.BYTES;
+            averageTemperature = diameter + Double.BYTES;
+            radiationLevel = averageTemperature + Double.BYTES;
+            luminosity = radiationLevel + Double.BYTES;
+            recordSize = luminosity + Double.BYTES;
+        }
+    }
+
+    /**
+     * Stores the string fields of a fixed-width record and writes their references.
+     */
+    interface FixedStringWriter {
+        /**
+         * Stores a string and writes its reference into a field.
+         *
+         * @param record the buffer holding the record
+         * @param field the absolute offset of the field
+         * @param value the string, or null
+         */
+        void put(ByteBuffer record, int field, String value);
+
+        /**
+         * Stores a planetary system or star name, which many records share, and writes its reference into a field.
+         *
+         * @param record the buffer holding the record
+         * @param field the absolute offset of the field
+         * @param value the name, or null
+         */
+        default void putSystemName(ByteBuffer record, int field, String value) {
+            put(record, field, value);
+        }
+    }
+
+    /**
+     * Resolves the string fields of a fixed-width record.
+     */
+    interface FixedStringReader {
+        /**
+         * Reads the string a field refers to.
+         *
+         * @param record the buffer holding the record
+         * @param field the absolute offset of the field
+         * @return the string, or null
+         */
+        String get(ByteBuffer record, int field);
+
+        /**
+         * Gets the planetary system whose names two fields refer to.
+         *
+         * @param record the buffer holding the record
+         * @param systemNameField the absolute offset of the system name field
+         * @param starNameField the absolute offset of the star name field
+         * @return the planetary system, or null if the body has none
+         */
+        PlanetarySystem system(ByteBuffer record, int systemNameField, int starNameField);
+    }
+
+    /**
+     * Writes one celestial body as a fixed-width record. Every field is written, so a buffer can be reused.
+     *
+     * @param record the buffer to write into
+     * @param at the offset of the record in the buffer
+     * @param body the celestial body to write
+     * @param layout the layout of the record
+     * @param strings stores the string fields
+     * @throws IllegalArgumentException if the body's type has no tag
+     */
+    static void writeFixed(ByteBuffer record, int at, CelestialBody body, FixedLayout layout, FixedStringWriter strings) {
+        record.putInt(at + FixedLayout.ID, body.getId());
+        record.put(at + FixedLayout.TYPE, typeTag(body));
+        record.put(at + FixedLayout.LIQUID_WATER, (byte) 0);
+        record.putChar(at + FixedLayout.SPECTRAL_TYPE, ' ');
+        strings.put(record, at + FixedLayout.NAME, body.getName());
+        PlanetarySystem system = body.getPlanetarySystem();
+        strings.putSystemName(record, at + layout.systemName, system == null ? null : system.getSystemName());
+        strings.putSystemName(record, at + layout.starName, system == null ? null : system.getOrbittingStarName());
+        String surfaceType = null, compositionA = null, compositionB = null;
+        record.putDouble(at + layout.mass, body.getMass());
+        record.putDouble(at + layout.diameter, body.getDiameter());
+        record.putDouble(at + layout.averageTemperature, 0);
+        record.putDouble(at + layout.radiationLevel, 0);
+        record.putDouble(at + layout.luminosity, 0);
+
+        if (body instanceof Planet planet) {
+            record.put(at + FixedLayout.LIQUID_WATER, (byte) (planet.hasLiquidWater() ? 1 : 0));
+            surfaceType = planet.getSurfaceType();
+            record.putDouble(at + layout.averageTemperature, planet.getAverageTemperature());
+        }
+        if (body instanceof GasPlanet gasPlanet) {
+            compositionA = gasPlanet.getGasComposition();
+            compositionB = gasPlanet.getCoreComposition();
+            record.putDouble(at + layout.radiationLevel, gasPlanet.getRadiationLevel());
+        } else if (body instanceof IcePlanet icePlanet) {
+            compositionA = icePlanet.getIceComposition();
+        } else if (body instanceof DwarfPlanet dwarfPlanet) {
+            compositionA = dwarfPlanet.getSurfaceComposition();
+        } else if (body instanceof Star star) {
+            record.putChar(at + FixedLayout.SPECTRAL_TYPE, star.getSpectralType());
+            record.putDouble(at + layout.luminosity, star.getLuminosity());
+        }
+        strings.put(record, at + layout.surfaceType, surfaceType);
+        strings.put(record, at + layout.compositionA, compositionA);
+        strings.put(record, at + layout.compositionB, compositionB);
+    }
+
+    /**
+     * Reads one celestial body from a fixed-width record, keeping the id it was written with.
+     *
+     * @param record the buffer holding the record
+     * @param at the offset of the record in the buffer
+     * @param layout the layout of the record
+     * @param strings resolves the string fields
+     * @return a new celestial body holding the record's values
+     * @throws IllegalArgumentException if the type tag is unknown
+     */
+    static CelestialBody readFixed(ByteBuffer record, int at, FixedLayout layout, FixedStringReader strings) {
+        byte tag = record.get(at + FixedLayout.TYPE);
+        int id = record.getInt(at + FixedLayout.ID);
+        String name = strings.get(record, at + FixedLayout.NAME);
+        double mass = record.getDouble(at + layout.mass);
+        double diameter = record.getDouble(at + layout.diameter);
+        PlanetarySystem system = strings.system(record, at + layout.systemName, at + layout.starName);
+
+        if (tag == STAR) {
+            char spectralType = record.getChar(at + FixedLayout.SPECTRAL_TYPE);
+            double luminosity = record.getDouble(at + layout.luminosity);
+            return CelestialBody.restore(id, () -> new Star(name, mass, diameter, system, spectralType, luminosity));
+        }
+        double averageTemperature = record.getDouble(at + layout.averageTemperature);
+        String surfaceType = strings.get(record, at + layout.surfaceType);
+        boolean hasLiquidWater = record.get(at + FixedLayout.LIQUID_WATER) == 1;
+        String composition = strings.get(record, at + layout.compositionA);
+        if (tag == GAS_PLANET) {
+            String coreComposition = strings.get(record, at + layout.compositionB);
+            double radiationLevel = record.getDouble(at + layout.radiationLevel);
+            return CelestialBody.restore(id, () -> new GasPlanet(name, mass, diameter, system, averageTemperature,
+                    surfaceType, hasLiquidWater, composition, coreComposition, radiationLevel));
+        }
+        if (tag == ICE_PLANET) {
+            return CelestialBody.restore(id, () -> new IcePlanet(name, mass, diameter, system, averageTemperature,
+                    surfaceType, hasLiquidWater, composition));
+        }
+        if (tag == DWARF_PLANET) {
+            return CelestialBody.restore(id, () -> new DwarfPlanet(name, mass, diameter, system, averageTemperature,
+                    surfaceType, hasLiquidWater, composition));
+        }
+        throw new IllegalArgumentException("Unknown celestial body type tag " + tag);
+    }
+
+    // ================================
+    // Strings
+    // ================================
+
+    /**
+     * Writes a nullable string as its UTF-8 byte length (-1 for null) followed by the bytes.
+     *
+     * @param out where the string is written
+     * @param value the string, or null
+     * @throws IOException if writing fails
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param in where the string is read from
+     * @return the string, or null
+     * @throws IOException if reading fails
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,182 @@
+package controllers;
+
+import models.CelestialBody;
+import models.GasPlanet;
+import models.PlanetarySystem;
+import models.Star;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where a {@link StoredCelestialSystemAPI} keeps its celestial bodies, instead of the heap list shared by the
+ * other CelestialSystemAPI instances. Rows are numbered from 0 in catalogue order, like positions in the list.
+ * Bodies handed out are created from their stored row, so changing one does not change the store.
+ * Stores are read-only unless they say otherwise; the change methods are only called on stores that accept changes.
+ * A store that holds an open file releases it when closed.
+ */
+interface CelestialStore extends Closeable {
+
+    /**
+     * Returns the number of celestial bodies in the store.
+     *
+     * @return the number of rows
+     */
+    int numberOfCelestialBodies();
+
+    /**
+     * Creates the celestial body of a row.
+     *
+     * @param index a valid row index
+     * @return the celestial body holding the row's values
+     */
+    CelestialBody getCelestialBodyByIndex(int index);
+
+    /**
+     * Finds the row of a celestial body id.
+     *
+     * @param id the id to find
+     * @return the lowest row with that id, or -1 if not found
+     */
+    int indexOfId(int id);
+
+    /**
+     * Gets the type tag of a row (see {@link CelestialRecordCodec}).
+     *
+     * @param index a valid row index
+     * @return the type tag
+     */
+    byte getTypeTag(int index);
+
+    /**
+     * Gets the planetary system of a row without creating the body.
+     *
+     * @param index a valid row index
+     * @return the planetary system, or null if the body has none
+     */
+    PlanetarySystem getPlanetarySystem(int index);
+
+    /**
+     * Gets the mass of a row. Stores that hold the mass apart from the body should read it without creating the body.
+     *
+     * @param index a valid row index
+     * @return the mass in kilograms
+     */
+    default double getMass(int index) {
+        return getCelestialBodyByIndex(index).getMass();
+    }
+
+    /**
+     * Gets the diameter of a row. Stores that hold the diameter apart from the body should read it without
+     * creating the body.
+     *
+     * @param index a valid row index
+     * @return the diameter in kilometers
+     */
+    default double getDiameter(int index) {
+        return getCelestialBodyByIndex(index).getDiameter();
+    }
+
+    /**
+     * Gets the radiation level of a gas planet row. Stores that hold it apart from the body should read it
+     * without creating the body.
+     *
+     * @param index a row whose type tag is {@link CelestialRecordCodec#GAS_PLANET}
+     * @return the radiation level
+     */
+    default double getRadiationLevel(int index) {
+        return ((GasPlanet) getCelestialBodyByIndex(index)).getRadiationLevel();
+    }
+
+    /**
+     * Gets the luminosity of a star row. Stores that hold it apart from the body should read it without
+     * creating the body.
+     *
+     * @param index a row whose type tag is {@link CelestialRecordCodec#STAR}
+     * @return the luminosity
+     */
+    default double getLuminosity(int index) {
+        return ((Star) getCelestialBodyByIndex(index)).getLuminosity();
+    }
+
+    /**
+     * Counts the rows of one type.
+     *
+     * @param typeTag the type tag to count (see {@link CelestialRecordCodec})
+     * @return the number of rows with that tag
+     */
+    default int numberOfType(byte typeTag) {
+        int count = 0;
+        for (int i = 0; i < numberOfCelestialBodies(); i++) {
+            if (getTypeTag(i) == typeTag) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the store refuses changes.
+     *
+     * @return true unless the store overrides the change methods
+     */
+    default boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Appends a celestial body as the last row.
+     *
+     * @param body the celestial body to add
+     * @return true if added, otherwise false
+     */
+    default boolean addCelestialObject(CelestialBody body) {
+        throw new UnsupportedOperationException("The store is read-only");
+    }
+
+    /**
+     * Replaces the row of a celestial body with an updated body of the same type.
+     *
+     * @param id the id of the celestial body to update
+     * @param updatedDetails the updated details
+     * @return true if updated, otherwise false
+     */
+    default boolean updateCelestial(int id, CelestialBody updatedDetails) {
+        throw new UnsupportedOperationException("The store is read-only");
+    }
+
+    /**
+     * Removes the row of a celestial body; the later rows move up one.
+     *
+     * @param id the id of the celestial body to remove
+     * @return the removed celestial body, or null if not found
+     */
+    default CelestialBody deleteCelestialId(int id) {
+        throw new UnsupportedOperationException("The store is read-only");
+    }
+
+    /**
+     * Rearranges the rows.
+     *
+     * @param rows the current index of each row, in its new order
+     */
+    default void reorder(int[] rows) {
+        throw new UnsupportedOperationException("The store is read-only");
+    }
+
+    /**
+     * Removes every row.
+     */
+    default void clear() {
+        throw new UnsupportedOperationException("The store is read-only");
+    }
+
+    /**
+     * Releases the files the store holds open. The default holds none, so it does nothing.
+     *
+     * @throws IOException if closing a file fails
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -1,25 +1,90 @@
 package controllers;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToDoubleFunction;
 
 import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.StaxDriver;
 import models.*;
+import utils.BackgroundSaver;
+import utils.BucketIndex;
+import utils.CelestialComparators;
+import utils.LinkedIdentitySet;
 import utils.ISerializer;
+import utils.ParallelQuery;
+import utils.PlanetarySystemInterner;
+import utils.ReportWriter;
+import utils.SortUtility;
+import utils.SortedBucketIndex;
+import utils.TopKUtility;
+import utils.Utilities;
 
 /**
  * CelestialSystemAPI manages a collection of celestial bodies
  * such as stars, gas planets, and ice planets.
  * Provides methods for CRUD operations, reporting, sorting, and persistence.
  */
-public class CelestialSystemAPI implements ISerializer {
+public class CelestialSystemAPI implements ISerializer, Closeable {
 
     // ================================
     // Fields
     // ================================
     private static ArrayList<CelestialBody> celestialList;
-    private final File file = new File("celestialBody.xml"); // Always save/load to "celestialBody.xml"
+    private static Map<Integer, Integer> idIndex; // id -> position in celestialList (first occurrence)
+    private static Map<Integer, NavigableSet<Integer>> sharedIds; // id -> every position holding it, for ids held more than once
+    private static Map<Class<? extends CelestialBody>, LinkedIdentitySet<CelestialBody>> typeIndex; // exact class -> bodies, in list order
+    private static int structureVersion = 0; // bumped on every add, delete, replace, sort and load
+
+    // Planetary system names -> bodies, in list order. Kept up to date on add, delete and update, a body moved to
+    // another system through its setter is re-filed by the next lookup, and the bodies of a renamed system are
+    // re-filed as soon as it is renamed. Keyed by the names rather than the system, since a renamed system's hash changes
+    private static BucketIndex<SystemKey, CelestialBody> systemIndex;
+
+    static {
+        PlanetarySystem.setNameChangeListener(CelestialSystemAPI::systemRenamed);
+    }
+
+    // Query indexes, built by the first query that needs them and then kept up to date on add, delete and update.
+    // Results are put in list order when a query runs, so sorting the list leaves them as they are.
+    private static SortedBucketIndex<Double, CelestialBody> massIndex;
+    private static SortedBucketIndex<Double, CelestialBody> diameterIndex;
+    private static SortedBucketIndex<String, CelestialBody> nameIndex; // lower case name -> bodies
+
+    // Bodies of the catalogue changed through their setters since the indexes last caught up; only these are re-keyed
+    private static final Set<CelestialBody> changedBodies = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static int bodyChangeCount = 0; // bumped on every change to a body of the catalogue, e.g. to date the columnar copy
+
+    // Struct-of-arrays copy for aggregate scans, only built when asked for
+    private static ColumnarCatalogue columns;
+    private static int columnsStructureVersion = -1;
+    private static int columnsBodyVersion = -1;
+    private static PlanetarySystemInterner interner = new PlanetarySystemInterner(); // shares equal planetary systems
+
+    // What the file held when it was last saved or loaded, so saving an unchanged catalogue can be skipped
+    private static volatile int savedStructureVersion = -1; // reset from the saving thread if a save fails
+    private static int savedBodyClock;
+    private static int savedSystemClock;
+    private final File file; // where the catalogue is saved and loaded
+    private final BackgroundSaver saver; // writes the file off the caller's thread
 
     // ================================
     // Constructor
@@ -27,10 +92,83 @@ public class CelestialSystemAPI implements ISerializer {
 
     /**
      * Constructs a CelestialSystemAPI with an empty celestial body list.
-     * The celestial bodies will be saved to and loaded from "celestialBody.xml".
+     *
+     * @param file the file the celestial bodies will be saved to and loaded from
      */
     public CelestialSystemAPI(File file) {
-        this.celestialList = new ArrayList<>();
+        this(file, true);
+    }
+
+    /**
+     * Constructs a CelestialSystemAPI, optionally leaving the heap catalogue shared by every instance as it is,
+     * for the storage modes that keep their bodies elsewhere (see {@link StoredCelestialSystemAPI}).
+     *
+     * @param file the file the celestial bodies will be saved to and loaded from
+     * @param resetCatalogue if true, start the heap catalogue with an empty celestial body list
+     */
+    CelestialSystemAPI(File file, boolean resetCatalogue) {
+        this.file = file;
+        this.saver = new BackgroundSaver(file.toPath());
+        if (!resetCatalogue) {
+            return;
+        }
+        unwatchAll(); // the bodies of a previous instance no longer belong to the catalogue
+        celestialList = new ArrayList<>();
+        idIndex = new HashMap<>();
+        sharedIds = new HashMap<>();
+        typeIndex = new HashMap<>();
+        interner = new PlanetarySystemInterner();
+        structureVersion++;
+        dropQueryIndexes(); // they indexed the previous instance's list
+        savedStructureVersion = -1;
+        rebuildSystemIndex();
+    }
+
+    /**
+     * Opens a catalogue written by {@link MappedCatalogue#write} as a read-only CelestialSystemAPI, e.g. for a
+     * reporting session over a catalogue too large to load. Bodies are read from the mapped file as they are
+     * reported, so the heap catalogue of other instances is left as it is. Changes are refused: adds and updates
+     * return false, deletes return null, and sorting throws an {@link UnsupportedOperationException}.
+     * The static searches still read the heap catalogue, not this one.
+     *
+     * @param file the mapped catalogue file
+     * @return a read-only CelestialSystemAPI over the file
+     * @throws IOException if the file cannot be read or is not a mapped catalogue
+     */
+    public static CelestialSystemAPI openMapped(File file) throws IOException {
+        return new StoredCelestialSystemAPI(file, MappedCatalogue.open(file));
+    }
+
+    /**
+     * Opens a catalogue written by {@link LazyCatalogue#write} as a read-only CelestialSystemAPI, e.g. for a
+     * reporting session that only looks at part of a large catalogue. Only the file's directory is read up front;
+     * a body is read from the file the first time it is needed and kept in a cache of at most cacheCapacity bodies.
+     * The file stays open until the API is closed, and the heap catalogue of other instances is left as it is.
+     * Changes are refused as for {@link #openMapped(File)}, and the static searches still read the heap catalogue.
+     *
+     * @param file the lazy catalogue file
+     * @param cacheCapacity the most bodies to keep once read
+     * @return a read-only CelestialSystemAPI over the file
+     * @throws IOException if the file cannot be read or is not a lazy catalogue
+     * @throws IllegalArgumentException if the cache capacity is less than 1
+     */
+    public static CelestialSystemAPI openLazy(File file, int cacheCapacity) throws IOException {
+        return new StoredCelestialSystemAPI(file, LazyCatalogue.open(file, cacheCapacity));
+    }
+
+    /**
+     * Constructs a CelestialSystemAPI whose celestial bodies are kept off the Java heap, in an
+     * {@link OffHeapCatalogue}, e.g. for a catalogue whose bodies would crowd the heap. It starts empty and is
+     * loaded from and saved to the same XML file as the heap catalogue. Bodies are created from their records as they
+     * are handed out, so changing a returned body does not change the catalogue: pass it to updateCelestial instead.
+     * An id can only be held once, an update keeps the stored id, and a bulk delete matches bodies by id.
+     * The heap catalogue of other instances is left as it is, and the static searches still read it, not this one.
+     *
+     * @param file the file the celestial bodies will be saved to and loaded from
+     * @return an empty CelestialSystemAPI kept off the heap
+     */
+    public static CelestialSystemAPI offHeap(File file) {
+        return new StoredCelestialSystemAPI(file, new OffHeapCatalogue());
     }
 
     // ================================
@@ -44,7 +182,17 @@ public class CelestialSystemAPI implements ISerializer {
      * @return true if added successfully, otherwise false
      */
     public boolean addCelestialObject(CelestialBody body) {
-        return celestialList.add(body);
+        internPlanetarySystem(body);
+        if (celestialList.add(body)) {
+            indexId(body.getId(), celestialList.size() - 1);
+            typeIndex.computeIfAbsent(body.getClass(), type -> new LinkedIdentitySet<>()).add(body);
+            systemIndex.add(body);
+            addToQueryIndexes(body);
+            watch(body);
+            structureVersion++;
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -55,7 +203,7 @@ public class CelestialSystemAPI implements ISerializer {
      */
     public CelestialBody deleteCelestialIndex(int index) {
         if (index >= 0 && index < celestialList.size()) {
-            return celestialList.remove(index);
+            return removeAt(index);
         }
         return null;
     }
@@ -67,14 +215,28 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the removed celestial object, or null if not found
      */
     public CelestialBody deleteCelestialId(int id) {
-        for (int i = 0; i < celestialList.size(); i++) {
-            CelestialBody body = celestialList.get(i);
-            if (body.getId() == id) {
-                celestialList.remove(i);
-                return body;
+        int index = isValidId(id);
+        return index == -1 ? null : removeAt(index);
+    }
+
+    /**
+     * Deletes several celestial objects in one pass over the list, e.g. every body of a deleted planetary system.
+     *
+     * @param bodies the celestial objects to remove, matched by identity
+     * @return the number of celestial objects removed
+     */
+    public int deleteCelestialBodies(Collection<? extends CelestialBody> bodies) {
+        Set<CelestialBody> doomed = Collections.newSetFromMap(new IdentityHashMap<>());
+        doomed.addAll(bodies);
+        int before = celestialList.size();
+        if (celestialList.removeIf(doomed::contains)) {
+            for (CelestialBody body : doomed) {
+                removeFromQueryIndexes(body);
+                unwatch(body);
             }
+            rebuildIndexes();
         }
-        return null;
+        return before - celestialList.size();
     }
 
     /**
@@ -97,12 +259,8 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the celestial body with the specified ID, or null if not found
      */
     public CelestialBody getCelestialBodyById(int id) {
-        for (CelestialBody body : celestialList) {
-            if (body.getId() == id) {
-                return body;
-            }
-        }
-        return null;
+        int index = isValidId(id);
+        return index == -1 ? null : celestialList.get(index);
     }
 
     /**
@@ -123,6 +281,28 @@ public class CelestialSystemAPI implements ISerializer {
         return file;
     }
 
+    /**
+     * Sets the interner used to share planetary systems between bodies, e.g. the one owned by the
+     * PlanetarySystemAPI so bodies share its registered systems. Bodies already held are interned straight away.
+     *
+     * @param interner the planetary system interner to use
+     */
+    public void setPlanetarySystemInterner(PlanetarySystemInterner interner) {
+        CelestialSystemAPI.interner = interner;
+        for (CelestialBody body : celestialList) {
+            internPlanetarySystem(body);
+        }
+    }
+
+    /**
+     * Points a body at the canonical instance of its planetary system.
+     *
+     * @param body the body whose planetary system is interned
+     */
+    private static void internPlanetarySystem(CelestialBody body) {
+        body.sharePlanetarySystem(interner.intern(body.getPlanetarySystem()));
+    }
+
     // ================================
     // Reporting Methods
     // ================================
@@ -133,12 +313,21 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing all celestial bodies, or a message if none exist
      */
     public String listAllCelestialBodies() {
-        if (celestialList.isEmpty()) return "No Celestial Bodies";
-        String result = "";
+        return ReportWriter.asString(this::writeAllCelestialBodies);
+    }
+
+    /**
+     * Writes all celestial bodies in the system, one per line, to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllCelestialBodies(Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
         for (int i = 0; i < celestialList.size(); i++) {
-            result += i + ": " + celestialList.get(i).displayInfo() + "\n";
+            report.row(i, celestialList.get(i).displayInfo());
         }
-        return result.trim();
+        report.ifEmpty("No Celestial Bodies");
     }
 
     /**
@@ -147,7 +336,17 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing all gas planets, or a message if none exist
      */
     public String listAllGasPlanets() {
-        return listByType("GasPlanet", "Gas Planets");
+        return ReportWriter.asString(this::writeAllGasPlanets);
+    }
+
+    /**
+     * Writes all gas planets in the system to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllGasPlanets(Appendable out) throws IOException {
+        writeByType(GasPlanet.class, "Gas Planets", out);
     }
 
     /**
@@ -156,7 +355,17 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing all ice planets, or a message if none exist
      */
     public String listAllIcePlanets() {
-        return listByType("IcePlanet", "Ice Planets");
+        return ReportWriter.asString(this::writeAllIcePlanets);
+    }
+
+    /**
+     * Writes all ice planets in the system to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllIcePlanets(Appendable out) throws IOException {
+        writeByType(IcePlanet.class, "Ice Planets", out);
     }
 
     /**
@@ -165,27 +374,35 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing all stars, or a message if none exist
      */
     public String listAllStars() {
-        return listByType("Star", "Stars");
+        return ReportWriter.asString(this::writeAllStars);
+    }
+
+    /**
+     * Writes all stars in the system to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllStars(Appendable out) throws IOException {
+        writeByType(Star.class, "Stars", out);
     }
 
     /**
-     * Lists celestial bodies by their type.
+     * Writes celestial bodies of one type to the given output.
+     * Only the bodies of that type are visited, using the per-type index.
      *
-     * @param typeName the class name of the type to filter by
+     * @param type the exact class of the type to filter by
      * @param displayName the name to display in the report
-     * @return a string representing the filtered celestial bodies, or a message if none exist
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
      */
-    private String listByType(String typeName, String displayName) {
-        String result = "";
-        int count = 0;
-        for (int i = 0; i < celestialList.size(); i++) {
-            CelestialBody cb = celestialList.get(i);
-            if (cb.getClass().getSimpleName().equals(typeName)) {
-                result += i + ": " + cb.displayInfo() + "\n";
-                count++;
-            }
+    private void writeByType(Class<? extends CelestialBody> type, String displayName, Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        Collection<CelestialBody> bucket = typeIndex.get(type);
+        for (CelestialBody cb : bucket == null ? List.<CelestialBody>of() : bucket) {
+            report.row(positionOf(cb), cb.displayInfo());
         }
-        return count == 0 ? "No " + displayName : result.trim();
+        report.ifEmpty("No " + displayName);
     }
 
     /**
@@ -195,15 +412,24 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing all stars of the given spectral type, or a message if none exist
      */
     public String listAllStarsForSpectralType(char spectralType) {
-        String result = "";
-        int count = 0;
-        for (CelestialBody cb : celestialList) {
-            if (cb instanceof Star star && star.getSpectralType() == spectralType) {
-                result += cb.displayInfo() + "\n";
-                count++;
-            }
+        return ReportWriter.asString(out -> writeAllStarsForSpectralType(spectralType, out));
+    }
+
+    /**
+     * Writes all stars with a specific spectral type to the given output.
+     *
+     * @param spectralType the spectral type of the stars
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllStarsForSpectralType(char spectralType, Appendable out) throws IOException {
+        int[] matches = ParallelQuery.positionsMatching(celestialList,
+                cb -> cb instanceof Star star && star.getSpectralType() == spectralType);
+        ReportWriter report = new ReportWriter(out);
+        for (int position : matches) {
+            report.row(celestialList.get(position).displayInfo());
         }
-        return count == 0 ? "No stars for spectral type " + spectralType : result.trim();
+        report.ifEmpty("No stars for spectral type " + spectralType);
     }
 
     /**
@@ -213,7 +439,18 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing all celestial objects heavier than the given mass
      */
     public String listAllCelestialObjectsHeavierThan(double mass) {
-        return filterByMass(mass, true);
+        return ReportWriter.asString(out -> writeAllCelestialObjectsHeavierThan(mass, out));
+    }
+
+    /**
+     * Writes all celestial objects heavier than a specified mass to the given output.
+     *
+     * @param mass the mass threshold
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllCelestialObjectsHeavierThan(double mass, Appendable out) throws IOException {
+        filterByMass(mass, true, out);
     }
 
     /**
@@ -223,7 +460,18 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing all celestial objects smaller than the given diameter
      */
     public String listAllCelestialObjectsSmallerThan(double diameter) {
-        return filterByDiameter(diameter, true);
+        return ReportWriter.asString(out -> writeAllCelestialObjectsSmallerThan(diameter, out));
+    }
+
+    /**
+     * Writes all celestial objects smaller than a specified diameter to the given output.
+     *
+     * @param diameter the diameter threshold
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllCelestialObjectsSmallerThan(double diameter, Appendable out) throws IOException {
+        filterByDiameter(diameter, true, out);
     }
 
     /**
@@ -231,19 +479,15 @@ public class CelestialSystemAPI implements ISerializer {
      *
      * @param threshold the mass threshold
      * @param isHeavier if true, filter for objects heavier than the threshold; otherwise for lighter
-     * @return a string representing the filtered celestial objects
+     * @param out where the filtered celestial objects are written
+     * @throws IOException if writing to the output fails
      */
-    private String filterByMass(double threshold, boolean isHeavier) {
-        String result = "";
-        int count = 0;
-        for (CelestialBody cb : celestialList) {
-            if ((isHeavier && cb.getMass() > threshold) ||  // changed from >= to >, now passing all tests
-                    (!isHeavier && cb.getMass() < threshold)) {
-                result += cb.displayInfo() + "\n";
-                count++;
-            }
-        }
-        return count == 0 ? "No celestial body matching the criteria" : result.trim();
+    private void filterByMass(double threshold, boolean isHeavier, Appendable out) throws IOException {
+        ensureQueryIndexes();
+        // strictly heavier: changed from >= to >, now passing all tests
+        NavigableMap<Double, LinkedIdentitySet<CelestialBody>> masses = massIndex.buckets();
+        masses = isHeavier ? masses.tailMap(threshold, false) : masses.headMap(threshold, false);
+        writeMatches(inListOrder(masses.values()), out);
     }
 
     /**
@@ -251,19 +495,29 @@ public class CelestialSystemAPI implements ISerializer {
      *
      * @param threshold the diameter threshold
      * @param isSmaller if true, filter for objects smaller than the threshold; otherwise for larger
-     * @return a string representing the filtered celestial objects
+     * @param out where the filtered celestial objects are written
+     * @throws IOException if writing to the output fails
      */
-    private String filterByDiameter(double threshold, boolean isSmaller) {
-        String result = "";
-        int count = 0;
-        for (CelestialBody cb : celestialList) {
-            if ((isSmaller && cb.getDiameter() <= threshold) ||
-                    (!isSmaller && cb.getDiameter() > threshold)) {
-                result += cb.displayInfo() + "\n";
-                count++;
-            }
+    private void filterByDiameter(double threshold, boolean isSmaller, Appendable out) throws IOException {
+        ensureQueryIndexes();
+        NavigableMap<Double, LinkedIdentitySet<CelestialBody>> diameters = diameterIndex.buckets();
+        diameters = isSmaller ? diameters.headMap(threshold, true) : diameters.tailMap(threshold, false);
+        writeMatches(inListOrder(diameters.values()), out);
+    }
+
+    /**
+     * Writes the given celestial bodies to the given output.
+     *
+     * @param matches the matching bodies, in list order
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    private void writeMatches(List<CelestialBody> matches, Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (CelestialBody match : matches) {
+            report.row(match.displayInfo());
         }
-        return count == 0 ? "No celestial body matching the criteria" : result.trim();
+        report.ifEmpty("No celestial body matching the criteria");
     }
 
     /**
@@ -273,18 +527,36 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a string representing the celestial objects belonging to the specified planetary system
      */
     public String listAllCelestialObjectsForGivenPlanetary(PlanetarySystem system) {
-        if (system == null) return "Invalid Planetary System";
+        return ReportWriter.asString(out -> writeAllCelestialObjectsForGivenPlanetary(system, out));
+    }
 
-        String result = "";
-        int count = 0;
-        for (CelestialBody cb : celestialList) {
-            if (cb.getPlanetarySystem() != null &&
-                    cb.getPlanetarySystem().equals(system)) {
-                result += cb.displayInfo() + "\n";
-                count++;
-            }
+    /**
+     * Writes all celestial objects belonging to a specific planetary system to the given output.
+     *
+     * @param system the planetary system to filter by
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllCelestialObjectsForGivenPlanetary(PlanetarySystem system, Appendable out) throws IOException {
+        if (system == null) {
+            out.append("Invalid Planetary System");
+            return;
         }
-        return count == 0 ? "No celestial body in the " + system : result.trim();
+        ReportWriter report = new ReportWriter(out);
+        for (CelestialBody cb : bodiesInSystem(system)) {
+            report.row(cb.displayInfo());
+        }
+        report.ifEmpty("No celestial body in the " + system);
+    }
+
+    /**
+     * Gets the celestial bodies belonging to a specific planetary system from the system index.
+     *
+     * @param system the planetary system to filter by
+     * @return a new list of the matching celestial bodies, in list order
+     */
+    List<CelestialBody> getCelestialBodiesInSystem(PlanetarySystem system) {
+        return new ArrayList<>(bodiesInSystem(system));
     }
 
     // Count methods
@@ -304,7 +576,7 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the number of stars
      */
     public int numberOfStars() {
-        return countType("Star");
+        return countType(Star.class);
     }
 
     /**
@@ -313,7 +585,7 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the number of ice planets
      */
     public int numberOfIcePlanets() {
-        return countType("IcePlanet");
+        return countType(IcePlanet.class);
     }
 
     /**
@@ -322,7 +594,16 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the number of gas planets
      */
     public int numberOfGasPlanets() {
-        return countType("GasPlanet");
+        return countType(GasPlanet.class);
+    }
+
+    /**
+     * Returns the number of dwarf planets in the system.
+     *
+     * @return the number of dwarf planets
+     */
+    public int numberOfDwarfPlanets() {
+        return countType(DwarfPlanet.class);
     }
 
     /**
@@ -334,30 +615,18 @@ public class CelestialSystemAPI implements ISerializer {
     public int numberOfCelestialBodyByChosenPlanetarySystem(PlanetarySystem system) {
         if (system == null) return 0;
 
-        int count = 0;
-        for (CelestialBody cb : celestialList) {
-            if (cb.getPlanetarySystem() != null &&
-                    cb.getPlanetarySystem().equals(system)) {
-                count++;
-            }
-        }
-        return count;
+        return bodiesInSystem(system).size();
     }
 
     /**
      * Counts the number of celestial bodies of a specific type.
      *
-     * @param className the name of the class type to count
+     * @param type the exact class of the type to count
      * @return the number of celestial bodies of the specified type
      */
-    private int countType(String className) {
-        int count = 0;
-        for (CelestialBody cb : celestialList) {
-            if (cb.getClass().getSimpleName().equals(className)) {
-                count++;
-            }
-        }
-        return count;
+    private int countType(Class<? extends CelestialBody> type) {
+        LinkedIdentitySet<CelestialBody> bucket = typeIndex.get(type);
+        return bucket == null ? 0 : bucket.size();
     }
 
     // ================================
@@ -405,14 +674,63 @@ public class CelestialSystemAPI implements ISerializer {
      * @return true if the celestial body was updated successfully, otherwise false
      */
     public boolean updateCelestial(int id, CelestialBody updatedDetails) {
-        for (int i = 0; i < celestialList.size(); i++) {
-            if (celestialList.get(i).getId() == id &&
-                    celestialList.get(i).getClass().equals(updatedDetails.getClass())) {
-                celestialList.set(i, updatedDetails);
-                return true;
-            }
+        int index = isValidId(id);
+        if (index == -1 || !celestialList.get(index).getClass().equals(updatedDetails.getClass())) {
+            return false;
+        }
+        internPlanetarySystem(updatedDetails);
+        CelestialBody previous = celestialList.set(index, updatedDetails);
+        typeIndex.get(previous.getClass()).replace(previous, updatedDetails); // same class, so same bucket and position
+        replaceInSystemIndex(previous, updatedDetails);
+        if (massIndex != null) {
+            massIndex.replace(previous, updatedDetails);
+            diameterIndex.replace(previous, updatedDetails);
+            nameIndex.replace(previous, updatedDetails);
+        }
+        unwatch(previous);
+        watch(updatedDetails);
+        structureVersion++;
+        if (updatedDetails.getId() != id) {
+            // the slot now answers to a different id, so the old id resolves to its next occurrence, if any
+            unindexId(id, index);
+            indexId(updatedDetails.getId(), index);
+        }
+        return true;
+    }
+
+    /**
+     * Records that a position holds a body with an id. Ids held more than once also get the list of their positions,
+     * so the next occurrence of an id is found without scanning the list.
+     *
+     * @param id the id of the body
+     * @param index the position of the body
+     */
+    private static void indexId(int id, int index) {
+        Integer first = idIndex.putIfAbsent(id, index);
+        if (first != null) {
+            NavigableSet<Integer> positions = sharedIds.computeIfAbsent(id, k -> new TreeSet<>(List.of(first)));
+            positions.add(index);
+            idIndex.put(id, positions.first());
+        }
+    }
+
+    /**
+     * Records that a position no longer holds a body with an id, e.g. after it was given a body with another id.
+     *
+     * @param id the id the position held
+     * @param index the position
+     */
+    private static void unindexId(int id, int index) {
+        NavigableSet<Integer> positions = sharedIds.get(id);
+        if (positions == null) {
+            idIndex.remove(id);
+            return;
+        }
+        positions.remove(index);
+        idIndex.put(id, positions.first());
+        if (positions.size() == 1) {
+            sharedIds.remove(id);
         }
-        return false;
     }
 
     // ================================
@@ -426,12 +744,8 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the index of the celestial body if found, otherwise -1
      */
     public int isValidId(int id) {
-        for (int i = 0; i < celestialList.size(); i++) {
-            if (celestialList.get(i).getId() == id) {
-                return i;
-            }
-        }
-        return -1;
+        Integer index = idIndex.get(id);
+        return index == null ? -1 : index;
     }
 
     /**
@@ -452,86 +766,64 @@ public class CelestialSystemAPI implements ISerializer {
      * Sorts celestial objects by mass in descending order.
      */
     public void sortByMassDescending() {
-        int n = celestialList.size();
-        for (int i = 0; i < n - 1; i++) {
-            int maxIndex = i;
-            for (int j = i + 1; j < n; j++) {
-                if (celestialList.get(j).getMass() > celestialList.get(maxIndex).getMass()) {
-                    maxIndex = j;
-                }
-            }
-            if (maxIndex != i) {
-                swapCelestialBody(celestialList, i, maxIndex);
-            }
-        }
+        sortBy(CelestialComparators.BY_MASS_DESCENDING);
     }
 
     /**
-     * Sorts celestial objects by diameter in ascending order.
+     * Sorts celestial objects by surface gravity in descending order.
      */
-    public void sortByDiameterAscending() {
-        int n = celestialList.size();
-        for (int i = 0; i < n - 1; i++) {
-            int minIndex = i;
-            for (int j = i + 1; j < n; j++) {
-                if (celestialList.get(j).getDiameter() < celestialList.get(minIndex).getDiameter()) {
-                    minIndex = j;
-                }
-            }
-            if (minIndex != i) {
-                swapCelestialBody(celestialList, i, minIndex);
-            }
-        }
+    public void sortByGravityDescending() {
+        sortBy(CelestialComparators.BY_GRAVITY_DESCENDING);
     }
 
     /**
-     * Swaps two celestial bodies at specified indices in the list.
-     *
-     * @param list the list of celestial bodies
-     * @param currentIndex the index of the first celestial body
-     * @param otherIndex the index of the second celestial body
+     * Sorts celestial objects by diameter in ascending order.
      */
-    private void swapCelestialBody(List<CelestialBody> list, int currentIndex, int otherIndex) {
-        CelestialBody temp = list.get(currentIndex);
-        list.set(currentIndex, list.get(otherIndex));
-        list.set(otherIndex, temp);
+    public void sortByDiameterAscending() {
+        sortBy(CelestialComparators.BY_DIAMETER_ASCENDING);
     }
 
     /**
      * Sorts celestial objects by name in ascending order.
      */
     public void sortByNameAscending() {
-        int n = celestialList.size();
-        for (int i = 0; i < n - 1; i++) {
-            int minIndex = i;
-            for (int j = i + 1; j < n; j++) {
-                if (celestialList.get(j).getName().compareTo(celestialList.get(minIndex).getName()) < 0) {
-                    minIndex = j;
-                }
-            }
-            if (minIndex != i) {
-                swapCelestialBody(celestialList, i, minIndex);
-            }
-        }
+        sortBy(CelestialComparators.BY_NAME_ASCENDING);
     }
 
     /**
      * Sorts celestial objects by orbitting star name in ascending order.
      */
     public void sortByOrbittingStarNameAscending() {
-        int n = celestialList.size();
-        for (int i = 0; i < n - 1; i++) {
-            int minIndex = i;
-            for (int j = i + 1; j < n; j++) {
-                if (celestialList.get(j).getPlanetarySystem().getOrbittingStarName()
-                        .compareTo(celestialList.get(minIndex).getPlanetarySystem().getOrbittingStarName()) < 0) {
-                    minIndex = j;
-                }
-            }
-            if (minIndex != i) {
-                swapCelestialBody(celestialList, i, minIndex);
-            }
-        }
+        sortBy(CelestialComparators.BY_ORBITTING_STAR_NAME_ASCENDING);
+    }
+
+    /**
+     * Sorts celestial objects by planetary system name, and by mass (heaviest first) within each system.
+     */
+    public void sortBySystemThenMassDescending() {
+        sortBy(CelestialComparators.BY_SYSTEM_NAME.thenComparing(CelestialComparators.BY_MASS_DESCENDING));
+    }
+
+    /**
+     * Sorts celestial objects using any ordering. The sort is stable and switches to a
+     * parallel merge sort for large lists (see {@link SortUtility#PARALLEL_THRESHOLD}).
+     *
+     * @param comparator the ordering to apply
+     */
+    public void sortBy(Comparator<? super CelestialBody> comparator) {
+        SortUtility.sort(celestialList, comparator);
+        rebuildIndexes();
+    }
+
+    /**
+     * Puts the celestial bodies in a random order, e.g. so a benchmark does not sort already sorted input.
+     * Like a sort, this rebuilds the position-based indexes.
+     *
+     * @param random the source of randomness for the new order
+     */
+    public void shuffle(Random random) {
+        Collections.shuffle(celestialList, random);
+        rebuildIndexes();
     }
 
     // ================================
@@ -544,32 +836,67 @@ public class CelestialSystemAPI implements ISerializer {
      * @return a list of the top 5 gas planets
      */
     public List<GasPlanet> topFiveHighestRadiationGasPlanet() {
-        List<GasPlanet> gasPlanets = new ArrayList<>();
+        return topHighestRadiationGasPlanets(5);
+    }
 
-        // Collect all GasPlanet objects from celestialList
-        for (CelestialBody body : celestialList) {
-            if (body instanceof GasPlanet) {
-                gasPlanets.add((GasPlanet) body);
-            }
-        }
+    /**
+     * Returns the gas planets with the highest radiation levels, highest first.
+     *
+     * @param k the maximum number of gas planets to return
+     * @return a list of at most k gas planets
+     */
+    public List<GasPlanet> topHighestRadiationGasPlanets(int k) {
+        return topHighest(GasPlanet.class, k, GasPlanet::getRadiationLevel);
+    }
 
-        // Sort gas planets by radiation level descending (highest first)
-        for (int i = 0; i < gasPlanets.size() - 1; i++) {
-            int maxIndex = i;
-            for (int j = i + 1; j < gasPlanets.size(); j++) {
-                if (gasPlanets.get(j).getRadiationLevel() > gasPlanets.get(maxIndex).getRadiationLevel()) {
-                    maxIndex = j;
-                }
-            }
-            if (maxIndex != i) {
-                GasPlanet temp = gasPlanets.get(i);
-                gasPlanets.set(i, gasPlanets.get(maxIndex));
-                gasPlanets.set(maxIndex, temp);
+    /**
+     * Returns the heaviest celestial bodies, heaviest first.
+     *
+     * @param k the maximum number of celestial bodies to return
+     * @return a list of at most k celestial bodies
+     */
+    public List<CelestialBody> topHighestMass(int k) {
+        return topHighest(CelestialBody.class, k, CelestialBody::getMass);
+    }
+
+    /**
+     * Returns the celestial bodies with the strongest gravity, strongest first.
+     *
+     * @param k the maximum number of celestial bodies to return
+     * @return a list of at most k celestial bodies
+     */
+    public List<CelestialBody> topHighestGravity(int k) {
+        return topHighest(CelestialBody.class, k, CelestialBody::getGravity);
+    }
+
+    /**
+     * Returns the most luminous stars, most luminous first.
+     *
+     * @param k the maximum number of stars to return
+     * @return a list of at most k stars
+     */
+    public List<Star> topHighestLuminosityStars(int k) {
+        return topHighest(Star.class, k, Star::getLuminosity);
+    }
+
+    /**
+     * Returns the k celestial bodies of a given type with the highest value for a key, highest first.
+     * Uses a bounded heap (see {@link TopKUtility}) rather than sorting the whole list.
+     *
+     * @param type the type of celestial body to consider
+     * @param k the maximum number of celestial bodies to return
+     * @param key the value to rank by
+     * @return a new list of at most k celestial bodies
+     */
+    public <T extends CelestialBody> List<T> topHighest(Class<T> type, int k, ToDoubleFunction<? super T> key) {
+        TopKUtility<T> selector = new TopKUtility<>(k);
+        for (CelestialBody body : celestialList) {
+            if (type.isInstance(body)) {
+                T candidate = type.cast(body);
+                selector.offer(candidate, key.applyAsDouble(candidate));
             }
         }
-
-        // Return top 5 (or fewer if not enough)
-        return gasPlanets.subList(0, Math.min(5, gasPlanets.size()));
+        return selector.toList();
     }
 
     /**
@@ -583,7 +910,7 @@ public class CelestialSystemAPI implements ISerializer {
         if (cb == null || ps == null) {
             return false;
         }
-        return ps.equals(cb.getPlanetarySystem());
+        return cb.getPlanetarySystem() == ps || ps.equals(cb.getPlanetarySystem()); // interned systems match by reference
     }
 
     /**
@@ -593,12 +920,39 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the celestial body with the specified name, or null if not found
      */
     public static CelestialBody searchCelestialBodyByName(String name) {
-        for (CelestialBody body : celestialList) {
-            if (body.getName().equalsIgnoreCase(name)) {
-                return body;  // Return the first match (you can change this to return a list if needed)
-            }
+        List<CelestialBody> matches = searchCelestialBodiesByName(name);
+        return matches.isEmpty() ? null : matches.get(0); // the first match in list order, or null
+    }
+
+    /**
+     * Searches for all celestial bodies with a given name, ignoring case.
+     *
+     * @param name the name of the celestial bodies to search for
+     * @return the matching celestial bodies in list order, or an empty list if none match
+     */
+    public static List<CelestialBody> searchCelestialBodiesByName(String name) {
+        if (name == null) return new ArrayList<>();
+        ensureQueryIndexes();
+        LinkedIdentitySet<CelestialBody> bucket = nameIndex.get(nameKey(name));
+        return bucket == null ? new ArrayList<>() : inListOrder(List.of(bucket));
+    }
+
+    /**
+     * Searches for all celestial bodies whose name starts with a prefix, ignoring case.
+     *
+     * @param prefix the start of the names to search for
+     * @return the matching celestial bodies ordered by name, or an empty list if none match
+     */
+    public static List<CelestialBody> searchCelestialBodiesByNamePrefix(String prefix) {
+        if (prefix == null) return new ArrayList<>();
+        ensureQueryIndexes();
+        String from = nameKey(prefix);
+        List<CelestialBody> matches = new ArrayList<>();
+        for (LinkedIdentitySet<CelestialBody> bucket
+                : Utilities.withPrefix(nameIndex.buckets(), from).values()) {
+            matches.addAll(inListOrder(List.of(bucket)));
         }
-        return null; // If not found, return null
+        return matches;
     }
 
     /**
@@ -608,12 +962,19 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the celestial body with the specified mass, or null if not found
      */
     public static CelestialBody searchCelestialBodyByMass(double mass) {
-        for (CelestialBody body : celestialList) {
-            if (body.getMass() == mass) {
-                return body;  // Return the first match
-            }
-        }
-        return null; // If not found, return null
+        ensureQueryIndexes();
+        return firstInList(massIndex.get(mass)); // the first match, or null
+    }
+
+    /**
+     * Searches for the celestial body whose mass is closest to the given mass.
+     *
+     * @param mass the mass to approach
+     * @return the celestial body with the nearest mass, or null if there are no celestial bodies
+     */
+    public static CelestialBody searchCelestialBodyByNearestMass(double mass) {
+        ensureQueryIndexes();
+        return nearest(massIndex, mass);
     }
 
     /**
@@ -623,12 +984,418 @@ public class CelestialSystemAPI implements ISerializer {
      * @return the celestial body with the specified diameter, or null if not found
      */
     public static CelestialBody searchCelestialBodyByDiameter(double diameter) {
+        ensureQueryIndexes();
+        return firstInList(diameterIndex.get(diameter)); // the first match, or null
+    }
+
+    /**
+     * Searches for the celestial body whose diameter is closest to the given diameter.
+     *
+     * @param diameter the diameter to approach
+     * @return the celestial body with the nearest diameter, or null if there are no celestial bodies
+     */
+    public static CelestialBody searchCelestialBodyByNearestDiameter(double diameter) {
+        ensureQueryIndexes();
+        return nearest(diameterIndex, diameter);
+    }
+
+    /**
+     * Gets a struct-of-arrays copy of the catalogue for aggregate scans.
+     * Row i is the celestial body at index i. The copy is made on request, and made again by the next
+     * request once the list or one of its bodies has changed; queries never need it.
+     *
+     * @return the columnar catalogue
+     */
+    public ColumnarCatalogue getColumnarCatalogue() {
+        if (columns == null || columnsStructureVersion != structureVersion || columnsBodyVersion != bodyChangeCount) {
+            columns = ColumnarCatalogue.of(celestialList);
+            columnsStructureVersion = structureVersion;
+            columnsBodyVersion = bodyChangeCount;
+        }
+        return columns;
+    }
+
+    /**
+     * Gets the celestial bodies whose mass lies between two bounds (both inclusive).
+     *
+     * @param min the lowest mass
+     * @param max the highest mass
+     * @return the matching celestial bodies, in list order
+     */
+    public List<CelestialBody> getCelestialBodiesWithMassBetween(double min, double max) {
+        ensureQueryIndexes();
+        return between(massIndex, min, max);
+    }
+
+    /**
+     * Gets the celestial bodies whose diameter lies between two bounds (both inclusive).
+     *
+     * @param min the smallest diameter
+     * @param max the largest diameter
+     * @return the matching celestial bodies, in list order
+     */
+    public List<CelestialBody> getCelestialBodiesWithDiameterBetween(double min, double max) {
+        ensureQueryIndexes();
+        return between(diameterIndex, min, max);
+    }
+
+    // ================================
+    // Index Maintenance
+    // ================================
+
+    /**
+     * Removes the celestial body at the given index, drops it from its type bucket and
+     * shifts the id index entries of the bodies that moved down one position.
+     * The id index stores list positions, so a delete stays O(n), like the list removal itself.
+     *
+     * @param index the index to remove (must be valid)
+     * @return the removed celestial body
+     */
+    private CelestialBody removeAt(int index) {
+        CelestialBody removed = celestialList.remove(index);
+        typeIndex.get(removed.getClass()).remove(removed);
+        systemIndex.remove(removed);
+        removeFromQueryIndexes(removed);
+        unwatch(removed);
+        structureVersion++;
+        Integer indexed = idIndex.get(removed.getId());
+        if (indexed != null && indexed == index) {
+            idIndex.remove(removed.getId());
+        }
+        for (int i = index; i < celestialList.size(); i++) {
+            // keep the lowest position per id so duplicate ids resolve to the first match, as before
+            idIndex.merge(celestialList.get(i).getId(), i, Math::min);
+        }
+        if (!sharedIds.isEmpty()) {
+            shiftSharedIds(index);
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the positions of the ids held more than once past a removed position, dropping that position.
+     *
+     * @param removed the position that was removed from the list
+     */
+    private static void shiftSharedIds(int removed) {
+        for (Iterator<NavigableSet<Integer>> it = sharedIds.values().iterator(); it.hasNext(); ) {
+            NavigableSet<Integer> positions = it.next();
+            NavigableSet<Integer> shifted = new TreeSet<>(positions.headSet(removed, false));
+            for (int position : positions.tailSet(removed, false)) {
+                shifted.add(position - 1);
+            }
+            positions.clear();
+            positions.addAll(shifted);
+            if (positions.size() < 2) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the id index from scratch.
+     */
+    private void rebuildIdIndex() {
+        idIndex = new HashMap<>(celestialList.size() * 2);
+        sharedIds = new HashMap<>();
+        for (int i = 0; i < celestialList.size(); i++) {
+            indexId(celestialList.get(i).getId(), i);
+        }
+    }
+
+    /**
+     * Rebuilds the id, type and planetary system indexes from scratch, e.g. after the list has been sorted or loaded.
+     * The query indexes hold bodies rather than positions, so a new order leaves them as they are.
+     */
+    private void rebuildIndexes() {
+        structureVersion++;
+        rebuildIdIndex();
+        typeIndex = new HashMap<>();
+        for (CelestialBody body : celestialList) {
+            typeIndex.computeIfAbsent(body.getClass(), type -> new LinkedIdentitySet<>()).add(body);
+        }
+        rebuildSystemIndex();
+    }
+
+    /**
+     * Gets the celestial bodies of a planetary system from the system index, re-filing the bodies changed
+     * through their setters first.
+     *
+     * @param system the planetary system to look up
+     * @return the bodies of that system in list order; callers must not modify the set
+     */
+    private static Collection<CelestialBody> bodiesInSystem(PlanetarySystem system) {
+        applyBodyChanges();
+        Collection<CelestialBody> bucket = systemIndex.get(SystemKey.of(system));
+        return bucket == null ? List.of() : bucket;
+    }
+
+    /**
+     * Rebuilds the planetary system index from scratch.
+     */
+    private static void rebuildSystemIndex() {
+        systemIndex = new BucketIndex<>(body -> SystemKey.of(body.getPlanetarySystem()));
         for (CelestialBody body : celestialList) {
-            if (body.getDiameter() == diameter) {
-                return body;  // Return the first match
+            systemIndex.add(body);
+        }
+    }
+
+    /**
+     * Re-files the bodies of a planetary system whose names have just changed. Only the bucket filed under the
+     * old names is visited; bodies in it holding another system with those names stay where they are.
+     *
+     * @param system the planetary system that changed
+     * @param previous a copy of the system as it was before the change
+     */
+    private static void systemRenamed(PlanetarySystem system, PlanetarySystem previous) {
+        if (systemIndex == null) {
+            return;
+        }
+        LinkedIdentitySet<CelestialBody> bucket = systemIndex.get(SystemKey.of(previous));
+        if (bucket == null) {
+            return; // no body in the catalogue was filed under the old names
+        }
+        boolean joined = systemIndex.get(SystemKey.of(system)) != null;
+        boolean moved = false;
+        for (CelestialBody body : new ArrayList<>(bucket)) {
+            moved |= systemIndex.update(body);
+        }
+        if (moved && joined) {
+            sortSystemBucket(system); // the bodies joined the end of a bucket that already had some
+        }
+    }
+
+    private static void replaceInSystemIndex(CelestialBody previous, CelestialBody updated) {
+        if (!systemIndex.replace(previous, updated)) {
+            sortSystemBucket(updated.getPlanetarySystem()); // the body joined the end of another system's bucket
+        }
+    }
+
+    /**
+     * Puts the bucket of a planetary system back in list order after a body has joined its end.
+     *
+     * @param system the planetary system whose bucket is sorted
+     */
+    private static void sortSystemBucket(PlanetarySystem system) {
+        LinkedIdentitySet<CelestialBody> bucket = system == null ? null : systemIndex.get(SystemKey.of(system));
+        if (bucket != null && bucket.size() > 1) {
+            bucket.sort(Comparator.comparingInt(CelestialSystemAPI::positionOf));
+        }
+    }
+
+    /**
+     * Starts telling the indexes about changes made to a body through its setters.
+     *
+     * @param body a body that joined the list
+     */
+    private static void watch(CelestialBody body) {
+        body.setChangeListener(CelestialSystemAPI::bodyChanged);
+    }
+
+    private static void bodyChanged(CelestialBody body) {
+        changedBodies.add(body);
+        bodyChangeCount++;
+    }
+
+    /**
+     * Stops telling the indexes about changes made to a body that has left the list.
+     *
+     * @param body a body that left the list
+     */
+    private static void unwatch(CelestialBody body) {
+        body.setChangeListener(null);
+        changedBodies.remove(body);
+    }
+
+    /**
+     * Stops watching every body of the current list, e.g. before the list is replaced.
+     */
+    private static void unwatchAll() {
+        if (celestialList != null) {
+            for (CelestialBody body : celestialList) {
+                body.setChangeListener(null);
+            }
+        }
+        changedBodies.clear();
+    }
+
+    /**
+     * Re-files the bodies changed through their setters since the last call, so a single change costs
+     * a few index updates rather than a rebuild. Bodies whose keys did not change are left where they are.
+     */
+    private static void applyBodyChanges() {
+        if (changedBodies.isEmpty()) {
+            return;
+        }
+        for (CelestialBody body : changedBodies) {
+            if (systemIndex.update(body)) {
+                sortSystemBucket(body.getPlanetarySystem());
+            }
+            if (massIndex != null) {
+                massIndex.update(body);
+                diameterIndex.update(body);
+                nameIndex.update(body);
+            }
+        }
+        changedBodies.clear();
+    }
+
+    /**
+     * Builds the mass, diameter and name indexes if no query has needed them yet,
+     * and otherwise re-files the bodies changed through their setters.
+     */
+    private static void ensureQueryIndexes() {
+        applyBodyChanges();
+        if (massIndex == null) {
+            massIndex = new SortedBucketIndex<>(CelestialBody::getMass);
+            diameterIndex = new SortedBucketIndex<>(CelestialBody::getDiameter);
+            nameIndex = new SortedBucketIndex<>(body -> nameKey(body.getName()));
+            for (CelestialBody body : celestialList) {
+                addToQueryIndexes(body);
             }
         }
-        return null; // If not found, return null
+    }
+
+    /**
+     * Forgets the query indexes, e.g. when the list is replaced; the next query builds them again.
+     */
+    private static void dropQueryIndexes() {
+        massIndex = null;
+        diameterIndex = null;
+        nameIndex = null;
+        columns = null;
+    }
+
+    private static void addToQueryIndexes(CelestialBody body) {
+        if (massIndex != null) {
+            massIndex.add(body);
+            diameterIndex.add(body);
+            nameIndex.add(body);
+        }
+    }
+
+    private static void removeFromQueryIndexes(CelestialBody body) {
+        if (massIndex != null) {
+            massIndex.remove(body);
+            diameterIndex.remove(body);
+            nameIndex.remove(body);
+        }
+    }
+
+    /**
+     * Normalises a name for the case-insensitive name index.
+     *
+     * @param name the name to normalise
+     * @return the lower case name
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the body with the key closest to a value. When two keys are equally close, the smaller key wins,
+     * and among bodies with the same key the first in the list wins.
+     *
+     * @param index the index to search
+     * @param value the value to approach
+     * @return the closest body, or null if the index is empty
+     */
+    private static CelestialBody nearest(SortedBucketIndex<Double, CelestialBody> index, double value) {
+        Map.Entry<Double, LinkedIdentitySet<CelestialBody>> above = index.buckets().ceilingEntry(value);
+        Map.Entry<Double, LinkedIdentitySet<CelestialBody>> below = index.buckets().lowerEntry(value);
+        if (above == null) {
+            return below == null ? null : firstInList(below.getValue());
+        }
+        if (below == null || above.getKey() - value < value - below.getKey()) {
+            return firstInList(above.getValue());
+        }
+        return firstInList(below.getValue());
+    }
+
+    /**
+     * Gets the bodies with a key between two bounds (both inclusive).
+     *
+     * @param index the index to search
+     * @param min the lower bound
+     * @param max the upper bound
+     * @return the matching bodies, in list order
+     */
+    private static List<CelestialBody> between(SortedBucketIndex<Double, CelestialBody> index, double min, double max) {
+        if (Double.compare(min, max) > 0) {
+            return new ArrayList<>();
+        }
+        return inListOrder(index.buckets().subMap(min, true, max, true).values());
+    }
+
+    /**
+     * Collects the bodies of some index buckets in list order.
+     *
+     * @param buckets the buckets to collect
+     * @return the bodies, ordered by their position in the list
+     */
+    private static List<CelestialBody> inListOrder(Collection<LinkedIdentitySet<CelestialBody>> buckets) {
+        int count = 0;
+        for (LinkedIdentitySet<CelestialBody> bucket : buckets) {
+            count += bucket.size();
+        }
+        int[] positions = new int[count];
+        int i = 0;
+        for (LinkedIdentitySet<CelestialBody> bucket : buckets) {
+            for (CelestialBody body : bucket) {
+                positions[i++] = positionOf(body);
+            }
+        }
+        Arrays.sort(positions);
+        List<CelestialBody> bodies = new ArrayList<>(count);
+        for (int position : positions) {
+            bodies.add(celestialList.get(position));
+        }
+        return bodies;
+    }
+
+    /**
+     * Gets the body of an index bucket that comes first in the list.
+     *
+     * @param bucket the bucket, or null
+     * @return the first body in list order, or null if the bucket is null
+     */
+    private static CelestialBody firstInList(LinkedIdentitySet<CelestialBody> bucket) {
+        if (bucket == null) {
+            return null;
+        }
+        int first = Integer.MAX_VALUE;
+        for (CelestialBody body : bucket) {
+            first = Math.min(first, positionOf(body));
+        }
+        return celestialList.get(first);
+    }
+
+    /**
+     * Finds the current position of a body in the list through the id index, and for an id held more than once
+     * through its positions.
+     *
+     * @param body a body held in the list
+     * @return the body's index in the list
+     */
+    private static int positionOf(CelestialBody body) {
+        Integer index = idIndex.get(body.getId());
+        if (index != null && celestialList.get(index) == body) {
+            return index;
+        }
+        NavigableSet<Integer> positions = sharedIds.get(body.getId());
+        if (positions != null) {
+            for (int position : positions) {
+                if (celestialList.get(position) == body) {
+                    return position;
+                }
+            }
+        }
+        for (int i = 0; i < celestialList.size(); i++) { // the id changed behind the index, fall back to a scan
+            if (celestialList.get(i) == body) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     // ================================
@@ -636,47 +1403,275 @@ public class CelestialSystemAPI implements ISerializer {
     // ================================
 
     /**
-     * Saves the celestial bodies to a file using the XStream serialization.
+     * Releases the files the catalogue holds open, e.g. the file under {@link #openLazy}. The heap catalogue
+     * holds none, so closing it does nothing; close the APIs returned by the factories when done with them.
+     *
+     * @throws IOException if closing a file fails
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * Checks whether the catalogue has changed since it was last saved to or loaded from its file:
+     * a body was added, deleted, replaced or reordered, or a setter changed a body or its planetary system.
+     *
+     * @return true if saving would change the file
+     */
+    public boolean hasUnsavedChanges() {
+        if (savedStructureVersion != structureVersion) {
+            return true;
+        }
+        if (CelestialBody.getChangeClock() == savedBodyClock && PlanetarySystem.getChangeClock() == savedSystemClock) {
+            return false; // nothing anywhere has changed
+        }
+        for (CelestialBody body : celestialList) {
+            PlanetarySystem system = body.getPlanetarySystem();
+            if (body.isChangedSince(savedBodyClock) || (system != null && system.isChangedSince(savedSystemClock))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Saves the celestial bodies to a file using the XStream serialization, and waits until they are written.
+     * Nothing is written if the file already holds the current catalogue.
      */
     @Override
     public void save() {
         try {
-            XStream xstream = new XStream();
-            xstream.allowTypes(new Class[] {
-                    CelestialBody.class, GasPlanet.class, IcePlanet.class, Star.class, Planet.class, PlanetarySystem.class
-            });
-
-            ObjectOutputStream out = xstream.createObjectOutputStream(new FileWriter(file));
-            out.writeObject(celestialList);
-            out.close();
+            BackgroundSaver.await(saveAsync());
         } catch (Exception e) {
             System.err.println("Error saving celestial bodies: " + e.getMessage());
         }
     }
 
+    /**
+     * Saves the celestial bodies to a file in the background, see {@link BackgroundSaver}.
+     * The catalogue is captured before this returns, as a compact binary copy of each body, so it can keep
+     * changing while the copy is written out; the XML is then streamed one body at a time.
+     * Nothing is written if the file already holds the current catalogue.
+     *
+     * @return completed once the catalogue as it is now is on disk, or exceptionally if writing it failed
+     */
+    public CompletableFuture<Void> saveAsync() {
+        if (file.exists() && !hasUnsavedChanges()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int bodyClock = CelestialBody.getChangeClock(); // taken first, so a change made while writing is saved next time
+        int systemClock = PlanetarySystem.getChangeClock();
+        BackgroundSaver.Capture capture;
+        try {
+            capture = captureBodies(celestialList);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        markSaved(bodyClock, systemClock); // counts as saved while it is written, so repeated saves are skipped
+        return saver.save(capture).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                savedStructureVersion = -1; // so the next save tries again
+            }
+        });
+    }
+
+    /**
+     * Copies every body into a byte array, with its planetary system inline, and returns the work of writing the
+     * copies out as XML. Bodies of a type the codec does not know are copied through XStream instead. The copies are
+     * read back with their stored ids (see {@link CelestialBody#restore}), so saving uses up no new ids.
+     *
+     * @param bodies the bodies to capture
+     * @return the captured catalogue
+     * @throws IOException if a body cannot be copied
+     */
+    private BackgroundSaver.Capture captureBodies(List<CelestialBody> bodies) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream copies = new DataOutputStream(bytes);
+        List<Object> others = new ArrayList<>();
+        XStream xstream = createXStream();
+        for (CelestialBody body : bodies) {
+            boolean copied = CelestialRecordCodec.typeTagOrOther(body) != CelestialRecordCodec.OTHER;
+            copies.writeBoolean(copied);
+            if (copied) {
+                CelestialRecordCodec.write(copies, body, CelestialRecordCodec.INLINE_SYSTEM_WRITER);
+            } else {
+                xstream.allowTypes(new Class[] {body.getClass()});
+                others.add(xstream.fromXML(xstream.toXML(body))); // a deep copy, made without a constructor
+            }
+        }
+        byte[] captured = bytes.toByteArray();
+        int count = bodies.size();
+        return out -> {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(captured));
+            Iterator<Object> uncopied = others.iterator();
+            try (ObjectOutputStream xml = xstream.createObjectOutputStream(
+                    new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)))) {
+                for (int i = 0; i < count; i++) {
+                    xml.writeObject(in.readBoolean()
+                            ? CelestialRecordCodec.read(in, CelestialRecordCodec.INLINE_SYSTEM_READER)
+                            : uncopied.next());
+                }
+            }
+        };
+    }
+
+    /**
+     * Saves the given bodies to the file in the background, in the same format as {@link #saveAsync()}, e.g. for a
+     * storage mode whose bodies are not in the heap list. The bodies are captured before this returns.
+     *
+     * @param bodies the bodies to save, in catalogue order
+     * @return completed once the bodies are on disk, or exceptionally if writing them failed
+     */
+    CompletableFuture<Void> saveBodies(List<CelestialBody> bodies) {
+        try {
+            return saver.save(captureBodies(bodies));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Loads the celestial bodies from a file using the XStream serialization.
+     * Bodies are read one at a time; files saved as a single list by older
+     * versions are still accepted. The current bodies are only replaced once
+     * the whole file has been read successfully.
      */
     @Override
     public void load() {
         if (file.exists()) {
             try {
-                XStream xstream = new XStream();
-                xstream.allowTypes(new Class[] {
-                        CelestialBody.class, GasPlanet.class, IcePlanet.class, Star.class, Planet.class, PlanetarySystem.class
-                });
-
-                ObjectInputStream in = xstream.createObjectInputStream(new FileReader(file));
-                celestialList = (ArrayList<CelestialBody>) in.readObject();
-                in.close();
+                ArrayList<CelestialBody> loaded = readBodies();
+                int bodyClock = CelestialBody.getChangeClock();
+                int systemClock = PlanetarySystem.getChangeClock();
+                replaceCelestialBodies(loaded);
+                markSaved(bodyClock, systemClock);
             } catch (Exception e) {
                 System.err.println("Error loading celestial bodies: " + e.getMessage());
             }
         } else {
-            System.out.println("No celestialBody.xml file found. Starting with empty list.");
+            System.out.println("No " + file.getName() + " file found. Starting with empty list.");
+        }
+    }
+
+    /**
+     * Reads every celestial body from the file without changing the catalogue,
+     * so the file can be parsed on another thread, see {@link ParallelLoader}.
+     *
+     * @return the bodies in file order
+     * @throws Exception if the file cannot be read
+     */
+    ArrayList<CelestialBody> readBodies() throws Exception {
+        try (Reader reader = Files.newBufferedReader(file.toPath());
+             ObjectInputStream in = createXStream().createObjectInputStream(reader)) {
+            ArrayList<CelestialBody> loaded = new ArrayList<>();
+            while (true) {
+                Object next;
+                try {
+                    next = in.readObject();
+                } catch (EOFException endOfStream) {
+                    break;
+                }
+                if (next instanceof List<?> legacyList) {
+                    for (Object body : legacyList) {
+                        loaded.add((CelestialBody) body);
+                    }
+                } else {
+                    loaded.add((CelestialBody) next);
+                }
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Records that the file holds the current catalogue, e.g. once it has been loaded by a {@link ParallelLoader}.
+     */
+    void markLoaded() {
+        markSaved(CelestialBody.getChangeClock(), PlanetarySystem.getChangeClock());
+    }
+
+    /**
+     * Replaces every celestial body with the given ones, e.g. after reading them from storage.
+     * Ids handed out to new bodies afterwards will not collide with the loaded ones.
+     *
+     * @param bodies the new contents of the catalogue
+     */
+    void replaceCelestialBodies(ArrayList<CelestialBody> bodies) {
+        for (CelestialBody body : bodies) {
+            CelestialBody.reserveIdsThrough(body.getId());
+            internPlanetarySystem(body);
+        }
+        replaceList(bodies);
+    }
+
+    /**
+     * Replaces every celestial body with the given ones, but leaves their planetary systems as they were read.
+     * This does not touch the interner, so it can run while the planetary systems are still being loaded;
+     * call {@link #internPlanetarySystems()} once they are.
+     *
+     * @param bodies the new contents of the catalogue
+     */
+    void replaceCelestialBodiesUninterned(ArrayList<CelestialBody> bodies) {
+        for (CelestialBody body : bodies) {
+            CelestialBody.reserveIdsThrough(body.getId());
+        }
+        replaceList(bodies);
+    }
+
+    private void replaceList(ArrayList<CelestialBody> bodies) {
+        unwatchAll();
+        celestialList = bodies;
+        for (CelestialBody body : bodies) {
+            watch(body);
+        }
+        dropQueryIndexes();
+        rebuildIndexes();
+    }
+
+    /**
+     * Builds the mass, diameter and name indexes now rather than on the first query that needs them.
+     */
+    void buildQueryIndexes() {
+        ensureQueryIndexes();
+    }
+
+    /**
+     * Points every body at the canonical instance of its planetary system, e.g. once the registered
+     * planetary systems have been loaded.
+     */
+    void internPlanetarySystems() {
+        for (CelestialBody body : celestialList) {
+            internPlanetarySystem(body); // the names stay the same, so the system index needs no change
         }
     }
 
+    /**
+     * Records that the file now holds the current catalogue.
+     *
+     * @param bodyClock the celestial body change clock taken before the file was written or read
+     * @param systemClock the planetary system change clock taken before the file was written or read
+     */
+    private static void markSaved(int bodyClock, int systemClock) {
+        savedStructureVersion = structureVersion;
+        savedBodyClock = bodyClock;
+        savedSystemClock = systemClock;
+    }
+
+    /**
+     * Creates the XStream instance used for persistence, allowing the model types.
+     * The StAX driver parses incrementally, unlike the DOM driver, and ships with the JDK.
+     *
+     * @return a configured XStream instance
+     */
+    private XStream createXStream() {
+        XStream xstream = new XStream(new StaxDriver());
+        xstream.allowTypes(new Class[] {
+                CelestialBody.class, GasPlanet.class, IcePlanet.class, DwarfPlanet.class, Star.class, Planet.class,
+                PlanetarySystem.class, ArrayList.class
+        });
+        return xstream;
+    }
+
     /**
      * Returns the file name used for persistence.
      *
@@ -684,6 +1679,19 @@ public class CelestialSystemAPI implements ISerializer {
      */
     @Override
     public String fileName() {
-        return file.getName(); // Returns "celestialBody.xml"
+        return file.getName();
+    }
+
+    /**
+     * The names of a planetary system at the time a body was filed under them.
+     *
+     * @param systemName the system name
+     * @param starName the name of the star the system orbits
+     */
+    private record SystemKey(String systemName, String starName) {
+
+        static SystemKey of(PlanetarySystem system) {
+            return system == null ? null : new SystemKey(system.getSystemName(), system.getOrbittingStarName());
+        }
     }
 }
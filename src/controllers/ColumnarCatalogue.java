@@ -0,0 +1,240 @@
+package controllers;
+
+import models.*;
+import utils.BatchPhysics;
+import utils.ParallelQuery;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A struct-of-arrays copy of a catalogue's numeric fields. Each field is a primitive {@code double[]}
+ * column and the concrete type is a {@code byte[]} column of {@link CelestialRecordCodec} type tags
+ * ({@code OTHER} for subclasses without a tag),
+ * so aggregate scans walk contiguous memory instead of chasing one heap object per body, and simple
+ * loops over a column can be vectorised by the JIT.
+ * <p>
+ * Row {@code i} describes the celestial body at position {@code i} of the list the catalogue was
+ * built from, and {@link #getCelestialBody} maps a row back to that object. The model objects stay
+ * the source of truth: the catalogue is a snapshot and is rebuilt when they change
+ * (see {@link CelestialSystemAPI#getColumnarCatalogue}).
+ */
+public class ColumnarCatalogue {
+
+    /**
+     * The numeric columns. Fields a type does not have (e.g. the luminosity of a planet) hold 0.
+     */
+    public enum Column {
+        MASS, DIAMETER, AVERAGE_TEMPERATURE, RADIATION_LEVEL, LUMINOSITY
+    }
+
+    /**
+     * Quantities derived from the mass and diameter columns.
+     */
+    public enum Derived {
+        GRAVITY, SURFACE_AREA, VOLUME, DENSITY, ESCAPE_VELOCITY
+    }
+
+    private int size = 0;
+    private CelestialBody[] rows;
+    private byte[] types;
+    private final double[][] columns = new double[Column.values().length][];
+
+    /**
+     * Creates an empty catalogue.
+     *
+     * @param capacity the number of rows to allocate up front
+     */
+    public ColumnarCatalogue(int capacity) {
+        capacity = Math.max(capacity, 16);
+        rows = new CelestialBody[capacity];
+        types = new byte[capacity];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = new double[capacity];
+        }
+    }
+
+    /**
+     * Builds a catalogue holding the given celestial bodies, in list order.
+     *
+     * @param bodies the celestial bodies
+     * @return the columnar catalogue
+     */
+    public static ColumnarCatalogue of(List<CelestialBody> bodies) {
+        ColumnarCatalogue catalogue = new ColumnarCatalogue(bodies.size());
+        for (CelestialBody body : bodies) {
+            catalogue.add(body);
+        }
+        return catalogue;
+    }
+
+    /**
+     * Appends a row for a celestial body.
+     *
+     * @param body the celestial body
+     */
+    public void add(CelestialBody body) {
+        if (size == rows.length) {
+            int capacity = size * 2;
+            rows = Arrays.copyOf(rows, capacity);
+            types = Arrays.copyOf(types, capacity);
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = Arrays.copyOf(columns[c], capacity);
+            }
+        }
+        rows[size] = body;
+        types[size] = CelestialRecordCodec.typeTagOrOther(body);
+        columns[Column.MASS.ordinal()][size] = body.getMass();
+        columns[Column.DIAMETER.ordinal()][size] = body.getDiameter();
+        if (body instanceof Planet planet) {
+            columns[Column.AVERAGE_TEMPERATURE.ordinal()][size] = planet.getAverageTemperature();
+        }
+        if (body instanceof GasPlanet gasPlanet) {
+            columns[Column.RADIATION_LEVEL.ordinal()][size] = gasPlanet.getRadiationLevel();
+        }
+        if (body instanceof StellarObject stellarObject) {
+            columns[Column.LUMINOSITY.ordinal()][size] = stellarObject.getLuminosity();
+        }
+        size++;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the celestial body a row was built from.
+     *
+     * @param row the row index
+     * @return the celestial body
+     */
+    public CelestialBody getCelestialBody(int row) {
+        return rows[row];
+    }
+
+    /**
+     * Gets the type tag of a row (see {@link CelestialRecordCodec}).
+     *
+     * @param row the row index
+     * @return the type tag
+     */
+    public byte getTypeTag(int row) {
+        return types[row];
+    }
+
+    /**
+     * Gets one value of a column.
+     *
+     * @param column the column
+     * @param row the row index
+     * @return the value
+     */
+    public double get(Column column, int row) {
+        return columns[column.ordinal()][row];
+    }
+
+    /**
+     * Gets a copy of a column, one value per row.
+     *
+     * @param column the column
+     * @return the column values
+     */
+    public double[] getColumn(Column column) {
+        return Arrays.copyOf(columns[column.ordinal()], size);
+    }
+
+    // ================================
+    // Scans
+    // ================================
+
+    /**
+     * Returns the rows whose value in a column is strictly greater than a threshold.
+     *
+     * @param column the column to scan
+     * @param threshold the threshold
+     * @return the matching row indexes, in ascending order
+     */
+    public int[] rowsGreaterThan(Column column, double threshold) {
+        double[] values = columns[column.ordinal()];
+        return ParallelQuery.positionsMatching(size, i -> values[i] > threshold);
+    }
+
+    /**
+     * Returns the rows whose value in a column is less than or equal to a threshold.
+     *
+     * @param column the column to scan
+     * @param threshold the threshold
+     * @return the matching row indexes, in ascending order
+     */
+    public int[] rowsAtMost(Column column, double threshold) {
+        double[] values = columns[column.ordinal()];
+        return ParallelQuery.positionsMatching(size, i -> values[i] <= threshold);
+    }
+
+    /**
+     * Adds up a column over every row.
+     *
+     * @param column the column to add up
+     * @return the total
+     */
+    public double sum(Column column) {
+        double[] values = columns[column.ordinal()];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    /**
+     * Counts the rows of one type.
+     *
+     * @param typeTag the type tag to count (see {@link CelestialRecordCodec})
+     * @return the number of rows of that type
+     */
+    public int count(byte typeTag) {
+        return ParallelQuery.count(size, i -> types[i] == typeTag);
+    }
+
+    /**
+     * Computes the surface gravity of every row in one pass over the mass and diameter columns,
+     * using the same formula as {@link CelestialBody#calculateGravity()}.
+     *
+     * @return the gravity of each row
+     */
+    public double[] gravity() {
+        return derived(Derived.GRAVITY);
+    }
+
+    /**
+     * Computes a derived quantity for every row in one pass over the mass and diameter columns.
+     * Gravity, density and escape velocity go through the {@link BatchPhysics} kernel (SIMD when available),
+     * the rest are plain array sweeps the JIT can vectorise. All give the same values as the
+     * cached getters on {@link CelestialBody} (e.g. {@link CelestialBody#getDensity()}).
+     *
+     * @param quantity the quantity to compute
+     * @return the quantity for each row
+     */
+    public double[] derived(Derived quantity) {
+        double[] mass = columns[Column.MASS.ordinal()];
+        double[] diameter = columns[Column.DIAMETER.ordinal()];
+        double[] result = new double[size];
+        switch (quantity) {
+            case GRAVITY -> BatchPhysics.kernel().gravity(mass, diameter, result, size);
+            case SURFACE_AREA -> {
+                for (int i = 0; i < size; i++) result[i] = CelestialBody.surfaceAreaOf(diameter[i]);
+            }
+            case VOLUME -> {
+                for (int i = 0; i < size; i++) result[i] = CelestialBody.volumeOf(diameter[i]);
+            }
+            case DENSITY -> BatchPhysics.kernel().density(mass, diameter, result, size);
+            case ESCAPE_VELOCITY -> BatchPhysics.kernel().escapeVelocity(mass, diameter, result, size);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,476 @@
+package controllers;
+
+import models.*;
+import utils.ChunkedIntMap;
+import utils.ChunkedList;
+import utils.ReportWriter;
+import utils.SortUtility;
+import utils.TopKUtility;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread-safe version of {@link CelestialSystemAPI} for catalogues shared by several threads.
+ * Unlike CelestialSystemAPI, each instance has its own storage.
+ * <p>
+ * The catalogue is held as an immutable {@link Snapshot} behind a volatile field. Readers take one
+ * snapshot and work on it without locking, so a report or search always sees a consistent catalogue
+ * and never throws ConcurrentModificationException. Writers take a lock, build the next snapshot
+ * and publish it. The bodies and the id index are chunked persistent structures ({@link ChunkedList},
+ * {@link ChunkedIntMap}), so the next snapshot shares everything an add or update does not touch:
+ * a single-body write copies a root array and one chunk rather than the whole catalogue. A delete
+ * shifts the bodies after it and a sort reorders them all, so both rebuild the snapshot in O(n),
+ * like a delete from CelestialSystemAPI.
+ */
+public class ConcurrentCelestialSystemAPI {
+
+    // ================================
+    // Fields
+    // ================================
+    private volatile Snapshot snapshot = Snapshot.of(ChunkedList.empty());
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * An immutable view of the catalogue: the bodies in list order, an id index and per-type counts.
+     */
+    private static final class Snapshot {
+        private final ChunkedList<CelestialBody> bodies;
+        private final ChunkedIntMap idIndex; // id -> position (first occurrence)
+        private final Map<Class<? extends CelestialBody>, Integer> typeCounts; // exact class -> count, never modified
+
+        private Snapshot(ChunkedList<CelestialBody> bodies, ChunkedIntMap idIndex,
+                         Map<Class<? extends CelestialBody>, Integer> typeCounts) {
+            this.bodies = bodies;
+            this.idIndex = idIndex;
+            this.typeCounts = typeCounts;
+        }
+
+        /**
+         * Builds a snapshot and its indexes from scratch, e.g. after bodies have moved.
+         *
+         * @param bodies the bodies in list order
+         * @return the snapshot
+         */
+        private static Snapshot of(ChunkedList<CelestialBody> bodies) {
+            int[] ids = new int[bodies.size()];
+            int[] positions = new int[bodies.size()];
+            Map<Class<? extends CelestialBody>, Integer> typeCounts = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                CelestialBody body = bodies.get(i);
+                ids[i] = body.getId();
+                positions[i] = i;
+                typeCounts.merge(body.getClass(), 1, Integer::sum);
+            }
+            return new Snapshot(bodies, ChunkedIntMap.of(ids, positions, ids.length), typeCounts);
+        }
+
+        /**
+         * Derives the snapshot with bodies appended, sharing everything the new bodies do not touch.
+         *
+         * @param added the bodies to append
+         * @return the next snapshot
+         */
+        private Snapshot plus(Collection<? extends CelestialBody> added) {
+            ChunkedIntMap ids = idIndex;
+            Map<Class<? extends CelestialBody>, Integer> counts = new HashMap<>(typeCounts); // one entry per type
+            int position = bodies.size();
+            for (CelestialBody body : added) {
+                ids = ids.putIfAbsent(body.getId(), position++);
+                counts.merge(body.getClass(), 1, Integer::sum);
+            }
+            return new Snapshot(bodies.plusAll(added), ids, counts);
+        }
+
+        /**
+         * Derives the snapshot with the body at an index replaced by one of the same class.
+         *
+         * @param index the index to replace
+         * @param updated the new body
+         * @return the next snapshot
+         */
+        private Snapshot with(int index, CelestialBody updated) {
+            ChunkedIntMap ids = idIndex;
+            int oldId = bodies.get(index).getId();
+            if (updated.getId() != oldId) {
+                // the slot now answers to a different id, so the old id resolves to its next occurrence, if any
+                ids = ids.remove(oldId, index);
+                for (int i = index + 1; i < bodies.size(); i++) {
+                    if (bodies.get(i).getId() == oldId) {
+                        ids = ids.put(oldId, i);
+                        break;
+                    }
+                }
+                int existing = ids.get(updated.getId(), -1);
+                if (existing == -1 || index < existing) {
+                    ids = ids.put(updated.getId(), index);
+                }
+            }
+            return new Snapshot(bodies.with(index, updated), ids, typeCounts);
+        }
+
+        private int positionOf(int id) {
+            return idIndex.get(id, -1);
+        }
+    }
+
+    // ================================
+    // CRUD Methods
+    // ================================
+
+    /**
+     * Adds a celestial object to the system.
+     *
+     * @param body the celestial object to add
+     * @return true if added successfully, otherwise false
+     */
+    public boolean addCelestialObject(CelestialBody body) {
+        if (body == null) return false;
+        return addCelestialObjects(List.of(body));
+    }
+
+    /**
+     * Adds several celestial objects in a single write, which is far cheaper than adding them one by one.
+     *
+     * @param bodies the celestial objects to add
+     * @return true if any were added, otherwise false
+     */
+    public boolean addCelestialObjects(Collection<? extends CelestialBody> bodies) {
+        if (bodies.isEmpty()) return false;
+        return write(current -> current.plus(bodies));
+    }
+
+    /**
+     * Deletes a celestial object by index.
+     *
+     * @param index the index to remove
+     * @return the removed celestial object, or null if the index is invalid
+     */
+    public CelestialBody deleteCelestialIndex(int index) {
+        CelestialBody[] removed = new CelestialBody[1];
+        write(current -> {
+            if (index < 0 || index >= current.bodies.size()) return null;
+            removed[0] = current.bodies.get(index);
+            return Snapshot.of(current.bodies.without(index));
+        });
+        return removed[0];
+    }
+
+    /**
+     * Deletes a celestial object by its ID.
+     *
+     * @param id the ID of the celestial body to remove
+     * @return the removed celestial object, or null if not found
+     */
+    public CelestialBody deleteCelestialId(int id) {
+        CelestialBody[] removed = new CelestialBody[1];
+        write(current -> {
+            int index = current.positionOf(id);
+            if (index == -1) return null;
+            removed[0] = current.bodies.get(index);
+            return Snapshot.of(current.bodies.without(index));
+        });
+        return removed[0];
+    }
+
+    /**
+     * Updates the details of a celestial body, replacing it with an object of the same type.
+     *
+     * @param id the ID of the celestial body to update
+     * @param updatedDetails the updated details of the celestial body
+     * @return true if the celestial body was updated successfully, otherwise false
+     */
+    public boolean updateCelestial(int id, CelestialBody updatedDetails) {
+        return write(current -> {
+            int index = current.positionOf(id);
+            if (index == -1 || !current.bodies.get(index).getClass().equals(updatedDetails.getClass())) return null;
+            return current.with(index, updatedDetails);
+        });
+    }
+
+    /**
+     * Gets a celestial body by its index.
+     *
+     * @param index the index of the celestial body
+     * @return the celestial body at the specified index, or null if invalid index
+     */
+    public CelestialBody getCelestialBodyByIndex(int index) {
+        List<CelestialBody> bodies = snapshot.bodies;
+        return index >= 0 && index < bodies.size() ? bodies.get(index) : null;
+    }
+
+    /**
+     * Gets a celestial body by its ID.
+     *
+     * @param id the ID of the celestial body
+     * @return the celestial body with the specified ID, or null if not found
+     */
+    public CelestialBody getCelestialBodyById(int id) {
+        Snapshot view = snapshot;
+        int index = view.positionOf(id);
+        return index == -1 ? null : view.bodies.get(index);
+    }
+
+    /**
+     * Gets the celestial bodies as they are right now. Later changes to the catalogue do not affect the list.
+     *
+     * @return an unmodifiable list of the celestial bodies
+     */
+    public List<CelestialBody> getCelestialList() {
+        return snapshot.bodies;
+    }
+
+    // ================================
+    // Reporting Methods
+    // ================================
+
+    /**
+     * Lists all celestial bodies in the system.
+     *
+     * @return a string representing all celestial bodies, or a message if none exist
+     */
+    public String listAllCelestialBodies() {
+        return ReportWriter.asString(this::writeAllCelestialBodies);
+    }
+
+    /**
+     * Writes all celestial bodies in the system, one per line, to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllCelestialBodies(Appendable out) throws IOException {
+        List<CelestialBody> bodies = snapshot.bodies;
+        ReportWriter report = new ReportWriter(out);
+        for (int i = 0; i < bodies.size(); i++) {
+            report.row(i, bodies.get(i).displayInfo());
+        }
+        report.ifEmpty("No Celestial Bodies");
+    }
+
+    /**
+     * Lists all gas planets in the system.
+     *
+     * @return a string representing all gas planets, or a message if none exist
+     */
+    public String listAllGasPlanets() {
+        return ReportWriter.asString(out -> writeByType(GasPlanet.class, "Gas Planets", out));
+    }
+
+    /**
+     * Lists all ice planets in the system.
+     *
+     * @return a string representing all ice planets, or a message if none exist
+     */
+    public String listAllIcePlanets() {
+        return ReportWriter.asString(out -> writeByType(IcePlanet.class, "Ice Planets", out));
+    }
+
+    /**
+     * Lists all stars in the system.
+     *
+     * @return a string representing all stars, or a message if none exist
+     */
+    public String listAllStars() {
+        return ReportWriter.asString(out -> writeByType(Star.class, "Stars", out));
+    }
+
+    /**
+     * Writes celestial bodies of one type to the given output.
+     *
+     * @param type the exact class of the type to filter by
+     * @param displayName the name to display in the report
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    private void writeByType(Class<? extends CelestialBody> type, String displayName, Appendable out) throws IOException {
+        List<CelestialBody> bodies = snapshot.bodies;
+        ReportWriter report = new ReportWriter(out);
+        for (int i = 0; i < bodies.size(); i++) {
+            if (bodies.get(i).getClass() == type) {
+                report.row(i, bodies.get(i).displayInfo());
+            }
+        }
+        report.ifEmpty("No " + displayName);
+    }
+
+    /**
+     * Lists all celestial objects heavier than a specified mass.
+     *
+     * @param mass the mass threshold
+     * @return a string representing all celestial objects heavier than the given mass
+     */
+    public String listAllCelestialObjectsHeavierThan(double mass) {
+        return ReportWriter.asString(out -> writeMatching(cb -> cb.getMass() > mass, out));
+    }
+
+    /**
+     * Lists all celestial objects smaller than or equal to a specified diameter.
+     *
+     * @param diameter the diameter threshold
+     * @return a string representing all celestial objects smaller than the given diameter
+     */
+    public String listAllCelestialObjectsSmallerThan(double diameter) {
+        return ReportWriter.asString(out -> writeMatching(cb -> cb.getDiameter() <= diameter, out));
+    }
+
+    /**
+     * Writes every celestial body matching a condition to the given output, in list order.
+     *
+     * @param condition the condition a body must meet
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    private void writeMatching(Predicate<CelestialBody> condition, Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (CelestialBody cb : snapshot.bodies) {
+            if (condition.test(cb)) {
+                report.row(cb.displayInfo());
+            }
+        }
+        report.ifEmpty("No celestial body matching the criteria");
+    }
+
+    // Count methods
+
+    /**
+     * Returns the number of celestial bodies in the current snapshot.
+     *
+     * @return the number of celestial bodies
+     */
+    public int numberOfCelestialBodies() {
+        return snapshot.bodies.size();
+    }
+
+    /**
+     * Returns the number of stars in the current snapshot.
+     *
+     * @return the number of stars
+     */
+    public int numberOfStars() {
+        return snapshot.typeCounts.getOrDefault(Star.class, 0);
+    }
+
+    /**
+     * Returns the number of ice planets in the current snapshot.
+     *
+     * @return the number of ice planets
+     */
+    public int numberOfIcePlanets() {
+        return snapshot.typeCounts.getOrDefault(IcePlanet.class, 0);
+    }
+
+    /**
+     * Returns the number of gas planets in the current snapshot.
+     *
+     * @return the number of gas planets
+     */
+    public int numberOfGasPlanets() {
+        return snapshot.typeCounts.getOrDefault(GasPlanet.class, 0);
+    }
+
+    /**
+     * Returns the number of dwarf planets in the current snapshot.
+     *
+     * @return the number of dwarf planets
+     */
+    public int numberOfDwarfPlanets() {
+        return snapshot.typeCounts.getOrDefault(DwarfPlanet.class, 0);
+    }
+
+    // ================================
+    // Validation Methods
+    // ================================
+
+    /**
+     * Checks if a celestial object with a given ID exists.
+     *
+     * @param id the ID of the celestial body
+     * @return the index of the celestial body if found, otherwise -1
+     */
+    public int isValidId(int id) {
+        return snapshot.positionOf(id);
+    }
+
+    // ================================
+    // Sorting and Searching Methods
+    // ================================
+
+    /**
+     * Sorts the celestial bodies with the given comparator. Readers keep seeing the old order until the sort is done.
+     *
+     * @param comparator the order to sort into
+     */
+    public void sortBy(Comparator<? super CelestialBody> comparator) {
+        write(current -> {
+            List<CelestialBody> sorted = new ArrayList<>(current.bodies);
+            SortUtility.sort(sorted, comparator);
+            return Snapshot.of(ChunkedList.of(sorted));
+        });
+    }
+
+    /**
+     * Searches for a celestial body by its name.
+     *
+     * @param name the name of the celestial body to search for
+     * @return the first celestial body with the specified name, or null if not found
+     */
+    public CelestialBody searchCelestialBodyByName(String name) {
+        for (CelestialBody cb : snapshot.bodies) {
+            if (cb.getName().equalsIgnoreCase(name)) {
+                return cb;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the k celestial bodies of a type with the highest value of the given key.
+     *
+     * @param type the class of the bodies to consider, including subclasses
+     * @param k how many to return
+     * @param key the value to rank by
+     * @return at most k bodies, highest first
+     */
+    public <T extends CelestialBody> List<T> topHighest(Class<T> type, int k, ToDoubleFunction<? super T> key) {
+        TopKUtility<T> top = new TopKUtility<>(k);
+        for (CelestialBody cb : snapshot.bodies) {
+            if (type.isInstance(cb)) {
+                T body = type.cast(cb);
+                top.offer(body, key.applyAsDouble(body));
+            }
+        }
+        return top.toList();
+    }
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Applies a change under the write lock and publishes the result.
+     *
+     * @param change derives the next snapshot from the current one, or returns null to leave it unchanged
+     * @return true if a new snapshot was published
+     */
+    private boolean write(UnaryOperator<Snapshot> change) {
+        writeLock.lock();
+        try {
+            Snapshot next = change.apply(snapshot);
+            if (next == null) return false;
+            snapshot = next;
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package controllers;
+
+import models.CelestialBody;
+import models.PlanetarySystem;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only catalogue of celestial bodies that only creates the bodies a caller actually uses.
+ * <p>
+ * Opening a catalogue reads just its directory: the id, name, type, planetary system, mass and diameter of
+ * every body, and where the body's record is in the file. A full {@link CelestialBody} is read from its record the first time
+ * it is asked for, and kept in a cache of a bounded size; when the cache is full, the body used least recently
+ * is dropped and read again if it is needed later. A session that looks at a few planetary systems then only
+ * pays for the bodies in those systems, not for the whole catalogue.
+ * <p>
+ * Layout (all numbers big-endian):
+ * <pre>
+ *   header (HEADER_SIZE bytes): int magic "SPLZ", short version, int body count, long directory offset
+ *   records: one {@link CelestialRecordCodec} record per body, the planetary system written as an int index
+ *            into the directory's system table (-1 for none)
+ *   directory: int system count, then each system's name and star name;
+ *              then per body: int id, byte type tag, name, int system index, double mass, double diameter,
+ *              long record offset, int record length
+ * </pre>
+ * Strings are written with {@link CelestialRecordCodec#writeString}. Bodies of one planetary system share one
+ * PlanetarySystem instance. Hydrated bodies are new objects, so changing them does not change the file.
+ * This class is safe to use from several threads.
+ * <p>
+ * {@link CelestialSystemAPI#openLazy(File, int)} offers the CelestialSystemAPI reports over a lazy catalogue;
+ * the mass and diameter in the directory let its threshold and top-k reports hydrate only the bodies they return.
+ */
+public class LazyCatalogue implements CelestialStore {
+
+    private static final int MAGIC = 0x53504C5A; // "SPLZ"
+    private static final short VERSION = 2; // 2 added the mass and diameter to the directory
+    static final int HEADER_SIZE = 18;
+
+    private final FileChannel channel;
+    private final int size;
+
+    // The directory, one entry per body in file order
+    private final int[] ids;
+    private final byte[] types;
+    private final String[] names;
+    private final int[] systemRefs;
+    private final double[] masses;
+    private final double[] diameters;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final PlanetarySystem[] systems;
+    private final Map<Integer, Integer> idIndex; // id -> row of its first occurrence
+
+    // Row -> hydrated body, least recently used first
+    private final LinkedHashMap<Integer, CelestialBody> cache;
+    private int hydrations;
+
+    private LazyCatalogue(FileChannel channel, int size, PlanetarySystem[] systems, int cacheCapacity) {
+        this.channel = channel;
+        this.size = size;
+        this.systems = systems;
+        ids = new int[size];
+        types = new byte[size];
+        names = new String[size];
+        systemRefs = new int[size];
+        masses = new double[size];
+        diameters = new double[size];
+        offsets = new long[size];
+        lengths = new int[size];
+        idIndex = new HashMap<>(size * 2);
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CelestialBody> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    // ================================
+    // Writing and Opening
+    // ================================
+
+    /**
+     * Writes celestial bodies to a file in the lazy catalogue format.
+     *
+     * @param file the file to write
+     * @param bodies the celestial bodies to write
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a body's type has no binary type tag
+     */
+    public static void write(File file, List<CelestialBody> bodies) throws IOException {
+        Map<PlanetarySystem, Integer> systemRefs = new LinkedHashMap<>();
+        long[] offsets = new long[bodies.size()];
+        int[] lengths = new int[bodies.size()];
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            CelestialRecordCodec.SystemWriter systemWriter = (data, system) ->
+                    data.writeInt(system == null ? -1 : systemRefs.computeIfAbsent(system, s -> systemRefs.size()));
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream recordOut = new DataOutputStream(record);
+            long position = HEADER_SIZE;
+            for (int i = 0; i < bodies.size(); i++) {
+                record.reset();
+                CelestialRecordCodec.write(recordOut, bodies.get(i), systemWriter);
+                record.writeTo(out);
+                offsets[i] = position;
+                lengths[i] = record.size();
+                position += record.size();
+            }
+            long directoryOffset = position;
+
+            out.writeInt(systemRefs.size());
+            for (PlanetarySystem system : systemRefs.keySet()) {
+                CelestialRecordCodec.writeString(out, system.getSystemName());
+                CelestialRecordCodec.writeString(out, system.getOrbittingStarName());
+            }
+            for (int i = 0; i < bodies.size(); i++) {
+                CelestialBody body = bodies.get(i);
+                out.writeInt(body.getId());
+                out.writeByte(CelestialRecordCodec.typeTag(body));
+                CelestialRecordCodec.writeString(out, body.getName());
+                out.writeInt(body.getPlanetarySystem() == null ? -1 : systemRefs.get(body.getPlanetarySystem()));
+                out.writeDouble(body.getMass());
+                out.writeDouble(body.getDiameter());
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putInt(bodies.size()).putLong(directoryOffset);
+            header.flip();
+            channel.write(header, 0);
+        }
+    }
+
+    /**
+     * Opens a lazy catalogue file, reading only its directory. The file stays open until {@link #close()}.
+     *
+     * @param file the file to open
+     * @param cacheCapacity the most hydrated bodies to keep
+     * @return the read-only catalogue
+     * @throws IOException if the file cannot be read or is not a lazy catalogue of a supported version
+     * @throws IllegalArgumentException if the cache capacity is less than 1
+     */
+    public static LazyCatalogue open(File file, int cacheCapacity) throws IOException {
+        if (cacheCapacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1, was " + cacheCapacity);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a lazy catalogue");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported lazy catalogue version " + version + " in " + file);
+            }
+            int size = header.getInt();
+            long directoryOffset = header.getLong();
+
+            channel.position(directoryOffset);
+            // Not closed, as that would close the channel
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            PlanetarySystem[] systems = new PlanetarySystem[in.readInt()];
+            for (int i = 0; i < systems.length; i++) {
+                systems[i] = new PlanetarySystem(CelestialRecordCodec.readString(in), CelestialRecordCodec.readString(in));
+            }
+            LazyCatalogue catalogue = new LazyCatalogue(channel, size, systems, cacheCapacity);
+            for (int i = 0; i < size; i++) {
+                catalogue.ids[i] = in.readInt();
+                catalogue.types[i] = in.readByte();
+                catalogue.names[i] = CelestialRecordCodec.readString(in);
+                catalogue.systemRefs[i] = in.readInt();
+                catalogue.masses[i] = in.readDouble();
+                catalogue.diameters[i] = in.readDouble();
+                catalogue.offsets[i] = in.readLong();
+                catalogue.lengths[i] = in.readInt();
+                catalogue.idIndex.putIfAbsent(catalogue.ids[i], i);
+            }
+            return catalogue;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the file. Bodies already hydrated stay usable.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ================================
+    // Directory Access
+    // ================================
+
+    /**
+     * Returns the number of celestial bodies in the catalogue.
+     *
+     * @return the number of celestial bodies
+     */
+    @Override
+    public int numberOfCelestialBodies() {
+        return size;
+    }
+
+    /**
+     * Gets the id of a row, from the directory.
+     *
+     * @param index the row index
+     * @return the celestial body id
+     */
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Gets the type tag of a row (see {@link CelestialRecordCodec}), from the directory.
+     *
+     * @param index the row index
+     * @return the type tag
+     */
+    @Override
+    public byte getTypeTag(int index) {
+        return types[index];
+    }
+
+    /**
+     * Gets the name of a row, from the directory.
+     *
+     * @param index the row index
+     * @return the celestial body name
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Gets the planetary system of a row, from the directory.
+     *
+     * @param index the row index
+     * @return the planetary system, or null if the body has none
+     */
+    @Override
+    public PlanetarySystem getPlanetarySystem(int index) {
+        return systemRefs[index] == -1 ? null : systems[systemRefs[index]];
+    }
+
+    /**
+     * Gets the mass of a row, from the directory.
+     *
+     * @param index the row index
+     * @return the mass in kilograms
+     */
+    @Override
+    public double getMass(int index) {
+        return masses[index];
+    }
+
+    /**
+     * Gets the diameter of a row, from the directory.
+     *
+     * @param index the row index
+     * @return the diameter in kilometers
+     */
+    @Override
+    public double getDiameter(int index) {
+        return diameters[index];
+    }
+
+    /**
+     * Finds the row index of a celestial body id.
+     *
+     * @param id the id to find
+     * @return the row index, or -1 if not found
+     */
+    @Override
+    public int indexOfId(int id) {
+        return idIndex.getOrDefault(id, -1);
+    }
+
+    /**
+     * Counts the celestial bodies of a planetary system without hydrating them.
+     *
+     * @param systemName the planetary system name, ignoring case
+     * @return the number of bodies in planetary systems with that name
+     */
+    public int numberOfCelestialBodiesInSystem(String systemName) {
+        boolean[] matching = systemsNamed(systemName);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (systemRefs[i] != -1 && matching[systemRefs[i]]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ================================
+    // Hydration
+    // ================================
+
+    /**
+     * Gets the full model object for a row, reading it from the file unless it is cached.
+     * Asking for the same row again returns the same object for as long as it stays in the cache.
+     *
+     * @param index the row index
+     * @return the celestial body, or null if the index is invalid
+     * @throws UncheckedIOException if the record cannot be read
+     */
+    @Override
+    public synchronized CelestialBody getCelestialBodyByIndex(int index) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        CelestialBody body = cache.get(index);
+        if (body == null) {
+            try {
+                body = hydrate(index);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read celestial body " + ids[index], e);
+            }
+            cache.put(index, body);
+        }
+        return body;
+    }
+
+    /**
+     * Gets the full model object for a celestial body id, see {@link #getCelestialBodyByIndex(int)}.
+     *
+     * @param id the id to find
+     * @return the celestial body, or null if no body has that id
+     */
+    public CelestialBody getCelestialBodyById(int id) {
+        return getCelestialBodyByIndex(indexOfId(id));
+    }
+
+    /**
+     * Gets the celestial bodies of a planetary system. Only these bodies are hydrated.
+     *
+     * @param systemName the planetary system name, ignoring case
+     * @return the bodies in planetary systems with that name, in file order
+     */
+    public List<CelestialBody> getCelestialBodiesInSystem(String systemName) {
+        boolean[] matching = systemsNamed(systemName);
+        List<CelestialBody> bodies = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (systemRefs[i] != -1 && matching[systemRefs[i]]) {
+                bodies.add(getCelestialBodyByIndex(i));
+            }
+        }
+        return bodies;
+    }
+
+    /**
+     * Gets the number of hydrated bodies currently cached.
+     *
+     * @return the cache size
+     */
+    public synchronized int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Gets how many records have been read from the file since it was opened, i.e. the cache misses.
+     *
+     * @return the number of hydrations
+     */
+    public synchronized int getHydrations() {
+        return hydrations;
+    }
+
+    // ================================
+    // Helpers
+    // ================================
+
+    private CelestialBody hydrate(int index) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(lengths[index]);
+        long position = offsets[index];
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new EOFException("Record of celestial body " + ids[index] + " runs past the end of the file");
+            }
+        }
+        hydrations++;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()));
+        return CelestialRecordCodec.read(in, data -> {
+            int ref = data.readInt();
+            return ref == -1 ? null : systems[ref];
+        });
+    }
+
+    private boolean[] systemsNamed(String systemName) {
+        boolean[] matching = new boolean[systems.length];
+        for (int s = 0; s < systems.length; s++) {
+            matching[s] = systems[s].getSystemName() != null && systems[s].getSystemName().equalsIgnoreCase(systemName);
+        }
+        return matching;
+    }
+}
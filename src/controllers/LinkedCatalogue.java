@@ -0,0 +1,189 @@
+package controllers;
+
+import models.CelestialBody;
+import models.PlanetarySystem;
+import utils.ReportWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the celestial bodies in a {@link CelestialSystemAPI} linked to the planetary systems in a
+ * {@link PlanetarySystemAPI}, so changes to a system reach its bodies without rescanning the catalogue.
+ * <p>
+ * The CelestialSystemAPI is given the interner of the PlanetarySystemAPI (see {@link PlanetarySystemAPI#getInterner()}),
+ * so every body whose planetary system is registered, whether added, updated or loaded, is pointed at that
+ * registered instance. Renaming a system or changing its star then updates the one shared object every body
+ * already sees. The bodies of a system are looked up in the catalogue's own planetary system index, which follows
+ * adds, deletes, sorts and changes made through the bodies' setters, so deleting a system hands exactly its bodies
+ * to the catalogue for removal, and "bodies of system X" comes back in list order without a scan.
+ */
+public class LinkedCatalogue {
+
+    private final PlanetarySystemAPI planetarySystemAPI;
+    private final CelestialSystemAPI celestialAPI;
+
+    /**
+     * Creates a linked catalogue over both APIs and points the bodies they already hold at the registered systems.
+     *
+     * @param planetarySystemAPI the planetary systems
+     * @param celestialAPI the celestial bodies
+     */
+    public LinkedCatalogue(PlanetarySystemAPI planetarySystemAPI, CelestialSystemAPI celestialAPI) {
+        this.planetarySystemAPI = planetarySystemAPI;
+        this.celestialAPI = celestialAPI;
+        celestialAPI.setPlanetarySystemInterner(planetarySystemAPI.getInterner());
+    }
+
+    // ================================
+    // Celestial Body Methods
+    // ================================
+
+    /**
+     * Adds a celestial object to the catalogue, sharing the registered instance of its planetary system.
+     *
+     * @param body the celestial object to add
+     * @return true if added successfully, otherwise false
+     */
+    public boolean addCelestialObject(CelestialBody body) {
+        return celestialAPI.addCelestialObject(body);
+    }
+
+    /**
+     * Deletes a celestial object by its ID.
+     *
+     * @param id the ID of the celestial body to remove
+     * @return the removed celestial object, or null if not found
+     */
+    public CelestialBody deleteCelestialId(int id) {
+        return celestialAPI.deleteCelestialId(id);
+    }
+
+    /**
+     * Replaces a celestial body with an updated object of the same type, sharing the registered instance
+     * of its planetary system.
+     *
+     * @param id the ID of the celestial body to update
+     * @param updatedDetails the updated details of the celestial body
+     * @return true if the celestial body was updated successfully, otherwise false
+     */
+    public boolean updateCelestial(int id, CelestialBody updatedDetails) {
+        return celestialAPI.updateCelestial(id, updatedDetails);
+    }
+
+    /**
+     * Moves a celestial body to another registered planetary system.
+     *
+     * @param body the celestial body to move
+     * @param planetarySystemName the name of the planetary system to move it to
+     * @return true if the body was moved, false if no planetary system has that name
+     */
+    public boolean moveCelestialBody(CelestialBody body, String planetarySystemName) {
+        PlanetarySystem target = planetarySystemAPI.getPlanetarySystemByName(planetarySystemName);
+        if (target == null) {
+            return false;
+        }
+        body.setPlanetarySystem(target); // the catalogue re-files the body under its new system
+        return true;
+    }
+
+    // ================================
+    // Planetary System Methods
+    // ================================
+
+    /**
+     * Changes the star of a planetary system. Every body of the system shares its object, so they all see the new star.
+     *
+     * @param planetarySystemName the name of the planetary system to update
+     * @param starName the new star name
+     * @return true if the planetary system was updated, false if the system name was not found
+     */
+    public boolean updatePlanetarySystem(String planetarySystemName, String starName) {
+        return planetarySystemAPI.updatePlanetarySystem(planetarySystemName, starName);
+    }
+
+    /**
+     * Renames a planetary system. Every body of the system shares its object, so they all see the new name.
+     *
+     * @param planetarySystemName the current name of the planetary system
+     * @param newName the new name, which must not be used by another planetary system
+     * @return true if the planetary system was renamed, otherwise false
+     */
+    public boolean renamePlanetarySystem(String planetarySystemName, String newName) {
+        PlanetarySystem system = planetarySystemAPI.getPlanetarySystemByName(planetarySystemName);
+        if (system == null || newName == null) {
+            return false;
+        }
+        PlanetarySystem existing = planetarySystemAPI.getPlanetarySystemByName(newName);
+        if (existing != null && existing != system) {
+            return false; // name already taken
+        }
+        system.setSystemName(newName);
+        return newName.equals(system.getSystemName()); // false if the name was rejected as too long
+    }
+
+    /**
+     * Removes a planetary system by its name, together with every celestial body in it.
+     *
+     * @param planetarySystemName the name of the planetary system to remove
+     * @return the number of celestial bodies removed with it, or -1 if no planetary system has that name
+     */
+    public int removePlanetarySystemByName(String planetarySystemName) {
+        PlanetarySystem removed = planetarySystemAPI.removePlanetarySystemByName(planetarySystemName);
+        if (removed == null) {
+            return -1;
+        }
+        List<CelestialBody> bodies = celestialAPI.getCelestialBodiesInSystem(removed);
+        return bodies.isEmpty() ? 0 : celestialAPI.deleteCelestialBodies(bodies);
+    }
+
+    // ================================
+    // Reporting Methods
+    // ================================
+
+    /**
+     * Gets the celestial bodies of a registered planetary system.
+     *
+     * @param planetarySystemName the name of the planetary system
+     * @return the bodies in list order, or an empty list if there are none or the system is not registered
+     */
+    public List<CelestialBody> getCelestialBodiesOf(String planetarySystemName) {
+        PlanetarySystem system = planetarySystemAPI.getPlanetarySystemByName(planetarySystemName);
+        return system == null ? new ArrayList<>() : celestialAPI.getCelestialBodiesInSystem(system);
+    }
+
+    /**
+     * Returns the number of celestial bodies of a registered planetary system.
+     *
+     * @param planetarySystemName the name of the planetary system
+     * @return the number of bodies, or 0 if the system is not registered
+     */
+    public int numberOfCelestialBodiesOf(String planetarySystemName) {
+        PlanetarySystem system = planetarySystemAPI.getPlanetarySystemByName(planetarySystemName);
+        return system == null ? 0 : celestialAPI.numberOfCelestialBodyByChosenPlanetarySystem(system);
+    }
+
+    /**
+     * Lists the celestial bodies of a registered planetary system, in the same format as
+     * {@link CelestialSystemAPI#listAllCelestialObjectsForGivenPlanetary}.
+     *
+     * @param planetarySystemName the name of the planetary system
+     * @return a string representing the celestial bodies of the system
+     */
+    public String listAllCelestialObjectsForGivenPlanetary(String planetarySystemName) {
+        return ReportWriter.asString(out -> writeAllCelestialObjectsForGivenPlanetary(planetarySystemName, out));
+    }
+
+    /**
+     * Writes the celestial bodies of a registered planetary system to the given output.
+     *
+     * @param planetarySystemName the name of the planetary system
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllCelestialObjectsForGivenPlanetary(String planetarySystemName, Appendable out) throws IOException {
+        PlanetarySystem system = planetarySystemAPI.getPlanetarySystemByName(planetarySystemName);
+        celestialAPI.writeAllCelestialObjectsForGivenPlanetary(system, out); // reports an unknown name as invalid
+    }
+}
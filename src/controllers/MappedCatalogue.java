@@ -0,0 +1,371 @@
+package controllers;
+
+import models.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A read-only view of a catalogue of celestial bodies, served from a memory-mapped file.
+ * Opening a catalogue only reads the header, the string dictionary and the id of each record; numeric fields
+ * (mass, diameter, temperature, radiation, luminosity) are read straight from the mapped
+ * records, so startup is quick, heap use stays small and several processes share the page cache.
+ * Full model objects are only created for the rows a caller asks for.
+ * <p>
+ * Layout (all numbers big-endian):
+ * <pre>
+ *   header (HEADER_SIZE bytes): int magic "SPCM", short version, int record count,
+ *           int star / gas planet / ice planet / dwarf planet counts, long dictionary offset, padding
+ *   records (RECORD_SIZE bytes each): {@link CelestialRecordCodec.FixedLayout} records whose strings are
+ *           int string dictionary indexes (-1 for null), so mass is at 32 and a record is 72 bytes
+ *   dictionary: int string count, then each string as written by {@link CelestialRecordCodec#writeString}
+ * </pre>
+ * <p>
+ * A catalogue can be read from several threads at once: the mapped records are only read,
+ * and the shared planetary systems are created through a concurrent map.
+ * <p>
+ * {@link CelestialSystemAPI#openMapped(File)} serves the whole CelestialSystemAPI from a mapped catalogue, read-only.
+ */
+public class MappedCatalogue implements CelestialStore {
+
+    private static final int MAGIC = 0x5350434D; // "SPCM"
+    private static final short VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    private static final CelestialRecordCodec.FixedLayout LAYOUT = new CelestialRecordCodec.FixedLayout(Integer.BYTES);
+    static final int RECORD_SIZE = LAYOUT.recordSize;
+
+    // A single mapping is limited to 2GB, so records are mapped in chunks of whole records
+    private static final int RECORDS_PER_CHUNK = Integer.MAX_VALUE / RECORD_SIZE;
+
+    private final ByteBuffer[] chunks;
+    private final String[] dictionary;
+    private final int size;
+    private final int[] typeCounts = new int[5]; // indexed by type tag
+    private final Map<Long, PlanetarySystem> systems = new ConcurrentHashMap<>(); // one instance per (system, star) pair
+    private final long[] idRows; // id in the high half, row in the low half, sorted, so an id is found by binary search
+
+    // Resolves dictionary indexes when records are read
+    private final CelestialRecordCodec.FixedStringReader strings = new CelestialRecordCodec.FixedStringReader() {
+        @Override
+        public String get(ByteBuffer record, int field) {
+            return string(record.getInt(field));
+        }
+
+        @Override
+        public PlanetarySystem system(ByteBuffer record, int systemNameField, int starNameField) {
+            return MappedCatalogue.this.system(record.getInt(systemNameField), record.getInt(starNameField));
+        }
+    };
+
+    private MappedCatalogue(ByteBuffer[] chunks, String[] dictionary, int size, int[] typeCounts) {
+        this.chunks = chunks;
+        this.dictionary = dictionary;
+        this.size = size;
+        System.arraycopy(typeCounts, 0, this.typeCounts, 0, typeCounts.length);
+        idRows = new long[size];
+        for (int i = 0; i < size; i++) {
+            idRows[i] = (long) getId(i) << 32 | i;
+        }
+        Arrays.sort(idRows); // equal ids keep the lowest row first
+    }
+
+    // ================================
+    // Writing and Opening
+    // ================================
+
+    /**
+     * Writes celestial bodies to a file in the mapped catalogue format.
+     *
+     * @param file the file to write
+     * @param bodies the celestial bodies to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(File file, List<CelestialBody> bodies) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int[] typeCounts = new int[5];
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            for (CelestialBody body : bodies) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    drain(channel, buffer);
+                }
+                byte type = CelestialRecordCodec.typeTag(body);
+                typeCounts[type]++;
+                CelestialRecordCodec.writeFixed(buffer, buffer.position(), body, LAYOUT,
+                        (record, field, value) -> record.putInt(field, intern(strings, value)));
+                buffer.position(buffer.position() + RECORD_SIZE);
+            }
+            drain(channel, buffer);
+
+            long dictionaryOffset = channel.position();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel)))) {
+                out.writeInt(strings.size());
+                for (String value : strings.keySet()) {
+                    CelestialRecordCodec.writeString(out, value);
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putInt(bodies.size());
+                header.putInt(typeCounts[CelestialRecordCodec.STAR]).putInt(typeCounts[CelestialRecordCodec.GAS_PLANET])
+                        .putInt(typeCounts[CelestialRecordCodec.ICE_PLANET]).putInt(typeCounts[CelestialRecordCodec.DWARF_PLANET]);
+                header.putLong(dictionaryOffset);
+                header.flip();
+                channel.write(header, 0);
+            }
+        }
+    }
+
+    /**
+     * Opens a mapped catalogue file for reading.
+     *
+     * @param file the file to open
+     * @return the read-only catalogue
+     * @throws IOException if the file cannot be read or is not a mapped catalogue of a supported version
+     */
+    public static MappedCatalogue open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a mapped catalogue");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported mapped catalogue version " + version + " in " + file);
+            }
+            int size = header.getInt();
+            int[] typeCounts = new int[5];
+            typeCounts[CelestialRecordCodec.STAR] = header.getInt();
+            typeCounts[CelestialRecordCodec.GAS_PLANET] = header.getInt();
+            typeCounts[CelestialRecordCodec.ICE_PLANET] = header.getInt();
+            typeCounts[CelestialRecordCodec.DWARF_PLANET] = header.getInt();
+            long dictionaryOffset = header.getLong();
+
+            ByteBuffer[] chunks = new ByteBuffer[(size + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK];
+            for (int c = 0; c < chunks.length; c++) {
+                long first = (long) c * RECORDS_PER_CHUNK;
+                long records = Math.min(RECORDS_PER_CHUNK, size - first);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE,
+                        records * RECORD_SIZE);
+            }
+
+            channel.position(dictionaryOffset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel)));
+            String[] dictionary = new String[in.readInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = CelestialRecordCodec.readString(in);
+            }
+            return new MappedCatalogue(chunks, dictionary, size, typeCounts);
+        }
+    }
+
+    private static int intern(Map<String, Integer> strings, String value) {
+        return value == null ? -1 : strings.computeIfAbsent(value, v -> strings.size());
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // ================================
+    // Field Access
+    // ================================
+
+    /**
+     * Returns the number of celestial bodies in the catalogue.
+     *
+     * @return the number of celestial bodies
+     */
+    @Override
+    public int numberOfCelestialBodies() {
+        return size;
+    }
+
+    /**
+     * Gets the id of a row.
+     *
+     * @param index the row index
+     * @return the celestial body id
+     */
+    public int getId(int index) {
+        return chunk(index).getInt(offset(index) + CelestialRecordCodec.FixedLayout.ID);
+    }
+
+    /**
+     * Gets the type tag of a row (see {@link CelestialRecordCodec}).
+     *
+     * @param index the row index
+     * @return the type tag
+     */
+    @Override
+    public byte getTypeTag(int index) {
+        return chunk(index).get(offset(index) + CelestialRecordCodec.FixedLayout.TYPE);
+    }
+
+    /**
+     * Gets the name of a row.
+     *
+     * @param index the row index
+     * @return the celestial body name
+     */
+    public String getName(int index) {
+        return string(chunk(index).getInt(offset(index) + CelestialRecordCodec.FixedLayout.NAME));
+    }
+
+    /**
+     * Gets the mass of a row, read directly from the mapped file.
+     *
+     * @param index the row index
+     * @return the mass in kilograms
+     */
+    @Override
+    public double getMass(int index) {
+        return chunk(index).getDouble(offset(index) + LAYOUT.mass);
+    }
+
+    /**
+     * Gets the diameter of a row, read directly from the mapped file.
+     *
+     * @param index the row index
+     * @return the diameter in kilometers
+     */
+    @Override
+    public double getDiameter(int index) {
+        return chunk(index).getDouble(offset(index) + LAYOUT.diameter);
+    }
+
+    /**
+     * Gets the average temperature of a planet.
+     *
+     * @param index the row index
+     * @return the average temperature, or 0 for a star
+     */
+    public double getAverageTemperature(int index) {
+        return chunk(index).getDouble(offset(index) + LAYOUT.averageTemperature);
+    }
+
+    /**
+     * Gets the radiation level of a gas planet.
+     *
+     * @param index the row index
+     * @return the radiation level, or 0 for other types
+     */
+    @Override
+    public double getRadiationLevel(int index) {
+        return chunk(index).getDouble(offset(index) + LAYOUT.radiationLevel);
+    }
+
+    /**
+     * Gets the luminosity of a star.
+     *
+     * @param index the row index
+     * @return the luminosity, or 0 for other types
+     */
+    @Override
+    public double getLuminosity(int index) {
+        return chunk(index).getDouble(offset(index) + LAYOUT.luminosity);
+    }
+
+    /**
+     * Gets the planetary system of a row without creating the body. Rows that share a planetary system
+     * share one PlanetarySystem instance.
+     *
+     * @param index the row index
+     * @return the planetary system, or null if the body has none
+     */
+    @Override
+    public PlanetarySystem getPlanetarySystem(int index) {
+        return strings.system(chunk(index), offset(index) + LAYOUT.systemName, offset(index) + LAYOUT.starName);
+    }
+
+    /**
+     * Creates the full model object for a row. Rows that share a planetary system
+     * share one PlanetarySystem instance.
+     *
+     * @param index the row index
+     * @return a new celestial body holding the row's values, or null if the index is invalid
+     */
+    @Override
+    public CelestialBody getCelestialBodyByIndex(int index) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        return CelestialRecordCodec.readFixed(chunk(index), offset(index), LAYOUT, strings);
+    }
+
+    /**
+     * Finds the row index of a celestial body id, using the id table built when the catalogue was opened.
+     *
+     * @param id the id to find
+     * @return the lowest row index with that id, or -1 if not found
+     */
+    @Override
+    public int indexOfId(int id) {
+        long first = (long) id << 32;
+        int low = 0, high = idRows.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idRows[mid] < first) low = mid + 1;
+            else high = mid;
+        }
+        return low < idRows.length && (int) (idRows[low] >> 32) == id ? (int) idRows[low] : -1;
+    }
+
+    // ================================
+    // Reporting Methods
+    // ================================
+
+    /**
+     * Returns the number of celestial bodies of one type, from the header counts.
+     *
+     * @param typeTag the type tag to count (see {@link CelestialRecordCodec})
+     * @return the number of celestial bodies with that tag
+     */
+    @Override
+    public int numberOfType(byte typeTag) {
+        return typeCounts[typeTag];
+    }
+
+    // ================================
+    // Helpers
+    // ================================
+
+    private ByteBuffer chunk(int index) {
+        return chunks[index / RECORDS_PER_CHUNK];
+    }
+
+    private static int offset(int index) {
+        return (index % RECORDS_PER_CHUNK) * RECORD_SIZE;
+    }
+
+    private String string(int ref) {
+        return ref == -1 ? null : dictionary[ref];
+    }
+
+    private PlanetarySystem system(int systemNameRef, int starNameRef) {
+        if (systemNameRef == -1 && starNameRef == -1) {
+            return null;
+        }
+        long key = ((long) systemNameRef << 32) | (starNameRef & 0xFFFFFFFFL);
+        return systems.computeIfAbsent(key, k -> new PlanetarySystem(string(systemNameRef), string(starNameRef)));
+    }
+}
@@ -0,0 +1,605 @@
+package controllers;
+
+import models.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A catalogue of celestial bodies whose records live outside the Java heap, in direct buffers.
+ * Every record, its strings, and the id lookup table are held off-heap. The heap only holds
+ * the handful of buffer objects, so heap use and GC work do not grow with the number of bodies.
+ * Model objects are created on demand when a body is read, and writes copy the fields back off-heap.
+ * <p>
+ * Records are {@link CelestialRecordCodec.FixedLayout} records of RECORD_SIZE bytes, whose strings are long
+ * string table references (chunk in the high half, offset in the low half, -1 for null). Records are kept in catalogue order, so the row
+ * of a body is its slot: deleting a record moves the later ones up, as removing from a list would. An update
+ * keeps the string references of the values it does not change and only appends the new ones. Strings left
+ * behind by updates and deletes are counted, and once they make up most of the string table it is compacted,
+ * copying only the strings records still refer to. System and star names are stored once each, and bodies read from the same planetary system
+ * share one PlanetarySystem instance. Ids are unique: a body whose id is already held is refused.
+ * <p>
+ * This is the store behind {@link CelestialSystemAPI#offHeap}, which offers the whole
+ * CelestialSystemAPI over it; it can also be used on its own. The Foreign Function and Memory API is not
+ * final in JDK 17, so the records live in direct ByteBuffers instead of MemorySegments.
+ */
+public class OffHeapCatalogue implements CelestialStore {
+
+    private static final CelestialRecordCodec.FixedLayout LAYOUT = new CelestialRecordCodec.FixedLayout(Long.BYTES);
+    static final int RECORD_SIZE = LAYOUT.recordSize;
+    private static final int ID = CelestialRecordCodec.FixedLayout.ID, TYPE = CelestialRecordCodec.FixedLayout.TYPE;
+
+    private static final int RECORDS_PER_CHUNK = 1 << 16;
+    private static final int STRING_CHUNK_SIZE = 1 << 20;
+    private static final int EMPTY = -1;
+    private static final long MIN_DEAD_STRING_BYTES = 1 << 16; // below this compacting is not worth a pass over the records
+
+    // The string fields of a record that belong to that body alone; system and star names are shared
+    private static final int[] BODY_STRINGS = {CelestialRecordCodec.FixedLayout.NAME, LAYOUT.surfaceType,
+            LAYOUT.compositionA, LAYOUT.compositionB};
+    private static final int[] SYSTEM_STRINGS = {LAYOUT.systemName, LAYOUT.starName};
+
+    private final List<ByteBuffer> recordChunks = new ArrayList<>();
+    private int slotCount = 0; // records held, one per body
+
+    private final List<ByteBuffer> stringChunks = new ArrayList<>();
+    private long deadStringBytes = 0; // bytes of strings no record refers to any more
+
+    // Open addressing id -> slot table, two ints per entry, linear probing
+    private ByteBuffer idTable;
+    private int idTableCapacity;
+
+    private final int[] typeCounts = new int[5]; // indexed by type tag
+
+    // System and star names repeat for every body of a system, so each distinct name is stored once
+    private final Map<String, Long> systemStrings = new HashMap<>();
+    // system name reference -> star name reference -> the shared instance for that pair
+    private final Map<Long, Map<Long, PlanetarySystem>> systems = new HashMap<>();
+
+    // Stores the strings of a new record, and of an updated one, which keeps the strings it does not change
+    private final CelestialRecordCodec.FixedStringWriter adding = stringWriter(false);
+    private final CelestialRecordCodec.FixedStringWriter updating = stringWriter(true);
+
+    // Resolves string table references when records are read
+    private final CelestialRecordCodec.FixedStringReader strings = new CelestialRecordCodec.FixedStringReader() {
+        @Override
+        public String get(ByteBuffer record, int field) {
+            return getString(record.getLong(field));
+        }
+
+        @Override
+        public PlanetarySystem system(ByteBuffer record, int systemNameField, int starNameField) {
+            return OffHeapCatalogue.this.system(record.getLong(systemNameField), record.getLong(starNameField));
+        }
+    };
+
+    /**
+     * Creates an empty off-heap catalogue.
+     */
+    public OffHeapCatalogue() {
+        allocateIdTable(1 << 10);
+    }
+
+    // ================================
+    // CRUD Methods
+    // ================================
+
+    /**
+     * Adds a celestial object. Its fields are copied off-heap; the object itself is not kept.
+     *
+     * @param body the celestial object to add
+     * @return true if added, false if a celestial object with the same id is already held
+     */
+    @Override
+    public boolean addCelestialObject(CelestialBody body) {
+        if (slotOf(body.getId()) != -1) {
+            return false;
+        }
+        if (slotCount == recordChunks.size() * RECORDS_PER_CHUNK) {
+            recordChunks.add(ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_SIZE));
+        }
+        writeRecord(slotCount, body, false);
+        putSlot(body.getId(), slotCount);
+        slotCount++;
+        typeCounts[CelestialRecordCodec.typeTag(body)]++;
+        return true;
+    }
+
+    /**
+     * Gets the celestial body at a row, creating a model object from its off-heap record.
+     *
+     * @param index a valid row index
+     * @return a new celestial body holding the stored values
+     */
+    @Override
+    public CelestialBody getCelestialBodyByIndex(int index) {
+        return readRecord(index);
+    }
+
+    /**
+     * Gets a celestial body by its ID, creating a model object from its off-heap record.
+     *
+     * @param id the ID of the celestial body
+     * @return a new celestial body holding the stored values, or null if not found
+     */
+    public CelestialBody getCelestialBodyById(int id) {
+        int slot = slotOf(id);
+        return slot == -1 ? null : readRecord(slot);
+    }
+
+    /**
+     * Replaces the stored fields of a celestial body with those of an updated object of the same type.
+     *
+     * @param id the ID of the celestial body to update
+     * @param updatedDetails the updated details, which keep the stored ID
+     * @return true if the celestial body was updated, otherwise false
+     */
+    @Override
+    public boolean updateCelestial(int id, CelestialBody updatedDetails) {
+        int slot = slotOf(id);
+        if (slot == -1 || record(slot).get(offset(slot) + TYPE) != CelestialRecordCodec.typeTag(updatedDetails)) {
+            return false;
+        }
+        writeRecord(slot, updatedDetails, true);
+        record(slot).putInt(offset(slot) + ID, id);
+        compactStringsIfMostlyDead();
+        return true;
+    }
+
+    /**
+     * Deletes a celestial object by its ID.
+     *
+     * @param id the ID of the celestial body to remove
+     * @return the removed celestial object, or null if not found
+     */
+    @Override
+    public CelestialBody deleteCelestialId(int id) {
+        int slot = slotOf(id);
+        if (slot == -1) {
+            return null;
+        }
+        CelestialBody removed = readRecord(slot);
+        typeCounts[record(slot).get(offset(slot) + TYPE)]--;
+        for (int field : BODY_STRINGS) {
+            deadStringBytes += stringSize(record(slot).getLong(offset(slot) + field));
+        }
+        removeSlot(id);
+        for (int next = slot + 1; next < slotCount; next++) { // close the gap, keeping catalogue order
+            copyRecord(record(next), next, record(next - 1), next - 1);
+            setSlot(record(next - 1).getInt(offset(next - 1) + ID), next - 1);
+        }
+        slotCount--;
+        compactStringsIfMostlyDead();
+        return removed;
+    }
+
+    /**
+     * Rearranges the records, moving the raw bytes so no body is created and no string is stored again.
+     *
+     * @param rows the current row of each record, in its new order
+     */
+    @Override
+    public void reorder(int[] rows) {
+        List<ByteBuffer> reordered = new ArrayList<>();
+        for (int i = 0; i < recordChunks.size(); i++) {
+            reordered.add(ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_SIZE));
+        }
+        for (int slot = 0; slot < rows.length; slot++) {
+            copyRecord(record(rows[slot]), rows[slot], reordered.get(slot / RECORDS_PER_CHUNK), slot);
+        }
+        recordChunks.clear();
+        recordChunks.addAll(reordered);
+        for (int slot = 0; slot < slotCount; slot++) {
+            setSlot(record(slot).getInt(offset(slot) + ID), slot);
+        }
+    }
+
+    /**
+     * Removes every celestial body and releases the records and strings that held them.
+     */
+    @Override
+    public void clear() {
+        recordChunks.clear();
+        stringChunks.clear();
+        deadStringBytes = 0;
+        slotCount = 0;
+        Arrays.fill(typeCounts, 0);
+        systemStrings.clear();
+        systems.clear();
+        allocateIdTable(1 << 10);
+    }
+
+    /**
+     * Accepts changes.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    // ================================
+    // Reporting Methods
+    // ================================
+
+    /**
+     * Finds the row of a celestial body id in the off-heap id table.
+     *
+     * @param id the ID of the celestial body
+     * @return the row, or -1 if not found
+     */
+    @Override
+    public int indexOfId(int id) {
+        return slotOf(id);
+    }
+
+    /**
+     * Gets the type tag of a row straight from its off-heap record.
+     *
+     * @param index a valid row index
+     * @return the type tag
+     */
+    @Override
+    public byte getTypeTag(int index) {
+        return record(index).get(offset(index) + TYPE);
+    }
+
+    /**
+     * Gets the shared planetary system of a row without creating the body.
+     *
+     * @param index a valid row index
+     * @return the planetary system, or null if the body has none
+     */
+    @Override
+    public PlanetarySystem getPlanetarySystem(int index) {
+        return strings.system(record(index), offset(index) + LAYOUT.systemName, offset(index) + LAYOUT.starName);
+    }
+
+    /**
+     * Gets the mass of a row straight from its off-heap record.
+     *
+     * @param index a valid row index
+     * @return the mass
+     */
+    @Override
+    public double getMass(int index) {
+        return record(index).getDouble(offset(index) + LAYOUT.mass);
+    }
+
+    /**
+     * Gets the diameter of a row straight from its off-heap record.
+     *
+     * @param index a valid row index
+     * @return the diameter
+     */
+    @Override
+    public double getDiameter(int index) {
+        return record(index).getDouble(offset(index) + LAYOUT.diameter);
+    }
+
+    /**
+     * Gets the radiation level of a gas planet row straight from its off-heap record.
+     *
+     * @param index a valid row index
+     * @return the radiation level, or 0 for other types
+     */
+    @Override
+    public double getRadiationLevel(int index) {
+        return record(index).getDouble(offset(index) + LAYOUT.radiationLevel);
+    }
+
+    /**
+     * Gets the luminosity of a star row straight from its off-heap record.
+     *
+     * @param index a valid row index
+     * @return the luminosity, or 0 for other types
+     */
+    @Override
+    public double getLuminosity(int index) {
+        return record(index).getDouble(offset(index) + LAYOUT.luminosity);
+    }
+
+    /**
+     * Returns the number of celestial bodies, one per record.
+     *
+     * @return the number of celestial bodies
+     */
+    @Override
+    public int numberOfCelestialBodies() {
+        return slotCount;
+    }
+
+    /**
+     * Returns the number of celestial bodies of one type, kept as a running count.
+     *
+     * @param typeTag the type tag to count
+     * @return the number of celestial bodies with that tag
+     */
+    @Override
+    public int numberOfType(byte typeTag) {
+        return typeCounts[typeTag];
+    }
+
+    /**
+     * Gets the number of bytes the string table holds, including strings no record refers to any more.
+     *
+     * @return the size of the string table in bytes
+     */
+    public long getStringTableSize() {
+        long size = 0;
+        for (ByteBuffer chunk : stringChunks) {
+            size += chunk.position();
+        }
+        return size;
+    }
+
+    // ================================
+    // Records
+    // ================================
+
+    private ByteBuffer record(int slot) {
+        return recordChunks.get(slot / RECORDS_PER_CHUNK);
+    }
+
+    private static int offset(int slot) {
+        return (slot % RECORDS_PER_CHUNK) * RECORD_SIZE;
+    }
+
+    // Copies the raw bytes of one record; string references stay valid as the string table is shared
+    private static void copyRecord(ByteBuffer from, int fromSlot, ByteBuffer to, int toSlot) {
+        to.put(offset(toSlot), from, offset(fromSlot), RECORD_SIZE);
+    }
+
+    /**
+     * Copies the fields of a body into a record.
+     *
+     * @param slot the record to write
+     * @param body the body whose fields are copied
+     * @param update true if the record already holds a body, whose unchanged strings are then kept
+     */
+    private void writeRecord(int slot, CelestialBody body, boolean update) {
+        CelestialRecordCodec.writeFixed(record(slot), offset(slot), body, LAYOUT, update ? updating : adding);
+    }
+
+    private CelestialBody readRecord(int slot) {
+        return CelestialRecordCodec.readFixed(record(slot), offset(slot), LAYOUT, strings);
+    }
+
+    /**
+     * Gets the shared planetary system for a pair of system and star name references.
+     * Both come from {@link #putSystemString}, so equal names always have equal references.
+     *
+     * @param systemName the system name reference
+     * @param starName the star name reference
+     * @return the shared planetary system, or null if the body has none
+     */
+    private PlanetarySystem system(long systemName, long starName) {
+        if (systemName == -1 && starName == -1) {
+            return null;
+        }
+        return systems.computeIfAbsent(systemName, k -> new HashMap<>())
+                .computeIfAbsent(starName, k -> new PlanetarySystem(getString(systemName), getString(starName)));
+    }
+
+    // ================================
+    // String Table
+    // ================================
+
+    private CelestialRecordCodec.FixedStringWriter stringWriter(boolean update) {
+        return new CelestialRecordCodec.FixedStringWriter() {
+            @Override
+            public void put(ByteBuffer record, int field, String value) {
+                putString(record, field, value, update);
+            }
+
+            @Override
+            public void putSystemName(ByteBuffer record, int field, String value) {
+                record.putLong(field, putSystemString(value));
+            }
+        };
+    }
+
+    /**
+     * Stores a string field of a record. When updating, a field that already holds the same string keeps
+     * its reference, so unchanged values do not grow the string table, and a replaced string is counted as dead.
+     *
+     * @param chunk the record chunk
+     * @param field the absolute offset of the field
+     * @param value the string to store, or null
+     * @param update true if the field already holds a reference
+     */
+    private void putString(ByteBuffer chunk, int field, String value, boolean update) {
+        long previous = update ? chunk.getLong(field) : -1;
+        if (value == null) {
+            deadStringBytes += stringSize(previous);
+            chunk.putLong(field, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (!holds(previous, bytes)) {
+            deadStringBytes += stringSize(previous);
+            chunk.putLong(field, appendString(bytes));
+        }
+    }
+
+    // System and star names are few and shared by many bodies, so each distinct one is appended once
+    private long putSystemString(String value) {
+        if (value == null) {
+            return -1;
+        }
+        return systemStrings.computeIfAbsent(value, v -> appendString(v.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Whether the string table holds exactly these UTF-8 bytes at a reference
+    private boolean holds(long ref, byte[] bytes) {
+        if (ref == -1) {
+            return false;
+        }
+        ByteBuffer chunk = stringChunks.get((int) (ref >>> 32));
+        int at = (int) ref;
+        if (chunk.getInt(at) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (chunk.get(at + Integer.BYTES + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Appends a string as an int length and its UTF-8 bytes; the reference is (chunk << 32 | offset)
+    private long appendString(byte[] bytes) {
+        int needed = Integer.BYTES + bytes.length;
+        ByteBuffer chunk = stringChunks.isEmpty() ? null : stringChunks.get(stringChunks.size() - 1);
+        if (chunk == null || chunk.remaining() < needed) {
+            chunk = ByteBuffer.allocateDirect(Math.max(STRING_CHUNK_SIZE, needed));
+            stringChunks.add(chunk);
+        }
+        long ref = ((long) (stringChunks.size() - 1) << 32) | chunk.position();
+        chunk.putInt(bytes.length).put(bytes);
+        return ref;
+    }
+
+    private String getString(long ref) {
+        return ref == -1 ? null : new String(stringBytes(stringChunks, ref), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] stringBytes(List<ByteBuffer> chunks, long ref) {
+        ByteBuffer chunk = chunks.get((int) (ref >>> 32));
+        int at = (int) ref;
+        byte[] bytes = new byte[chunk.getInt(at)];
+        chunk.get(at + Integer.BYTES, bytes);
+        return bytes;
+    }
+
+    // The bytes a string takes in the table, length included
+    private long stringSize(long ref) {
+        return ref == -1 ? 0 : Integer.BYTES + stringChunks.get((int) (ref >>> 32)).getInt((int) ref);
+    }
+
+    private void compactStringsIfMostlyDead() {
+        if (deadStringBytes >= MIN_DEAD_STRING_BYTES && deadStringBytes * 2 > getStringTableSize()) {
+            compactStrings();
+        }
+    }
+
+    /**
+     * Copies the strings that records still refer to into a new string table and points the records at the copies.
+     * System and star names are copied once each, and the shared planetary systems of the names still in use
+     * are kept, so bodies read before and after the compaction share the same instances.
+     */
+    private void compactStrings() {
+        List<ByteBuffer> previous = new ArrayList<>(stringChunks);
+        stringChunks.clear();
+        systemStrings.clear();
+        Map<Long, Long> moved = new HashMap<>(); // system or star name reference -> its new reference
+        moved.put(-1L, -1L);
+        for (int slot = 0; slot < slotCount; slot++) {
+            ByteBuffer chunk = record(slot);
+            int at = offset(slot);
+            for (int field : BODY_STRINGS) {
+                long ref = chunk.getLong(at + field);
+                if (ref != -1) {
+                    chunk.putLong(at + field, appendString(stringBytes(previous, ref)));
+                }
+            }
+            for (int field : SYSTEM_STRINGS) {
+                chunk.putLong(at + field, moved.computeIfAbsent(chunk.getLong(at + field), ref -> {
+                    byte[] bytes = stringBytes(previous, ref);
+                    long copy = appendString(bytes);
+                    systemStrings.put(new String(bytes, StandardCharsets.UTF_8), copy);
+                    return copy;
+                }));
+            }
+        }
+        Map<Long, Map<Long, PlanetarySystem>> kept = new HashMap<>();
+        systems.forEach((systemName, byStar) -> byStar.forEach((starName, system) -> {
+            Long newSystemName = moved.get(systemName), newStarName = moved.get(starName);
+            if (newSystemName != null && newStarName != null) { // names no record uses any more are dropped
+                kept.computeIfAbsent(newSystemName, k -> new HashMap<>()).put(newStarName, system);
+            }
+        }));
+        systems.clear();
+        systems.putAll(kept);
+        deadStringBytes = 0;
+    }
+
+    // ================================
+    // Id Table
+    // ================================
+
+    private void allocateIdTable(int capacity) {
+        idTableCapacity = capacity;
+        idTable = ByteBuffer.allocateDirect(capacity * 2 * Integer.BYTES);
+        for (int i = 0; i < capacity; i++) {
+            idTable.putInt(i * 8 + 4, EMPTY);
+        }
+    }
+
+    private int home(int id) {
+        return (id * 0x9E3779B9 >>> 1) % idTableCapacity;
+    }
+
+    private int slotOf(int id) {
+        for (int i = home(id); ; i = (i + 1) % idTableCapacity) {
+            int slot = idTable.getInt(i * 8 + 4);
+            if (slot == EMPTY) return -1;
+            if (idTable.getInt(i * 8) == id) return slot;
+        }
+    }
+
+    private void putSlot(int id, int slot) {
+        if ((slotCount + 1) * 2 > idTableCapacity) {
+            ByteBuffer old = idTable;
+            int oldCapacity = idTableCapacity;
+            allocateIdTable(oldCapacity * 2);
+            for (int i = 0; i < oldCapacity; i++) {
+                int oldSlot = old.getInt(i * 8 + 4);
+                if (oldSlot != EMPTY) {
+                    insert(old.getInt(i * 8), oldSlot);
+                }
+            }
+        }
+        insert(id, slot);
+    }
+
+    private void insert(int id, int slot) {
+        int i = home(id);
+        while (idTable.getInt(i * 8 + 4) != EMPTY) {
+            i = (i + 1) % idTableCapacity;
+        }
+        idTable.putInt(i * 8, id);
+        idTable.putInt(i * 8 + 4, slot);
+    }
+
+    // Points the entry of an id already in the table at another slot
+    private void setSlot(int id, int slot) {
+        int i = home(id);
+        while (idTable.getInt(i * 8) != id || idTable.getInt(i * 8 + 4) == EMPTY) {
+            i = (i + 1) % idTableCapacity;
+        }
+        idTable.putInt(i * 8 + 4, slot);
+    }
+
+    // Removes an id, shifting later entries of the probe run back so lookups never stop early
+    private void removeSlot(int id) {
+        int i = home(id);
+        while (idTable.getInt(i * 8) != id || idTable.getInt(i * 8 + 4) == EMPTY) {
+            i = (i + 1) % idTableCapacity;
+        }
+        idTable.putInt(i * 8 + 4, EMPTY);
+        for (int j = (i + 1) % idTableCapacity; idTable.getInt(j * 8 + 4) != EMPTY; j = (j + 1) % idTableCapacity) {
+            int entryId = idTable.getInt(j * 8);
+            int entrySlot = idTable.getInt(j * 8 + 4);
+            idTable.putInt(j * 8 + 4, EMPTY);
+            insert(entryId, entrySlot);
+        }
+    }
+}
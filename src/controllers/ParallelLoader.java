@@ -0,0 +1,137 @@
+package controllers;
+
+import models.CelestialBody;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Loads the planetary systems and the celestial bodies from their XML files at the same time,
+ * so startup takes about as long as the bigger file rather than both one after the other.
+ * <p>
+ * The planetary systems are loaded on a pool thread while the calling thread reads the celestial bodies
+ * and builds their indexes. If the planetary systems are still loading by then, the query indexes are built
+ * as well, which would otherwise be done by the first search. Bodies read from the XML carry their own copies
+ * of their planetary systems, so they are only pointed at the registered systems once both files have been
+ * read: until then the two sides share no state. The time each phase took is kept for {@link #describeTimings()}.
+ */
+public class ParallelLoader {
+
+    private final PlanetarySystemAPI planetarySystemAPI;
+    private final CelestialSystemAPI celestialAPI;
+
+    // How long each phase of the last load took, in nanoseconds
+    private long planetarySystemsTime;
+    private long celestialBodiesTime;
+    private long indexTime;
+    private long resolveTime;
+    private long totalTime;
+
+    /**
+     * Creates a loader for both APIs. The CelestialSystemAPI should already use the
+     * PlanetarySystemAPI's interner, see {@link CelestialSystemAPI#setPlanetarySystemInterner}.
+     *
+     * @param planetarySystemAPI loads the planetary systems
+     * @param celestialAPI loads the celestial bodies
+     */
+    public ParallelLoader(PlanetarySystemAPI planetarySystemAPI, CelestialSystemAPI celestialAPI) {
+        this.planetarySystemAPI = planetarySystemAPI;
+        this.celestialAPI = celestialAPI;
+    }
+
+    /**
+     * Loads both files, replacing what both APIs hold. If one file cannot be read, the other is still loaded
+     * and the first failure is thrown once both have finished.
+     *
+     * @throws Exception if either file cannot be read
+     */
+    public void load() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<Void> planetarySystems = CompletableFuture.runAsync(() -> {
+            try {
+                planetarySystemAPI.load();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                planetarySystemsTime = System.nanoTime() - start;
+            }
+        });
+
+        Exception failure = null;
+        boolean bodiesLoaded = false;
+        try {
+            bodiesLoaded = loadCelestialBodies(start, planetarySystems);
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        try {
+            planetarySystems.join();
+        } catch (CompletionException e) {
+            if (failure == null) {
+                failure = e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        long resolveStart = System.nanoTime();
+        celestialAPI.internPlanetarySystems(); // both sides are done, so the registered systems can be shared
+        if (bodiesLoaded) {
+            celestialAPI.markLoaded();
+        }
+        long end = System.nanoTime();
+        resolveTime = end - resolveStart;
+        totalTime = end - start;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads the celestial bodies and builds their indexes, without touching the planetary systems.
+     *
+     * @param start when the load started
+     * @param planetarySystems completes once the planetary systems are loaded
+     * @return true if the bodies were loaded, false if there is no file to load them from
+     * @throws Exception if the file cannot be read
+     */
+    private boolean loadCelestialBodies(long start, CompletableFuture<Void> planetarySystems) throws Exception {
+        celestialBodiesTime = 0;
+        indexTime = 0;
+        if (!celestialAPI.getFile().exists()) {
+            System.out.println("No " + celestialAPI.fileName() + " file found. Starting with empty list.");
+            return false;
+        }
+        ArrayList<CelestialBody> bodies = celestialAPI.readBodies();
+        long parsed = System.nanoTime();
+        celestialBodiesTime = parsed - start;
+        celestialAPI.replaceCelestialBodiesUninterned(bodies);
+        if (!planetarySystems.isDone()) {
+            celestialAPI.buildQueryIndexes(); // would only be waiting otherwise
+        }
+        indexTime = System.nanoTime() - parsed;
+        return true;
+    }
+
+    /**
+     * Describes how long each phase of the last load took. The planetary systems were read at the same time as
+     * the celestial bodies and their indexes, so the total is less than the sum of the phases.
+     *
+     * @return one line per phase, with times in milliseconds
+     */
+    public String describeTimings() {
+        return String.format(Locale.ROOT, """
+                Planetary systems read:   %8.1f ms
+                Celestial bodies read:    %8.1f ms
+                Indexes built:            %8.1f ms
+                Planetary systems linked: %8.1f ms
+                Total:                    %8.1f ms
+                """, millis(planetarySystemsTime), millis(celestialBodiesTime), millis(indexTime),
+                millis(resolveTime), millis(totalTime));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
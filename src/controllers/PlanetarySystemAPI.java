@@ -3,11 +3,21 @@ package controllers;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.DomDriver;
 import models.PlanetarySystem;
+import utils.BackgroundSaver;
 import utils.ISerializer;
+import utils.PlanetarySystemInterner;
+import utils.ReportWriter;
+import utils.Utilities;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import static utils.Utilities.isValidIndex;
 
@@ -20,9 +30,30 @@ public class PlanetarySystemAPI implements ISerializer {
     // List to hold planetary systems
     private List<PlanetarySystem> planetarySystemList = new ArrayList<>();
 
+    // Lower case system name -> first planetary system with that name. A held system that is renamed
+    // tells this API through its rename listener, and only that system is re-keyed
+    private TreeMap<String, PlanetarySystem> nameIndex = new TreeMap<>();
+    private final BiConsumer<PlanetarySystem, String> renameListener = this::systemRenamed;
+    private boolean hasSharedNames; // whether the name index had to leave out a system with an indexed name
+
+    // Planetary system -> its position in the list, so a system found by name is also found in the list.
+    // Kept up to date on add and remove, and rebuilt after a sort or load
+    private Map<PlanetarySystem, Integer> positions = new IdentityHashMap<>();
+
+    // Canonical planetary systems, shared with a CelestialSystemAPI so bodies use the registered instances
+    private final PlanetarySystemInterner interner = new PlanetarySystemInterner();
+
     // File where planetary system data is stored
     private File file;
 
+    // Bumped on every add, remove, sort and load; with the change clock this tells whether the file is up to date
+    private int structureVersion = 0;
+    private volatile int savedStructureVersion = -1; // reset from the saving thread if a save fails
+    private int savedSystemClock;
+
+    // Writes the file off the caller's thread
+    private final BackgroundSaver saver;
+
     /**
      * Constructor to initialize the PlanetarySystemAPI with a file.
      *
@@ -30,6 +61,7 @@ public class PlanetarySystemAPI implements ISerializer {
      */
     public PlanetarySystemAPI(File file) {
         this.file = file;
+        this.saver = new BackgroundSaver(file.toPath());
     }
 
     //---------------------
@@ -46,6 +78,11 @@ public class PlanetarySystemAPI implements ISerializer {
         if (isValidPlanetSys(planetarySystem.getSystemName())) {
             return false; // System name already exists
         }
+        nameIndex.put(nameKey(planetarySystem.getSystemName()), planetarySystem);
+        planetarySystem.setRenameListener(renameListener);
+        interner.register(planetarySystem);
+        structureVersion++;
+        positions.put(planetarySystem, planetarySystemList.size());
         return planetarySystemList.add(planetarySystem);
     }
 
@@ -74,11 +111,24 @@ public class PlanetarySystemAPI implements ISerializer {
      * @return the planetary system with the specified name, or null if not found
      */
     public PlanetarySystem getPlanetarySystemByName(String pName) {
-        int index = retrievePlanetarySystemIndex(pName);
-        if (index != -1) {
-            return planetarySystemList.get(index);
+        if (pName == null) {
+            return null;
         }
-        return null; // Planetary system not found
+        return nameIndex.get(nameKey(pName)); // null if the planetary system is not found
+    }
+
+    /**
+     * Searches for planetary systems whose name starts with a prefix, ignoring case.
+     *
+     * @param prefix the start of the system names to search for
+     * @return the matching planetary systems ordered by name, or an empty list if none match
+     */
+    public List<PlanetarySystem> searchPlanetarySystemsByPrefix(String prefix) {
+        if (prefix == null) {
+            return new ArrayList<>();
+        }
+        String from = nameKey(prefix);
+        return new ArrayList<>(Utilities.withPrefix(nameIndex, from).values());
     }
 
     /**
@@ -87,15 +137,21 @@ public class PlanetarySystemAPI implements ISerializer {
      * @return a string representation of all planetary systems, or a message indicating there are none
      */
     public String listPlanetarySystems() {
-        String listPlanetarySystems = "";
-        for (PlanetarySystem planetarySystem : planetarySystemList) {
-            listPlanetarySystems += planetarySystemList.indexOf(planetarySystem) + ": " + planetarySystem + "\n";
-        }
-        if (listPlanetarySystems.equals("")) {
-            return "No Planetary Systems"; // No planetary systems in the list
-        } else {
-            return listPlanetarySystems;
+        return ReportWriter.asString(this::writePlanetarySystems);
+    }
+
+    /**
+     * Writes all planetary systems in the collection, one per line, to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writePlanetarySystems(Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out, true);
+        for (int i = 0; i < planetarySystemList.size(); i++) {
+            report.row(i, planetarySystemList.get(i).toString());
         }
+        report.ifEmpty("No Planetary Systems"); // No planetary systems in the list
     }
 
     /**
@@ -105,21 +161,29 @@ public class PlanetarySystemAPI implements ISerializer {
      * @return a string representation of matching planetary systems, or a message indicating none were found
      */
     public String listAllByPlanetarySystemName(String pName) {
-        if (!planetarySystemList.isEmpty()) {
-            String listPlanetarySystems = "";
-            for (PlanetarySystem planetarySystem : planetarySystemList) {
-                if (planetarySystem.getSystemName().equalsIgnoreCase(pName)) {
-                    listPlanetarySystems += planetarySystemList.indexOf(planetarySystem) + ": " + planetarySystem + "\n";
-                }
-            }
-            if (listPlanetarySystems.equals("")) {
-                return "No Planetary Systems of that name"; // No matching planetary systems
-            } else {
-                return listPlanetarySystems;
+        return ReportWriter.asString(out -> writeAllByPlanetarySystemName(pName, out));
+    }
+
+    /**
+     * Writes all planetary systems that match the given system name to the given output.
+     *
+     * @param pName the name of the planetary system to search for
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    public void writeAllByPlanetarySystemName(String pName, Appendable out) throws IOException {
+        if (planetarySystemList.isEmpty()) {
+            out.append("There are no Planetary Systems in the list."); // No planetary systems in the list
+            return;
+        }
+        ReportWriter report = new ReportWriter(out, true);
+        for (int i = 0; i < planetarySystemList.size(); i++) {
+            PlanetarySystem planetarySystem = planetarySystemList.get(i);
+            if (planetarySystem.getSystemName().equalsIgnoreCase(pName)) {
+                report.row(i, planetarySystem.toString());
             }
-        } else {
-            return "There are no Planetary Systems in the list."; // No planetary systems in the list
         }
+        report.ifEmpty("No Planetary Systems of that name"); // No matching planetary systems
     }
 
     //---------------------
@@ -153,8 +217,10 @@ public class PlanetarySystemAPI implements ISerializer {
      * @return true if the planetary system was removed, false if it was not in the list
      */
     public boolean removePlanetarySystem(PlanetarySystem planetarySystem) {
-        if (planetarySystemList.contains(planetarySystem)) {
-            return planetarySystemList.remove(planetarySystem);
+        int index = positionOf(planetarySystem);
+        if (index != -1) {
+            removeAt(index);
+            return true;
         }
         return false; // Planetary system not found
     }
@@ -168,7 +234,7 @@ public class PlanetarySystemAPI implements ISerializer {
     public PlanetarySystem removePlanetarySystemByName(String planetarySystemName) {
         int index = retrievePlanetarySystemIndex(planetarySystemName);
         if (index != -1) {
-            return planetarySystemList.remove(index);
+            return removeAt(index);
         }
         return null; // Planetary system not found
     }
@@ -184,12 +250,7 @@ public class PlanetarySystemAPI implements ISerializer {
      * @return true if the planetary system name is valid (does not exist), false otherwise
      */
     public boolean isValidPlanetSys(String planSysName) {
-        for (PlanetarySystem planetarySystem : planetarySystemList) {
-            if (planetarySystem.getSystemName().equalsIgnoreCase(planSysName)) {
-                return true; // Planetary system name exists
-            }
-        }
-        return false; // Planetary system name does not exist
+        return getPlanetarySystemByName(planSysName) != null;
     }
 
     /**
@@ -199,12 +260,142 @@ public class PlanetarySystemAPI implements ISerializer {
      * @return the index of the planetary system, or -1 if not found
      */
     public int retrievePlanetarySystemIndex(String planetarySystemName) {
+        PlanetarySystem planetarySystem = getPlanetarySystemByName(planetarySystemName);
+        if (planetarySystem != null) {
+            return positions.get(planetarySystem);
+        }
+        return -1; // Planetary system not found
+    }
+
+    /**
+     * Finds the position of a planetary system in the list, or of the one with the same names.
+     * The system itself, or the one found under its name, is looked up in the position index.
+     *
+     * @param planetarySystem the planetary system to look for
+     * @return the index of the planetary system, or -1 if there is none with the same names
+     */
+    private int positionOf(PlanetarySystem planetarySystem) {
+        if (planetarySystem == null) {
+            return -1;
+        }
+        Integer index = positions.get(planetarySystem);
+        if (index != null) {
+            return index;
+        }
+        PlanetarySystem named = getPlanetarySystemByName(planetarySystem.getSystemName());
+        if (planetarySystem.equals(named)) {
+            return positions.get(named);
+        }
+        // only a name held by several systems, e.g. in a loaded file, can hide an equal system from the name index
+        return hasSharedNames ? planetarySystemList.indexOf(planetarySystem) : -1;
+    }
+
+    //---------------------
+    // Name Index
+    //---------------------
+
+    /**
+     * Re-keys a planetary system in the name index after it has been renamed. Systems this API does not hold
+     * are ignored, and the index is otherwise left as it is.
+     *
+     * @param planetarySystem the renamed planetary system
+     * @param previousName the name it was indexed under
+     */
+    private void systemRenamed(PlanetarySystem planetarySystem, String previousName) {
+        Integer position = positions.get(planetarySystem);
+        if (position == null) {
+            return; // no longer held by this API
+        }
+        String previousKey = nameKey(previousName);
+        String key = nameKey(planetarySystem.getSystemName());
+        if (key.equals(previousKey)) {
+            return;
+        }
+        if (nameIndex.get(previousKey) == planetarySystem) {
+            unindexName(previousKey);
+        }
+        PlanetarySystem named = nameIndex.get(key);
+        if (named == null || position < positions.get(named)) {
+            nameIndex.put(key, planetarySystem); // the first system in the list keeps the name
+        }
+        if (named != null) {
+            hasSharedNames = true;
+        }
+    }
+
+    /**
+     * Removes a name from the name index, handing it to the first other system with that name, if any.
+     *
+     * @param key the lower case name
+     */
+    private void unindexName(String key) {
+        nameIndex.remove(key);
+        if (!hasSharedNames) {
+            return; // no other system can hold the name
+        }
         for (PlanetarySystem planetarySystem : planetarySystemList) {
-            if (planetarySystem.getSystemName().equalsIgnoreCase(planetarySystemName)) {
-                return planetarySystemList.indexOf(planetarySystem);
+            if (nameKey(planetarySystem.getSystemName()).equals(key)) {
+                nameIndex.put(key, planetarySystem); // a duplicate takes over the name
+                return;
             }
         }
-        return -1; // Planetary system not found
+    }
+
+    /**
+     * Rebuilds the name index from the list, keeping the first system for each name.
+     */
+    private void rebuildNameIndex() {
+        nameIndex = new TreeMap<>();
+        hasSharedNames = false;
+        for (PlanetarySystem planetarySystem : planetarySystemList) {
+            if (nameIndex.putIfAbsent(nameKey(planetarySystem.getSystemName()), planetarySystem) != null) {
+                hasSharedNames = true;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the position index from the list.
+     */
+    private void rebuildPositions() {
+        positions = new IdentityHashMap<>(planetarySystemList.size() * 2);
+        for (int i = 0; i < planetarySystemList.size(); i++) {
+            positions.put(planetarySystemList.get(i), i);
+        }
+    }
+
+    /**
+     * Removes the planetary system at an index and updates the name and position indexes.
+     * The systems after it move down one position, so a remove stays O(n), like the list removal itself.
+     *
+     * @param index a valid index in the list
+     * @return the removed planetary system
+     */
+    private PlanetarySystem removeAt(int index) {
+        PlanetarySystem removed = planetarySystemList.remove(index);
+        structureVersion++;
+        positions.remove(removed);
+        if (removed.getRenameListener() == renameListener) {
+            removed.setRenameListener(null);
+        }
+        for (int i = index; i < planetarySystemList.size(); i++) {
+            positions.put(planetarySystemList.get(i), i);
+        }
+        String key = nameKey(removed.getSystemName());
+        if (nameIndex.get(key) == removed) {
+            unindexName(key);
+        }
+        return removed;
+    }
+
+    /**
+     * Normalises a system name for the case-insensitive name index.
+     *
+     * @param name the name to normalise
+     * @return the lower case name
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
     }
 
     //---------------------
@@ -220,6 +411,15 @@ public class PlanetarySystemAPI implements ISerializer {
         return planetarySystemList;
     }
 
+    /**
+     * Gets the interner holding the canonical planetary systems. Registered systems are always canonical.
+     *
+     * @return the planetary system interner
+     */
+    public PlanetarySystemInterner getInterner() {
+        return interner;
+    }
+
     //---------------------
     // Persistence Methods
     //---------------------
@@ -235,15 +435,65 @@ public class PlanetarySystemAPI implements ISerializer {
     }
 
     /**
-     * Saves the list of planetary systems to the specified file.
+     * Checks whether the planetary systems have changed since they were last saved to or loaded from the file:
+     * a system was added, removed or reordered, or renamed through its setters.
+     *
+     * @return true if saving would change the file
+     */
+    public boolean hasUnsavedChanges() {
+        if (savedStructureVersion != structureVersion) {
+            return true;
+        }
+        if (PlanetarySystem.getChangeClock() == savedSystemClock) {
+            return false; // no planetary system anywhere has changed
+        }
+        for (PlanetarySystem planetarySystem : planetarySystemList) {
+            if (planetarySystem.isChangedSince(savedSystemClock)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Saves the list of planetary systems to the specified file, and waits until they are written.
+     * Nothing is written if the file already holds the current planetary systems.
      *
      * @throws Exception if an error occurs during serialization
      */
     public void save() throws Exception {
-        var xstream = new XStream(new DomDriver());
-        ObjectOutputStream os = xstream.createObjectOutputStream(new FileWriter(file));
-        os.writeObject(planetarySystemList);
-        os.close();
+        BackgroundSaver.await(saveAsync());
+    }
+
+    /**
+     * Saves the list of planetary systems to the specified file in the background, see {@link BackgroundSaver}.
+     * The systems are copied before this returns, so they can keep changing while the copies are written.
+     * Nothing is written if the file already holds the current planetary systems.
+     *
+     * @return completed once the planetary systems as they are now are on disk, or exceptionally if writing failed
+     */
+    public CompletableFuture<Void> saveAsync() {
+        if (file.exists() && !hasUnsavedChanges()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int systemClock = PlanetarySystem.getChangeClock(); // taken first, so a change made while writing is saved next time
+        List<PlanetarySystem> copies = new ArrayList<>(planetarySystemList.size());
+        for (PlanetarySystem planetarySystem : planetarySystemList) {
+            copies.add(new PlanetarySystem(planetarySystem.getSystemName(), planetarySystem.getOrbittingStarName()));
+        }
+        savedStructureVersion = structureVersion; // counts as saved while it is written, so repeated saves are skipped
+        savedSystemClock = systemClock;
+        return saver.save(out -> {
+            var xstream = new XStream(new DomDriver());
+            // Default charset, as load() reads the file with a FileReader
+            ObjectOutputStream os = xstream.createObjectOutputStream(new OutputStreamWriter(out));
+            os.writeObject(copies);
+            os.close();
+        }).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                savedStructureVersion = -1; // so the next save tries again
+            }
+        });
     }
 
     //---------------------
@@ -280,6 +530,8 @@ public class PlanetarySystemAPI implements ISerializer {
             // Swap the elements
             swapPlanetarySystems(planetarySystemList, i, minIndex);
         }
+        structureVersion++;
+        rebuildPositions();
     }
 
     /**
@@ -299,6 +551,8 @@ public class PlanetarySystemAPI implements ISerializer {
             // Swap the elements
             swapPlanetarySystems(planetarySystemList, i, minIndex);
         }
+        structureVersion++;
+        rebuildPositions();
     }
 
     /**
@@ -307,11 +561,7 @@ public class PlanetarySystemAPI implements ISerializer {
      * @return a string representation of all sorted planetary systems, or a message indicating none exist
      */
     public String listSortedPlanetarySystems() {
-        String listPlanetarySystems = "";
-        for (PlanetarySystem planetarySystem : planetarySystemList) {
-            listPlanetarySystems += planetarySystemList.indexOf(planetarySystem) + ": " + planetarySystem + "\n";
-        }
-        return listPlanetarySystems.isEmpty() ? "No Planetary Systems" : listPlanetarySystems;
+        return listPlanetarySystems();
     }
 
     /**
@@ -329,8 +579,32 @@ public class PlanetarySystemAPI implements ISerializer {
         xstream.allowTypes(classes);
 
         // Perform the actual deserialization from the XML file
+        int systemClock = PlanetarySystem.getChangeClock();
         ObjectInputStream in = xstream.createObjectInputStream(new FileReader(file));
-        planetarySystemList = (List<PlanetarySystem>) in.readObject();
+        replacePlanetarySystems((List<PlanetarySystem>) in.readObject());
         in.close();
+        savedStructureVersion = structureVersion;
+        savedSystemClock = systemClock;
+    }
+
+    /**
+     * Replaces every planetary system with the given ones, e.g. after reading them from storage.
+     *
+     * @param planetarySystems the new contents of the collection
+     */
+    void replacePlanetarySystems(List<PlanetarySystem> planetarySystems) {
+        for (PlanetarySystem planetarySystem : planetarySystemList) {
+            if (planetarySystem.getRenameListener() == renameListener) {
+                planetarySystem.setRenameListener(null);
+            }
+        }
+        planetarySystemList = planetarySystems;
+        structureVersion++;
+        rebuildNameIndex();
+        rebuildPositions();
+        for (PlanetarySystem planetarySystem : planetarySystems) {
+            planetarySystem.setRenameListener(renameListener);
+            interner.register(planetarySystem);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,734 @@
+package controllers;
+
+import models.*;
+import utils.PlanetarySystemInterner;
+import utils.ReportWriter;
+import utils.TopKUtility;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A {@link CelestialSystemAPI} whose celestial bodies are kept in a {@link CelestialStore} rather than in the heap
+ * list shared by the other instances. Created through the factories on CelestialSystemAPI, e.g.
+ * {@link CelestialSystemAPI#openMapped(File)}, {@link CelestialSystemAPI#openLazy(File, int)} or
+ * {@link CelestialSystemAPI#offHeap(File)}.
+ * <p>
+ * Every instance method answers from the store, in the same report formats as the heap catalogue. Bodies are
+ * created from their rows as they are needed, and the scans read the type, mass, diameter and planetary system
+ * of a row without creating its body where the store allows it. Changes go to the store and are saved to the
+ * file as XML, like the heap catalogue. If the store is read-only, adds and updates return false, deletes
+ * return null, sorting throws an {@link UnsupportedOperationException}, and saving and loading do nothing.
+ * The static searches of CelestialSystemAPI read the heap catalogue only.
+ */
+class StoredCelestialSystemAPI extends CelestialSystemAPI {
+
+    private final CelestialStore store;
+    private volatile boolean unsaved = false; // reset from the saving thread if a save fails
+
+    /**
+     * Creates an API over a store, leaving the heap catalogue as it is.
+     *
+     * @param file the file the store was opened from
+     * @param store the celestial bodies
+     */
+    StoredCelestialSystemAPI(File file, CelestialStore store) {
+        super(file, false);
+        this.store = store;
+    }
+
+    // ================================
+    // CRUD Methods
+    // ================================
+
+    /**
+     * Adds a celestial object to the store.
+     *
+     * @param body the celestial object to add
+     * @return true if added, false if the store refused it or is read-only
+     */
+    @Override
+    public boolean addCelestialObject(CelestialBody body) {
+        return !store.isReadOnly() && changed(store.addCelestialObject(body));
+    }
+
+    /**
+     * Deletes a celestial object by index.
+     *
+     * @param index the index to remove
+     * @return the removed celestial object, or null if the index is invalid or the store is read-only
+     */
+    @Override
+    public CelestialBody deleteCelestialIndex(int index) {
+        if (store.isReadOnly() || !isValidIndex(index)) {
+            return null;
+        }
+        return deleteCelestialId(store.getCelestialBodyByIndex(index).getId());
+    }
+
+    /**
+     * Deletes a celestial object by its ID.
+     *
+     * @param id the ID of the celestial body to remove
+     * @return the removed celestial object, or null if not found or the store is read-only
+     */
+    @Override
+    public CelestialBody deleteCelestialId(int id) {
+        if (store.isReadOnly()) {
+            return null;
+        }
+        CelestialBody removed = store.deleteCelestialId(id);
+        changed(removed != null);
+        return removed;
+    }
+
+    /**
+     * Deletes several celestial objects. Bodies handed out by the store are copies, so they are matched by id.
+     *
+     * @param bodies the celestial objects to remove
+     * @return the number of celestial objects removed, 0 if the store is read-only
+     */
+    @Override
+    public int deleteCelestialBodies(Collection<? extends CelestialBody> bodies) {
+        int removed = 0;
+        for (CelestialBody body : bodies) {
+            if (deleteCelestialId(body.getId()) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Records a change to the store, so the next save writes it.
+     *
+     * @param isChanged whether the store was changed
+     * @return isChanged
+     */
+    private boolean changed(boolean isChanged) {
+        if (isChanged) {
+            unsaved = true;
+        }
+        return isChanged;
+    }
+
+    /**
+     * Creates the celestial body at an index from the store.
+     *
+     * @param index the index of the celestial body
+     * @return the celestial body at the specified index, or null if invalid index
+     */
+    @Override
+    public CelestialBody getCelestialBodyByIndex(int index) {
+        return isValidIndex(index) ? store.getCelestialBodyByIndex(index) : null;
+    }
+
+    /**
+     * Creates the celestial body with an id from the store.
+     *
+     * @param id the ID of the celestial body
+     * @return the first celestial body with that id, or null if not found
+     */
+    @Override
+    public CelestialBody getCelestialBodyById(int id) {
+        int index = store.indexOfId(id);
+        return index == -1 ? null : store.getCelestialBodyByIndex(index);
+    }
+
+    /**
+     * Creates every celestial body of the store. Changing the list does not change the store.
+     *
+     * @return a new list of the celestial bodies, in store order
+     */
+    @Override
+    public ArrayList<CelestialBody> getCelestialList() {
+        int size = store.numberOfCelestialBodies();
+        ArrayList<CelestialBody> bodies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            bodies.add(store.getCelestialBodyByIndex(i));
+        }
+        return bodies;
+    }
+
+    /**
+     * Does nothing: bodies of one planetary system already share the store's instance of it.
+     *
+     * @param interner the planetary system interner, ignored
+     */
+    @Override
+    public void setPlanetarySystemInterner(PlanetarySystemInterner interner) {
+    }
+
+    // ================================
+    // Reporting Methods
+    // ================================
+
+    /**
+     * Writes all celestial bodies in the store, one per line, to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllCelestialBodies(Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            report.row(i, store.getCelestialBodyByIndex(i).displayInfo());
+        }
+        report.ifEmpty("No Celestial Bodies");
+    }
+
+    /**
+     * Writes all gas planets in the store to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllGasPlanets(Appendable out) throws IOException {
+        writeByType(CelestialRecordCodec.GAS_PLANET, "Gas Planets", out);
+    }
+
+    /**
+     * Writes all ice planets in the store to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllIcePlanets(Appendable out) throws IOException {
+        writeByType(CelestialRecordCodec.ICE_PLANET, "Ice Planets", out);
+    }
+
+    /**
+     * Writes all stars in the store to the given output.
+     *
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllStars(Appendable out) throws IOException {
+        writeByType(CelestialRecordCodec.STAR, "Stars", out);
+    }
+
+    /**
+     * Writes the celestial bodies of one type to the given output. Only the rows of that type are created.
+     *
+     * @param typeTag the type tag to filter by
+     * @param displayName the name to display in the report
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    private void writeByType(byte typeTag, String displayName, Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (store.getTypeTag(i) == typeTag) {
+                report.row(i, store.getCelestialBodyByIndex(i).displayInfo());
+            }
+        }
+        report.ifEmpty("No " + displayName);
+    }
+
+    /**
+     * Writes all stars with a specific spectral type to the given output. Only the stars are created.
+     *
+     * @param spectralType the spectral type of the stars
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllStarsForSpectralType(char spectralType, Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (store.getTypeTag(i) == CelestialRecordCodec.STAR
+                    && store.getCelestialBodyByIndex(i) instanceof Star star && star.getSpectralType() == spectralType) {
+                report.row(star.displayInfo());
+            }
+        }
+        report.ifEmpty("No stars for spectral type " + spectralType);
+    }
+
+    /**
+     * Writes all celestial objects heavier than a specified mass to the given output.
+     * Only the matching rows are created.
+     *
+     * @param mass the mass threshold
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllCelestialObjectsHeavierThan(double mass, Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (store.getMass(i) > mass) {
+                report.row(store.getCelestialBodyByIndex(i).displayInfo());
+            }
+        }
+        report.ifEmpty("No celestial body matching the criteria");
+    }
+
+    /**
+     * Writes all celestial objects no larger than a specified diameter to the given output.
+     * Only the matching rows are created.
+     *
+     * @param diameter the diameter threshold
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllCelestialObjectsSmallerThan(double diameter, Appendable out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (store.getDiameter(i) <= diameter) {
+                report.row(store.getCelestialBodyByIndex(i).displayInfo());
+            }
+        }
+        report.ifEmpty("No celestial body matching the criteria");
+    }
+
+    /**
+     * Writes all celestial objects belonging to a specific planetary system to the given output.
+     * Only the rows of that system are created.
+     *
+     * @param system the planetary system to filter by
+     * @param out where the report is written
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    public void writeAllCelestialObjectsForGivenPlanetary(PlanetarySystem system, Appendable out) throws IOException {
+        if (system == null) {
+            out.append("Invalid Planetary System");
+            return;
+        }
+        ReportWriter report = new ReportWriter(out);
+        for (CelestialBody body : getCelestialBodiesInSystem(system)) {
+            report.row(body.displayInfo());
+        }
+        report.ifEmpty("No celestial body in the " + system);
+    }
+
+    /**
+     * Creates the celestial bodies belonging to a specific planetary system.
+     *
+     * @param system the planetary system to filter by
+     * @return a new list of the matching celestial bodies, in store order
+     */
+    @Override
+    List<CelestialBody> getCelestialBodiesInSystem(PlanetarySystem system) {
+        List<CelestialBody> bodies = new ArrayList<>();
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (system.equals(store.getPlanetarySystem(i))) {
+                bodies.add(store.getCelestialBodyByIndex(i));
+            }
+        }
+        return bodies;
+    }
+
+    // Count methods
+
+    /**
+     * Returns the number of celestial bodies in the store.
+     *
+     * @return the number of celestial bodies
+     */
+    @Override
+    public int numberOfCelestialBodies() {
+        return store.numberOfCelestialBodies();
+    }
+
+    /**
+     * Returns the number of stars in the store.
+     *
+     * @return the number of stars
+     */
+    @Override
+    public int numberOfStars() {
+        return store.numberOfType(CelestialRecordCodec.STAR);
+    }
+
+    /**
+     * Returns the number of ice planets in the store.
+     *
+     * @return the number of ice planets
+     */
+    @Override
+    public int numberOfIcePlanets() {
+        return store.numberOfType(CelestialRecordCodec.ICE_PLANET);
+    }
+
+    /**
+     * Returns the number of gas planets in the store.
+     *
+     * @return the number of gas planets
+     */
+    @Override
+    public int numberOfGasPlanets() {
+        return store.numberOfType(CelestialRecordCodec.GAS_PLANET);
+    }
+
+    /**
+     * Returns the number of dwarf planets in the store.
+     *
+     * @return the number of dwarf planets
+     */
+    @Override
+    public int numberOfDwarfPlanets() {
+        return store.numberOfType(CelestialRecordCodec.DWARF_PLANET);
+    }
+
+    /**
+     * Returns the number of celestial bodies belonging to a specific planetary system, without creating them.
+     *
+     * @param system the planetary system to count celestial bodies for
+     * @return the number of celestial bodies in the specified planetary system
+     */
+    @Override
+    public int numberOfCelestialBodyByChosenPlanetarySystem(PlanetarySystem system) {
+        if (system == null) return 0;
+
+        int count = 0;
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (system.equals(store.getPlanetarySystem(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ================================
+    // Update Methods
+    // ================================
+
+    /**
+     * Replaces a celestial body in the store with an updated object of the same type. The stored ID is kept.
+     *
+     * @param id the ID of the celestial body to update
+     * @param updatedDetails the updated details of the celestial body
+     * @return true if the celestial body was updated, false if not found, of another type, or the store is read-only
+     */
+    @Override
+    public boolean updateCelestial(int id, CelestialBody updatedDetails) {
+        return !store.isReadOnly() && changed(store.updateCelestial(id, updatedDetails));
+    }
+
+    // ================================
+    // Validation Methods
+    // ================================
+
+    /**
+     * Checks if a celestial object with a given ID exists in the store.
+     *
+     * @param id the ID of the celestial body
+     * @return the index of the celestial body if found, otherwise -1
+     */
+    @Override
+    public int isValidId(int id) {
+        return store.indexOfId(id);
+    }
+
+    /**
+     * Validates if an index is within the bounds of the store.
+     *
+     * @param index the index to validate
+     * @return true if the index is valid, otherwise false
+     */
+    @Override
+    public boolean isValidIndex(int index) {
+        return index >= 0 && index < store.numberOfCelestialBodies();
+    }
+
+    // ================================
+    // Sorting Methods
+    // ================================
+
+    /**
+     * Sorts the store with a comparator. The sort is stable, as it is for the heap catalogue.
+     *
+     * @param comparator the ordering to apply
+     * @throws UnsupportedOperationException if the store is read-only
+     */
+    @Override
+    public void sortBy(Comparator<? super CelestialBody> comparator) {
+        requireWritable();
+        List<CelestialBody> bodies = getCelestialList();
+        List<Integer> rows = rows();
+        rows.sort(Comparator.comparing(bodies::get, comparator));
+        reorder(rows);
+    }
+
+    /**
+     * Puts the store in a random order, the same order a heap catalogue of the same size gets from the same random.
+     *
+     * @param random the source of randomness for the new order
+     * @throws UnsupportedOperationException if the store is read-only
+     */
+    @Override
+    public void shuffle(Random random) {
+        requireWritable();
+        List<Integer> rows = rows();
+        Collections.shuffle(rows, random);
+        reorder(rows);
+    }
+
+    private void requireWritable() {
+        if (store.isReadOnly()) {
+            throw new UnsupportedOperationException("A read-only catalogue cannot be reordered");
+        }
+    }
+
+    // The current row indexes, in order
+    private List<Integer> rows() {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            rows.add(i);
+        }
+        return rows;
+    }
+
+    private void reorder(List<Integer> rows) {
+        store.reorder(rows.stream().mapToInt(Integer::intValue).toArray());
+        changed(true);
+    }
+
+    // ================================
+    // Other Methods
+    // ================================
+
+    /**
+     * Returns the heaviest celestial bodies, heaviest first. Masses are read from the store,
+     * so only the k selected rows are created.
+     *
+     * @param k the maximum number of celestial bodies to return
+     * @return a list of at most k celestial bodies
+     */
+    @Override
+    public List<CelestialBody> topHighestMass(int k) {
+        TopKUtility<Integer> selector = new TopKUtility<>(k);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            selector.offer(i, store.getMass(i));
+        }
+        List<CelestialBody> result = new ArrayList<>();
+        for (int index : selector.toList()) {
+            result.add(store.getCelestialBodyByIndex(index));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the gas planets with the highest radiation levels, highest first. Radiation levels are read
+     * from the store, so only the k selected rows are created.
+     *
+     * @param k the maximum number of gas planets to return
+     * @return a list of at most k gas planets
+     */
+    @Override
+    public List<GasPlanet> topHighestRadiationGasPlanets(int k) {
+        return topHighestOfType(GasPlanet.class, CelestialRecordCodec.GAS_PLANET, k, store::getRadiationLevel);
+    }
+
+    /**
+     * Returns the most luminous stars, most luminous first. Luminosities are read from the store,
+     * so only the k selected rows are created.
+     *
+     * @param k the maximum number of stars to return
+     * @return a list of at most k stars
+     */
+    @Override
+    public List<Star> topHighestLuminosityStars(int k) {
+        return topHighestOfType(Star.class, CelestialRecordCodec.STAR, k, store::getLuminosity);
+    }
+
+    /**
+     * Runs a top-k selection over one column of the rows with a type tag, then creates the selected rows.
+     *
+     * @param type the type the rows with that tag hold
+     * @param typeTag the type tag of the rows to consider
+     * @param k the maximum number of celestial bodies to return
+     * @param column reads the value to rank by from a row
+     * @return a new list of at most k celestial bodies, highest first
+     */
+    private <T extends CelestialBody> List<T> topHighestOfType(Class<T> type, byte typeTag, int k, IntToDoubleFunction column) {
+        TopKUtility<Integer> selector = new TopKUtility<>(k);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (store.getTypeTag(i) == typeTag) {
+                selector.offer(i, column.applyAsDouble(i));
+            }
+        }
+        List<T> result = new ArrayList<>();
+        for (int index : selector.toList()) {
+            result.add(type.cast(store.getCelestialBodyByIndex(index)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the k celestial bodies of a given type with the highest value for a key, highest first.
+     * Rows whose type tag rules the type out are skipped without creating their bodies.
+     *
+     * @param type the type of celestial body to consider
+     * @param k the maximum number of celestial bodies to return
+     * @param key the value to rank by
+     * @return a new list of at most k celestial bodies
+     */
+    @Override
+    public <T extends CelestialBody> List<T> topHighest(Class<T> type, int k, ToDoubleFunction<? super T> key) {
+        TopKUtility<T> selector = new TopKUtility<>(k);
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            if (mayBe(type, store.getTypeTag(i))) {
+                CelestialBody body = store.getCelestialBodyByIndex(i);
+                if (type.isInstance(body)) {
+                    T candidate = type.cast(body);
+                    selector.offer(candidate, key.applyAsDouble(candidate));
+                }
+            }
+        }
+        return selector.toList();
+    }
+
+    /**
+     * Checks whether a row with a type tag can hold a body of a type.
+     *
+     * @param type the type asked for
+     * @param typeTag the type tag of the row
+     * @return false only if no body with that tag can be of that type
+     */
+    private static boolean mayBe(Class<?> type, byte typeTag) {
+        Class<?> tagged = switch (typeTag) {
+            case CelestialRecordCodec.STAR -> Star.class;
+            case CelestialRecordCodec.GAS_PLANET -> GasPlanet.class;
+            case CelestialRecordCodec.ICE_PLANET -> IcePlanet.class;
+            case CelestialRecordCodec.DWARF_PLANET -> DwarfPlanet.class;
+            default -> CelestialBody.class; // a type the codec does not know is checked on the body itself
+        };
+        return type.isAssignableFrom(tagged) || tagged.isAssignableFrom(type);
+    }
+
+    /**
+     * Gets a struct-of-arrays copy of the store for aggregate scans, made on every request.
+     *
+     * @return the columnar catalogue
+     */
+    @Override
+    public ColumnarCatalogue getColumnarCatalogue() {
+        return ColumnarCatalogue.of(getCelestialList());
+    }
+
+    /**
+     * Gets the celestial bodies whose mass lies between two bounds (both inclusive). Only the matching rows are created.
+     *
+     * @param min the lowest mass
+     * @param max the highest mass
+     * @return the matching celestial bodies, in store order
+     */
+    @Override
+    public List<CelestialBody> getCelestialBodiesWithMassBetween(double min, double max) {
+        List<CelestialBody> matches = new ArrayList<>();
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            double mass = store.getMass(i);
+            if (mass >= min && mass <= max) {
+                matches.add(store.getCelestialBodyByIndex(i));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the celestial bodies whose diameter lies between two bounds (both inclusive). Only the matching rows
+     * are created.
+     *
+     * @param min the lowest diameter
+     * @param max the highest diameter
+     * @return the matching celestial bodies, in store order
+     */
+    @Override
+    public List<CelestialBody> getCelestialBodiesWithDiameterBetween(double min, double max) {
+        List<CelestialBody> matches = new ArrayList<>();
+        for (int i = 0; i < store.numberOfCelestialBodies(); i++) {
+            double diameter = store.getDiameter(i);
+            if (diameter >= min && diameter <= max) {
+                matches.add(store.getCelestialBodyByIndex(i));
+            }
+        }
+        return matches;
+    }
+
+    // ================================
+    // Persistence Methods
+    // ================================
+
+    /**
+     * Closes the store, releasing the file it holds open, if any. Bodies already handed out stay usable.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * Checks whether the store has changed since it was last saved or loaded. Changes made to bodies handed out
+     * by the store do not count, as they do not reach it.
+     *
+     * @return true if saving would change the file, always false for a read-only store
+     */
+    @Override
+    public boolean hasUnsavedChanges() {
+        return unsaved;
+    }
+
+    /**
+     * Saves the celestial bodies of the store to the file as XML in the background, see {@link BackgroundSaver}.
+     * Nothing is written if the store is read-only or the file already holds it.
+     *
+     * @return completed once the store as it is now is on disk, or exceptionally if writing it failed
+     */
+    @Override
+    public CompletableFuture<Void> saveAsync() {
+        if (store.isReadOnly() || (getFile().exists() && !unsaved)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CelestialBody> bodies = getCelestialList();
+        unsaved = false; // counts as saved while it is written, so repeated saves are skipped
+        return saveBodies(bodies).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                unsaved = true; // so the next save tries again
+            }
+        });
+    }
+
+    /**
+     * Replaces the bodies of the store with those in the XML file. The store is only changed once the whole
+     * file has been read successfully. Does nothing for a read-only store, which was read when it was opened.
+     */
+    @Override
+    public void load() {
+        if (store.isReadOnly()) {
+            return;
+        }
+        if (getFile().exists()) {
+            try {
+                ArrayList<CelestialBody> loaded = readBodies();
+                store.clear();
+                for (CelestialBody body : loaded) {
+                    CelestialBody.reserveIdsThrough(body.getId());
+                    store.addCelestialObject(body);
+                }
+                unsaved = false;
+            } catch (Exception e) {
+                System.err.println("Error loading celestial bodies: " + e.getMessage());
+            }
+        } else {
+            System.out.println("No " + getFile().getName() + " file found. Starting with empty list.");
+        }
+    }
+}
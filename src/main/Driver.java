@@ -1,6 +1,12 @@
 package main;
 
+import controllers.BinarySnapshot;
+import controllers.CelestialJournal;
 import controllers.CelestialSystemAPI;
+import controllers.LazyCatalogue;
+import controllers.LinkedCatalogue;
+import controllers.MappedCatalogue;
+import controllers.ParallelLoader;
 
 import controllers.PlanetarySystemAPI;
 
@@ -9,7 +15,9 @@ import utils.ScannerInput;
 import utils.Utilities;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The main driver class for the Space Place application.
@@ -20,16 +28,28 @@ public class Driver {
 
     private CelestialSystemAPI celestialAPI;
     private PlanetarySystemAPI planetarySystemAPI;
+    private BinarySnapshot snapshot; // fast startup copy of both APIs
+    private CelestialJournal journal; // celestial body changes made since the snapshot was saved
+    private LinkedCatalogue catalogue; // keeps bodies linked to their planetary systems
+    private static final int LAZY_CACHE_CAPACITY = 1000; // bodies a lazy report session keeps once read
 
 
     /**
      * The main method of the application. Creates an instance of the Driver and starts the application.
      *
-     * @param args Command line arguments (not used).
+     * @param args Command line arguments: none for the full application, {@code --mapped <file>} to only
+     *             run the celestial reports over a read-only mapped copy of the catalogue (see {@link #startReports}),
+     *             or {@code --lazy <file>} to run them over a lazily read copy (see {@link #startLazyReports}).
      */
     public static void main(String[] args) {
         try {
-            new Driver().start();  // Instance of Driver called to run the logic
+            if (args.length == 2 && args[0].equals("--mapped")) {
+                new Driver().startReports(new File(args[1]));
+            } else if (args.length == 2 && args[0].equals("--lazy")) {
+                new Driver().startLazyReports(new File(args[1]));
+            } else {
+                new Driver().start();  // Instance of Driver called to run the logic
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -39,13 +59,62 @@ public class Driver {
      * Starts the Space Place application. Initializes the APIs, loads data, and runs the main menu.
      */
     public void start() {
-        celestialAPI = new CelestialSystemAPI(new File("celestialSystems.xml"));
+        celestialAPI = new CelestialSystemAPI(new File("celestialBody.xml"));
         planetarySystemAPI = new PlanetarySystemAPI(new File("planetarySystems.xml"));
+        snapshot = new BinarySnapshot(new File("spacePlace.bin"), planetarySystemAPI, celestialAPI);
+        journal = new CelestialJournal(new File("spacePlace.journal"), snapshot, celestialAPI);
+        catalogue = new LinkedCatalogue(planetarySystemAPI, celestialAPI); // bodies share the registered systems
 
         loadAllData();  // Load all data once the serializers are set up
         runMainMenu();
     }
 
+    /**
+     * Runs only the celestial reports, over a read-only mapped catalogue (see {@link CelestialSystemAPI#openMapped}).
+     * The mapped file is written from celestialBody.xml when it is missing or older than the XML, so later report
+     * sessions open straight from the mapped file without loading the catalogue onto the heap.
+     *
+     * @param mappedFile the mapped catalogue file
+     * @throws IOException if the mapped file cannot be written or opened
+     */
+    public void startReports(File mappedFile) throws IOException {
+        if (isOlderThanCelestialXml(mappedFile)) {
+            MappedCatalogue.write(mappedFile, loadCelestialXml().getCelestialList());
+        }
+        try (CelestialSystemAPI reports = CelestialSystemAPI.openMapped(mappedFile)) {
+            celestialAPI = reports;
+            runCelestialReportsMenu();
+        }
+    }
+
+    /**
+     * Runs only the celestial reports, over a read-only lazy catalogue (see {@link CelestialSystemAPI#openLazy}).
+     * The lazy file is written from celestialBody.xml when it is missing or older than the XML. A session then
+     * only reads the bodies its reports show, keeping up to {@value #LAZY_CACHE_CAPACITY} of them.
+     *
+     * @param lazyFile the lazy catalogue file
+     * @throws IOException if the lazy file cannot be written, opened or closed
+     */
+    public void startLazyReports(File lazyFile) throws IOException {
+        if (isOlderThanCelestialXml(lazyFile)) {
+            LazyCatalogue.write(lazyFile, loadCelestialXml().getCelestialList());
+        }
+        try (CelestialSystemAPI reports = CelestialSystemAPI.openLazy(lazyFile, LAZY_CACHE_CAPACITY)) {
+            celestialAPI = reports; // the file is closed when the user leaves the reports
+            runCelestialReportsMenu();
+        }
+    }
+
+    private static boolean isOlderThanCelestialXml(File copy) {
+        return !copy.exists() || copy.lastModified() < new File("celestialBody.xml").lastModified();
+    }
+
+    private static CelestialSystemAPI loadCelestialXml() {
+        CelestialSystemAPI source = new CelestialSystemAPI(new File("celestialBody.xml"));
+        source.load();
+        return source;
+    }
+
 
     /**
      * Displays the main menu options to the user.
@@ -209,7 +278,7 @@ public class Driver {
      * Exits the application after saving all data.
      */
     private void exitApp() {
-        saveAllData();
+        saveAllData().join(); // the background saves would be lost on exit
         System.out.println("Exiting....");
         System.exit(0);
     }
@@ -264,6 +333,7 @@ public class Driver {
         String orbittingStar = ScannerInput.readNextLine("Please enter the name of the start that it orbits: ");
 
         if (planetarySystemAPI.addPLanetSystem(new PlanetarySystem(planetarysystemsName, orbittingStar))) {
+            checkpoint();
             System.out.println("Add successful");
         } else {
             System.out.println("Add not successful");
@@ -275,8 +345,10 @@ public class Driver {
      */
     private void deletePlanetary() {
         String planetarysystemsName = ScannerInput.readNextLine("Please enter the planetary systems name: ");
-        if (planetarySystemAPI.removePlanetarySystemByName(planetarysystemsName) != null) {
-            System.out.println("Delete successful");
+        int removedBodies = catalogue.removePlanetarySystemByName(planetarysystemsName);
+        if (removedBodies != -1) {
+            checkpoint();
+            System.out.println("Delete successful, " + removedBodies + " celestial object(s) removed with it");
         } else {
             System.out.println("Delete not successful");
         }
@@ -291,9 +363,10 @@ public class Driver {
             String name = pSys.getSystemName();
 
             String orbittingStar = ScannerInput.readNextLine("Please enter the name of the star that it orbits: ");
-            if (planetarySystemAPI.updatePlanetarySystem(name, orbittingStar))
+            if (catalogue.updatePlanetarySystem(name, orbittingStar)) {
+                checkpoint();
                 System.out.println("Star name Updated");
-            else
+            } else
                 System.out.println("Star Name NOT Updated");
         } else
             System.out.println("Planetary System name is NOT valid");
@@ -415,9 +488,7 @@ public class Driver {
             case 4 -> {
                 // Update planetary system - similar to how the user adds a new system
                 String newPlanetarySystemName = ScannerInput.readNextLine("Enter the new planetary system name: ");
-                PlanetarySystem newPlanetarySystem = planetarySystemAPI.getPlanetarySystemByName(newPlanetarySystemName);
-                if (newPlanetarySystem != null) {
-                    celestialObject.setPlanetarySystem(newPlanetarySystem);
+                if (catalogue.moveCelestialBody(celestialObject, newPlanetarySystemName)) {
                     updatedCelestialObject = celestialObject;  // Update object reference
                     System.out.println("Planetary system updated to: " + newPlanetarySystemName);
                 } else {
@@ -467,6 +538,12 @@ public class Driver {
         if (updatedCelestialObject != null) {
             boolean updateSuccessful = celestialAPI.updateCelestial(id, updatedCelestialObject);
             if (updateSuccessful) {
+                try {
+                    journal.logUpdated(id, updatedCelestialObject);
+                    journal.checkpointIfDue();
+                } catch (IOException e) {
+                    System.err.println("Error writing to journal: " + e);
+                }
                 System.out.println("Celestial object updated successfully.");
             } else {
                 System.out.println("Failed to update celestial object. Please try again.");
@@ -481,10 +558,16 @@ public class Driver {
         int id = ScannerInput.readNextInt("Please enter id number to delete: ");
 
         if (celestialAPI.isValidId(id) != -1) {
-            CelestialBody t = celestialAPI.deleteCelestialId(id);
-            if (t != null)
+            CelestialBody t = catalogue.deleteCelestialId(id);
+            if (t != null) {
+                try {
+                    journal.logDeleted(id);
+                    journal.checkpointIfDue();
+                } catch (IOException e) {
+                    System.err.println("Error writing to journal: " + e);
+                }
                 System.out.println("Sucessful delete : " + t);
-            else System.out.println("No Celestial Object was deleted");
+            } else System.out.println("No Celestial Object was deleted");
         }
 
     }
@@ -519,11 +602,11 @@ public class Driver {
                         String coreComposition = ""; // "rocky core", "metallic hydrogen core", max 40 chars
                         double radiationLevel = 0;
 
-                        celestialAPI.addCelestialObject(new GasPlanet(name, mass, diameter, planetarySystem, averageTemperature, surfaceType, hasLiquidWater, gasComposition, coreComposition, radiationLevel));
+                        addCelestialObject(new GasPlanet(name, mass, diameter, planetarySystem, averageTemperature, surfaceType, hasLiquidWater, gasComposition, coreComposition, radiationLevel));
                     }
                     case 3 -> { // Ice
                         String iceComposition = "";  // Max 30 chars
-                        celestialAPI.addCelestialObject(new IcePlanet(name, mass, diameter, planetarySystem,
+                        addCelestialObject(new IcePlanet(name, mass, diameter, planetarySystem,
                                 averageTemperature, surfaceType, hasLiquidWater, iceComposition));
                     }
                 }
@@ -531,7 +614,7 @@ public class Driver {
             case 1 -> { // Star
                 char spectralType = 'M'; // Must be one of OBAFGKM, default to M
                 double luminosity = 0;
-                celestialAPI.addCelestialObject(new Star(name, mass, diameter, planetarySystem, spectralType, luminosity));
+                addCelestialObject(new Star(name, mass, diameter, planetarySystem, spectralType, luminosity));
             }
             default -> {
                 System.out.println("Invalid celestial type selected. Please try again.");
@@ -686,9 +769,8 @@ public class Driver {
      */
     public void listAllCelestialFromaGivenPlanetary() {
         String manu = ScannerInput.readNextLine("What planetary systems you want a list of objects for?  : ");
-        PlanetarySystem m = planetarySystemAPI.getPlanetarySystemByName(manu);
-        if (!(m == null))
-            System.out.println(celestialAPI.listAllCelestialObjectsForGivenPlanetary(m));
+        if (planetarySystemAPI.isValidPlanetSys(manu))
+            System.out.println(catalogue.listAllCelestialObjectsForGivenPlanetary(manu));
         else
             System.out.println("No planetary systems with tha name exists");
     }
@@ -699,26 +781,49 @@ public class Driver {
     //---------------------
 
     /**
-     * Saves all data from both APIs to their respective files.
+     * Saves all data from both APIs to their respective XML files, and to the binary snapshot
+     * used for fast loading, which empties the journal.
+     * The XML files are written in the background, so the menu does not wait for them.
+     *
+     * @return completed once both XML files are written
      */
-    private void saveAllData() {
+    private CompletableFuture<Void> saveAllData() {
         System.out.println("Storing all data....");
+        CompletableFuture<Void> saved = CompletableFuture.allOf(
+                celestialAPI.saveAsync().exceptionally(this::reportSaveError),
+                planetarySystemAPI.saveAsync().exceptionally(this::reportSaveError));
         try {
-            celestialAPI.save();
-            planetarySystemAPI.save();
+            journal.checkpoint(); // saves the snapshot, which now holds everything in the journal
         } catch (Exception e) {
             System.err.println("Error writing to file: " + e);
         }
+        return saved;
+    }
+
+    private Void reportSaveError(Throwable e) {
+        System.err.println("Error writing to file: " + (e.getCause() != null ? e.getCause() : e));
+        return null;
     }
 
     /**
-     * Loads all data into both APIs from their respective files.
+     * Loads all data into both APIs, from the binary snapshot if there is one,
+     * otherwise from their respective XML files (read in parallel, with the time each phase took printed),
+     * then replays the changes journaled since.
      */
     private void loadAllData() {
         System.out.println("Loading all data....");
         try {
-            celestialAPI.load();
-            planetarySystemAPI.load();
+            if (snapshot.exists()) {
+                snapshot.load();
+            } else {
+                ParallelLoader loader = new ParallelLoader(planetarySystemAPI, celestialAPI);
+                try {
+                    loader.load(); // both XML files at once
+                } finally {
+                    System.out.print(loader.describeTimings());
+                }
+            }
+            journal.replay(); // changes made after the snapshot was saved
         } catch (Exception e) {
             System.err.println("Error loading from this file:  " + e);
         }
@@ -728,6 +833,33 @@ public class Driver {
     //  Helper Methods
     //---------------------
 
+    /**
+     * Adds a celestial body to the catalogue and records it in the journal.
+     *
+     * @param body the celestial body to add
+     */
+    private void addCelestialObject(CelestialBody body) {
+        if (catalogue.addCelestialObject(body)) {
+            try {
+                journal.logAdded(body);
+                journal.checkpointIfDue();
+            } catch (IOException e) {
+                System.err.println("Error writing to journal: " + e);
+            }
+        }
+    }
+
+    /**
+     * Folds the journal into a new snapshot, e.g. after a planetary system changed, which the journal does not record.
+     */
+    private void checkpoint() {
+        try {
+            journal.checkpoint();
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot: " + e);
+        }
+    }
+
     /**
      * Prompts the user for a unique ID and validates it.
      *
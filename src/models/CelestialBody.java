@@ -1,5 +1,9 @@
 package models;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 /**
  * Represents a celestial body (e.g., planet, moon, asteroid) in a planetary system.
  * This abstract class provides common attributes and behaviors shared by all celestial bodies.
@@ -13,8 +17,35 @@ public abstract class CelestialBody {
     private double diameter;
     private PlanetarySystem planetarySystem;
 
-    // Static field for generating unique ids
-    private static int nextId = 1000;
+    // Derived physics, computed together on first use and cleared by setMass and setDiameter.
+    // Transient so they are never saved; a loaded body starts with derivedCached false and recomputes.
+    private transient boolean derivedCached;
+    private transient double gravity;
+    private transient double surfaceArea;
+    private transient double volume;
+    private transient double density;
+    private transient double escapeVelocity;
+
+    // Gravitational constant used by the derived physics, in m³/(kg·s²)
+    public static final double GRAVITATIONAL_CONSTANT = 6.67430e-11;
+    // Diameters are kept in kilometers, but G works in meters
+    public static final double METERS_PER_KILOMETER = 1000.0;
+
+    // Static field for generating unique ids, atomic so bodies created on different threads never share an id
+    private static final AtomicInteger nextId = new AtomicInteger(1000);
+    // Id for the body being created by restore on this thread, taken instead of a new one
+    private static final ThreadLocal<Integer> restoringId = new ThreadLocal<>();
+
+    // Static counter bumped whenever a body's fields change, so indexes built over bodies can tell they are stale
+    private static final AtomicInteger modificationCount = new AtomicInteger();
+
+    // Clock for save tracking: each body keeps the tick of its last change, so a save can tell which bodies changed
+    // since it last wrote them. Transient, so a body read back by XStream starts at 0 (unchanged).
+    private static final AtomicInteger changeClock = new AtomicInteger();
+    private transient int lastChanged;
+
+    // Told about every change to this body, e.g. by the catalogue holding it so its indexes can re-key just this body
+    private transient Consumer<CelestialBody> changeListener;
 
     /**
      * Constructor to initialize a CelestialBody object.
@@ -25,7 +56,13 @@ public abstract class CelestialBody {
      * @param planetarySystem the planetary system the celestial body belongs to
      */
     public CelestialBody(String name, double mass, double diameter, PlanetarySystem planetarySystem) {
-        this.id = nextId++; // Increment the ID each time a new celestial body is created
+        Integer restored = restoringId.get();
+        if (restored != null) {
+            restoringId.remove(); // only the body being restored takes the stored id
+            this.id = restored;
+        } else {
+            this.id = nextId.getAndIncrement(); // Increment the ID each time a new celestial body is created
+        }
         this.name = name.length() > 30 ? name.substring(0, 30) : name;  // Truncate name to 30 chars
         this.mass = mass > 0.1 ? mass : 0.1;  // Default mass to 0.1 if invalid
         this.diameter = diameter > 0.5 ? diameter : 0.5;  // Default diameter to 0.5 if invalid
@@ -43,6 +80,49 @@ public abstract class CelestialBody {
         return id;
     }
 
+    /**
+     * Restores the id of a celestial body read back from storage.
+     * Ids handed out to celestial bodies created afterwards will not collide with it.
+     *
+     * @param id the stored id
+     */
+    public void restoreId(int id) {
+        this.id = id;
+        reserveIdsThrough(id);
+    }
+
+    /**
+     * Creates a celestial body read back from storage with its stored id, without using up a new id,
+     * so reading the same records again and again leaves the ids handed out to new bodies where they were.
+     * Ids handed out to celestial bodies created afterwards will not collide with the stored one.
+     *
+     * @param id the stored id
+     * @param creator creates the body through its public constructor
+     * @param <T> the type of celestial body
+     * @return the body, holding the stored id
+     */
+    public static <T extends CelestialBody> T restore(int id, Supplier<T> creator) {
+        restoringId.set(id);
+        T body;
+        try {
+            body = creator.get();
+        } finally {
+            restoringId.remove();
+        }
+        reserveIdsThrough(id);
+        return body;
+    }
+
+    /**
+     * Makes sure ids handed out from now on are greater than the given id,
+     * e.g. after loading celestial bodies that were created in an earlier session.
+     *
+     * @param id the highest id already in use
+     */
+    public static void reserveIdsThrough(int id) {
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
     /**
      * Gets the name of the celestial body.
      *
@@ -61,6 +141,7 @@ public abstract class CelestialBody {
         // Only update the name if it's valid (<= 30 characters)
         if (name != null && name.length() <= 30) {
             this.name = name;
+            markModified();
         }
     }
 
@@ -82,6 +163,8 @@ public abstract class CelestialBody {
         // Only update the mass if it's valid (> 0.1)
         if (mass > 0.1) {
             this.mass = mass;
+            derivedCached = false;
+            markModified();
         }
     }
 
@@ -103,6 +186,8 @@ public abstract class CelestialBody {
         // Only update the diameter if it's valid (> 0.5)
         if (diameter > 0.5) {
             this.diameter = diameter;
+            derivedCached = false;
+            markModified();
         }
     }
 
@@ -122,6 +207,195 @@ public abstract class CelestialBody {
      */
     public void setPlanetarySystem(PlanetarySystem planetarySystem) {
         this.planetarySystem = planetarySystem;
+        markModified();
+    }
+
+    /**
+     * Replaces the planetary system with an equal shared instance, e.g. a canonical one from an interner.
+     * The system's names do not change, so this does not count as a modification.
+     *
+     * @param planetarySystem an equal planetary system to share
+     * @return true if the shared instance is now used, false if it was not equal to the current system
+     */
+    public boolean sharePlanetarySystem(PlanetarySystem planetarySystem) {
+        if (planetarySystem == null || !planetarySystem.equals(this.planetarySystem)) {
+            return false;
+        }
+        this.planetarySystem = planetarySystem;
+        return true;
+    }
+
+    // ================================
+    // Derived Physics
+    // ================================
+
+    /**
+     * Gets the surface gravity, as given by {@link #calculateGravity()}, computing it only the first time
+     * after the mass or diameter changes.
+     *
+     * @return the gravity of the celestial body (in m/s²)
+     */
+    public double getGravity() {
+        ensureDerived();
+        return gravity;
+    }
+
+    /**
+     * Gets the surface area of the celestial body, treated as a sphere.
+     *
+     * @return the surface area (in km²)
+     */
+    public double getSurfaceArea() {
+        ensureDerived();
+        return surfaceArea;
+    }
+
+    /**
+     * Gets the volume of the celestial body, treated as a sphere.
+     *
+     * @return the volume (in km³)
+     */
+    public double getVolume() {
+        ensureDerived();
+        return volume;
+    }
+
+    /**
+     * Gets the average density of the celestial body.
+     *
+     * @return the density (in kg/m³)
+     */
+    public double getDensity() {
+        ensureDerived();
+        return density;
+    }
+
+    /**
+     * Gets the escape velocity of the celestial body, as given by {@link #escapeVelocityOf}.
+     *
+     * @return the escape velocity (in m/s)
+     */
+    public double getEscapeVelocity() {
+        ensureDerived();
+        return escapeVelocity;
+    }
+
+    private void ensureDerived() {
+        if (!derivedCached) {
+            gravity = calculateGravity();
+            surfaceArea = surfaceAreaOf(diameter);
+            volume = volumeOf(diameter);
+            density = densityOf(mass, diameter);
+            escapeVelocity = escapeVelocityOf(mass, diameter);
+            derivedCached = true;
+        }
+    }
+
+    /**
+     * Calculates surface gravity from a mass and a diameter: (mass * G) / radius², with the radius in meters.
+     * Shared by the subclasses and by bulk passes over whole columns, so both give identical results.
+     *
+     * @param mass the mass (in kilograms)
+     * @param diameter the diameter (in kilometers)
+     * @return the gravity (in m/s²)
+     */
+    public static double gravityOf(double mass, double diameter) {
+        double radius = diameter / 2.0 * METERS_PER_KILOMETER;
+        return (mass * GRAVITATIONAL_CONSTANT) / (radius * radius);
+    }
+
+    /**
+     * Calculates the surface area of a sphere: 4πr².
+     *
+     * @param diameter the diameter (in kilometers)
+     * @return the surface area (in km²)
+     */
+    public static double surfaceAreaOf(double diameter) {
+        double radius = diameter / 2.0;
+        return 4.0 * Math.PI * radius * radius;
+    }
+
+    /**
+     * Calculates the volume of a sphere: 4/3πr³.
+     *
+     * @param diameter the diameter (in kilometers)
+     * @return the volume (in km³)
+     */
+    public static double volumeOf(double diameter) {
+        double radius = diameter / 2.0;
+        return 4.0 / 3.0 * Math.PI * radius * radius * radius;
+    }
+
+    /**
+     * Calculates the average density: mass / volume, with the volume converted to cubic meters.
+     *
+     * @param mass the mass (in kilograms)
+     * @param diameter the diameter (in kilometers)
+     * @return the density (in kg/m³)
+     */
+    public static double densityOf(double mass, double diameter) {
+        return mass / (volumeOf(diameter) * 1e9);
+    }
+
+    /**
+     * Calculates the escape velocity: √(2 * G * mass / radius), with the radius in meters.
+     *
+     * @param mass the mass (in kilograms)
+     * @param diameter the diameter (in kilometers)
+     * @return the escape velocity (in m/s)
+     */
+    public static double escapeVelocityOf(double mass, double diameter) {
+        return Math.sqrt(2.0 * GRAVITATIONAL_CONSTANT * mass / (diameter / 2.0 * METERS_PER_KILOMETER));
+    }
+
+    /**
+     * Records that a field of this celestial body has changed.
+     */
+    protected void markModified() {
+        modificationCount.incrementAndGet();
+        lastChanged = changeClock.incrementAndGet();
+        if (changeListener != null) {
+            changeListener.accept(this);
+        }
+    }
+
+    /**
+     * Sets the listener told about every later change to this celestial body's fields. A body has one listener,
+     * normally the catalogue holding it; the listener is not saved with the body.
+     *
+     * @param changeListener the listener, or null to stop telling anyone
+     */
+    public void setChangeListener(Consumer<CelestialBody> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Checks whether a field of this celestial body has changed after the given tick of the change clock.
+     *
+     * @param tick a value of {@link #getChangeClock()}, e.g. taken when the body was last saved
+     * @return true if the body has changed since then
+     */
+    public boolean isChangedSince(int tick) {
+        return lastChanged > tick;
+    }
+
+    /**
+     * Gets the current tick of the change clock. Savers remember it and later ask {@link #isChangedSince(int)}.
+     *
+     * @return the current tick
+     */
+    public static int getChangeClock() {
+        return changeClock.get();
+    }
+
+    /**
+     * Gets the number of field changes made to any celestial body so far.
+     * Indexes compare this against the value they were built with to detect stale entries.
+     *
+     * @return the global modification count
+     */
+    public static int getModificationCount() {
+        return modificationCount.get();
     }
 
     // Abstract methods
@@ -47,6 +47,7 @@ public class DwarfPlanet extends Planet {
      */
     public void setSurfaceComposition(String surfaceComposition) {
         this.surfaceComposition = surfaceComposition;
+        markModified();
     }
 
     /**
@@ -54,6 +54,7 @@ public class GasPlanet extends Planet {
      */
     public void setGasComposition(String gasComposition) {
         this.gasComposition = gasComposition;
+        markModified();
     }
 
     /**
@@ -72,6 +73,7 @@ public class GasPlanet extends Planet {
      */
     public void setCoreComposition(String coreComposition) {
         this.coreComposition = coreComposition;
+        markModified();
     }
 
     /**
@@ -90,6 +92,7 @@ public class GasPlanet extends Planet {
      */
     public void setRadiationLevel(double radiationLevel) {
         this.radiationLevel = radiationLevel;
+        markModified();
     }
 
     /**
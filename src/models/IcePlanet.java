@@ -46,6 +46,7 @@ public class IcePlanet extends Planet {
      */
     public void setIceComposition(String iceComposition) {
         this.iceComposition = iceComposition;
+        markModified();
     }
 
     /**
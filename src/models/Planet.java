@@ -65,6 +65,7 @@ public abstract class Planet extends CelestialBody {
   if (surfaceType != null) {
    // Truncate to 19 characters, no extra characters should be added
    this.surfaceType = surfaceType.length() > 19 ? surfaceType.substring(0, 19) : surfaceType;
+   markModified();
   }
  }
 
@@ -86,6 +87,7 @@ public abstract class Planet extends CelestialBody {
  public void setAverageTemperature(double averageTemperature) {
   if (averageTemperature >= -400 && averageTemperature <= 400) {
    this.averageTemperature = averageTemperature;
+   markModified();
   }
  }
 
@@ -105,6 +107,7 @@ public abstract class Planet extends CelestialBody {
   */
  public void setHasLiquidWater(boolean hasLiquidWater) {
   this.hasLiquidWater = hasLiquidWater;
+  markModified();
  }
 
  /**
@@ -116,8 +119,7 @@ public abstract class Planet extends CelestialBody {
   */
  @Override
  public double calculateGravity() {
-  double radius = getDiameter() / 2.0;
-  return (getMass() * 6.67430e-11) / (radius * radius);
+  return gravityOf(getMass(), getDiameter());
  }
 
  /**
@@ -3,6 +3,8 @@ package models;
 import utils.Utilities;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * Represents a planetary system, which consists of a system name and the star around which
@@ -16,6 +18,20 @@ public class PlanetarySystem {
     private String orbittingStarName; // e.g., Sun for Solar System (max 30 chars)
     // Additional attributes can be added as needed
 
+    // Static counter bumped whenever a system's fields change, so indexes built over systems can tell they are stale
+    private static final AtomicInteger modificationCount = new AtomicInteger();
+
+    // Clock for save tracking, like the one in CelestialBody. Transient, so a system read back by XStream starts unchanged.
+    private static final AtomicInteger changeClock = new AtomicInteger();
+    private transient int lastChanged;
+
+    // Told the old name whenever this system is renamed, e.g. by the API holding it so its name index can re-key just this system
+    private transient BiConsumer<PlanetarySystem, String> renameListener;
+
+    // Told about a change to the names of any planetary system, with a copy of the system as it was, so an index keyed
+    // by the names can re-key just the bodies of that system
+    private static volatile BiConsumer<PlanetarySystem, PlanetarySystem> nameChangeListener;
+
     /**
      * Constructs a new PlanetarySystem object with the specified system name and the star it orbits.
      * The system name is truncated to 50 characters, and the star name is truncated to 30 characters
@@ -45,7 +61,14 @@ public class PlanetarySystem {
      */
     public void setSystemName(String systemName) {
         if (Utilities.validStringlength(systemName, 50)) {
+            String previousName = this.systemName;
+            PlanetarySystem previous = copyForListener();
             this.systemName = systemName;
+            markModified();
+            if (renameListener != null) {
+                renameListener.accept(this, previousName);
+            }
+            tellNameChange(previous);
         }
     }
 
@@ -65,10 +88,90 @@ public class PlanetarySystem {
      */
     public void setOrbittingStarName(String orbittingStarName) {
         if (Utilities.validStringlength(orbittingStarName, 30)) {
+            PlanetarySystem previous = copyForListener();
             this.orbittingStarName = orbittingStarName;
+            markModified();
+            tellNameChange(previous);
         }
     }
 
+    /**
+     * Sets the listener told about every later change to this planetary system's name, with the name it had before.
+     * A system has one listener, normally the API holding it; the listener is not saved with the system.
+     *
+     * @param renameListener the listener, or null to stop telling anyone
+     */
+    public void setRenameListener(BiConsumer<PlanetarySystem, String> renameListener) {
+        this.renameListener = renameListener;
+    }
+
+    /**
+     * Gets the listener told about changes to this planetary system's name.
+     *
+     * @return the listener, or null if there is none
+     */
+    public BiConsumer<PlanetarySystem, String> getRenameListener() {
+        return renameListener;
+    }
+
+    /**
+     * Sets the listener told about every later change to the names of any planetary system, with the system and
+     * a copy of it as it was before the change. There is one such listener, normally the celestial body catalogue.
+     *
+     * @param nameChangeListener the listener, or null to stop telling anyone
+     */
+    public static void setNameChangeListener(BiConsumer<PlanetarySystem, PlanetarySystem> nameChangeListener) {
+        PlanetarySystem.nameChangeListener = nameChangeListener;
+    }
+
+    private PlanetarySystem copyForListener() {
+        return nameChangeListener == null ? null : new PlanetarySystem(systemName, orbittingStarName);
+    }
+
+    private void tellNameChange(PlanetarySystem previous) {
+        BiConsumer<PlanetarySystem, PlanetarySystem> listener = nameChangeListener;
+        if (listener != null && previous != null) {
+            listener.accept(this, previous);
+        }
+    }
+
+    /**
+     * Gets the number of field changes made to any planetary system so far.
+     * Indexes compare this against the value they were built with to detect stale entries.
+     *
+     * @return the global modification count
+     */
+    public static int getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Checks whether a name of this planetary system has changed after the given tick of the change clock.
+     *
+     * @param tick a value of {@link #getChangeClock()}, e.g. taken when the system was last saved
+     * @return true if the system has changed since then
+     */
+    public boolean isChangedSince(int tick) {
+        return lastChanged > tick;
+    }
+
+    /**
+     * Gets the current tick of the change clock. Savers remember it and later ask {@link #isChangedSince(int)}.
+     *
+     * @return the current tick
+     */
+    public static int getChangeClock() {
+        return changeClock.get();
+    }
+
+    /**
+     * Records that a name of this planetary system has changed.
+     */
+    private void markModified() {
+        modificationCount.incrementAndGet();
+        lastChanged = changeClock.incrementAndGet();
+    }
+
     /**
      * Compares the current PlanetarySystem object to another object for equality. Two planetary systems are considered equal
      * if they have the same system name and the same star name they orbit.
@@ -84,6 +187,17 @@ public class PlanetarySystem {
         return Objects.equals(systemName, that.systemName) && Objects.equals(orbittingStarName, that.orbittingStarName);
     }
 
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}, built from the system name and the star name.
+     * The hash changes when either name changes, so a system renamed while it is a hash key must be re-keyed.
+     *
+     * @return the hash code of this planetary system
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(systemName, orbittingStarName);
+    }
+
     /**
      * Returns a string representation of the PlanetarySystem. The string includes the system name
      * and the name of the star it orbits.
@@ -31,9 +31,7 @@ public class Star extends StellarObject {
      */
     @Override
     public double calculateGravity() {
-        double G = 6.67430e-11; // Gravitational constant
-        double radius = getDiameter() / 2.0; // Radius of the star
-        return (getMass() * G) / (radius * radius); // Gravity calculation
+        return gravityOf(getMass(), getDiameter()); // (mass * G) / radius², radius being half the diameter
     }
 
     /**
@@ -71,6 +69,6 @@ public class Star extends StellarObject {
         return "Star: " + super.toString() +
                 ", SpectralType: " + getSpectralType() +  // Corrected to match the test expectation (no space)
                 ", luminosity: " + getLuminosity() +  // Corrected to match the test expectation (lowercase 'l')
-                ", Gravity: " + String.format("%.3e", calculateGravity()); // Gravity in scientific notation
+                ", Gravity: " + String.format("%.3e", getGravity()); // Gravity in scientific notation, cached until mass or diameter change
     }
 }
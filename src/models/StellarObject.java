@@ -50,6 +50,7 @@ public abstract class StellarObject extends CelestialBody {
     public void setSpectralType(char spectralType) {
         if (isValidStellarType(spectralType)) {
             this.spectralType = spectralType;
+            markModified();
         }
     }
 
@@ -70,6 +71,7 @@ public abstract class StellarObject extends CelestialBody {
     public void setLuminosity(double luminosity) {
         if (luminosity >= 1000 && luminosity <= 200000) {
             this.luminosity = luminosity;
+            markModified();
         }
     }
 
@@ -0,0 +1,193 @@
+package utils;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a file on a background thread, so saving a large catalogue does not block the caller.
+ * <p>
+ * The caller captures what is to be saved first, on its own thread, so later changes cannot leak into a half-written
+ * file. Each capture is written to a temporary file next to the target, forced to disk and then atomically
+ * renamed over the target: readers see either the old file or the new one, never a partial one.
+ * <p>
+ * Only one write runs at a time. Saves requested while one is running are coalesced: only the latest capture is
+ * written once the running write finishes, and every request in between gets that same future, since the latest
+ * capture includes their changes.
+ */
+public class BackgroundSaver {
+
+    /**
+     * Captured state that can be written out on any thread.
+     */
+    public interface Capture {
+        void writeTo(OutputStream out) throws Exception;
+    }
+
+    // Shared by every saver; idle threads are daemons and go away after a minute
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "background-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Numbers the temporary files, so savers writing the same target never share one
+    private static final AtomicLong TEMP_FILES = new AtomicLong();
+
+    private final Path target;
+    private final Executor executor;
+
+    private final Object lock = new Object();
+    private boolean writing;                    // a write is running
+    private Capture waiting;                    // latest capture requested while it runs
+    private CompletableFuture<Void> waitingSave; // completed once that capture is written
+
+    /**
+     * Creates a saver for a file, writing on a shared pool of daemon threads.
+     *
+     * @param target the file to save to
+     */
+    public BackgroundSaver(Path target) {
+        this(target, SHARED_EXECUTOR);
+    }
+
+    /**
+     * Creates a saver for a file.
+     *
+     * @param target the file to save to
+     * @param executor runs the writes
+     */
+    public BackgroundSaver(Path target, Executor executor) {
+        this.target = target;
+        this.executor = executor;
+    }
+
+    /**
+     * Writes a capture to the file in the background.
+     *
+     * @param capture the state to save
+     * @return completed once a capture at least as new as this one is on disk, or exceptionally if that write failed
+     */
+    public CompletableFuture<Void> save(Capture capture) {
+        synchronized (lock) {
+            if (writing) {
+                waiting = capture; // replaces any older waiting capture
+                if (waitingSave == null) {
+                    waitingSave = new CompletableFuture<>();
+                }
+                return waitingSave;
+            }
+            writing = true;
+        }
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        start(capture, saved);
+        return saved;
+    }
+
+    /**
+     * Checks whether a write is running.
+     *
+     * @return true if a save has not finished yet
+     */
+    public boolean isSaving() {
+        synchronized (lock) {
+            return writing;
+        }
+    }
+
+    /**
+     * Waits for a save and rethrows its failure, for callers that want to save synchronously.
+     *
+     * @param save a future returned by {@link #save(Capture)}
+     * @throws Exception the exception the write failed with
+     */
+    public static void await(CompletableFuture<Void> save) throws Exception {
+        try {
+            save.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void start(Capture capture, CompletableFuture<Void> saved) {
+        try {
+            executor.execute(() -> {
+                try {
+                    writeAtomically(capture);
+                    saved.complete(null);
+                } catch (Throwable e) {
+                    saved.completeExceptionally(e);
+                } finally {
+                    startWaiting();
+                }
+            });
+        } catch (RuntimeException rejected) {
+            saved.completeExceptionally(rejected);
+            startWaiting();
+        }
+    }
+
+    private void startWaiting() {
+        Capture capture;
+        CompletableFuture<Void> saved;
+        synchronized (lock) {
+            if (waiting == null) {
+                writing = false;
+                return;
+            }
+            capture = waiting;
+            saved = waitingSave;
+            waiting = null;
+            waitingSave = null;
+        }
+        start(capture, saved);
+    }
+
+    /**
+     * Writes a capture to a temporary file, forces it to disk and renames it over the target.
+     *
+     * @param capture the state to save
+     * @throws Exception if the capture cannot be written; the target is left as it was
+     */
+    private void writeAtomically(Capture capture) throws Exception {
+        Path temp = target.resolveSibling(target.getFileName() + "." + TEMP_FILES.incrementAndGet() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                BufferedOutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel));
+                capture.writeTo(new FilterOutputStream(buffered) {
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        out.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush(); // the channel is forced before it is closed
+                    }
+                });
+                buffered.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+}
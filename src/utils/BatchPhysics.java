@@ -0,0 +1,123 @@
+package utils;
+
+import models.CelestialBody;
+
+/**
+ * Computes derived physics for whole arrays of bodies at once from primitive mass and diameter arrays,
+ * instead of one virtual {@code calculateGravity()} call per object. Results match the per-object
+ * formulas in {@link CelestialBody} ({@code gravityOf}, {@code escapeVelocityOf} and {@code densityOf}).
+ * <p>
+ * The work is done by a {@link Kernel}. When the SIMD kernel {@code utils.VectorPhysicsKernel}
+ * (built from {@code src-vector} with {@code --add-modules jdk.incubator.vector}) is on the class path
+ * and the incubator module is available, it is used. Otherwise the scalar loops below are used.
+ * Run with {@code -Dphysics.vector=false} to force the scalar kernel.
+ */
+public class BatchPhysics {
+
+    /**
+     * A batch implementation of the physics formulas. Each method fills {@code out[0..length)}.
+     */
+    public interface Kernel {
+        void gravity(double[] mass, double[] diameter, double[] out, int length);
+
+        void escapeVelocity(double[] mass, double[] diameter, double[] out, int length);
+
+        void density(double[] mass, double[] diameter, double[] out, int length);
+    }
+
+    /**
+     * Plain loops over the arrays. They keep the exact operation order of the CelestialBody formulas.
+     */
+    public static final Kernel SCALAR = new Kernel() {
+        @Override
+        public void gravity(double[] mass, double[] diameter, double[] out, int length) {
+            for (int i = 0; i < length; i++) {
+                out[i] = CelestialBody.gravityOf(mass[i], diameter[i]);
+            }
+        }
+
+        @Override
+        public void escapeVelocity(double[] mass, double[] diameter, double[] out, int length) {
+            for (int i = 0; i < length; i++) {
+                out[i] = CelestialBody.escapeVelocityOf(mass[i], diameter[i]);
+            }
+        }
+
+        @Override
+        public void density(double[] mass, double[] diameter, double[] out, int length) {
+            for (int i = 0; i < length; i++) {
+                out[i] = CelestialBody.densityOf(mass[i], diameter[i]);
+            }
+        }
+    };
+
+    private static final Kernel KERNEL = loadKernel();
+
+    /**
+     * Computes the surface gravity of each body.
+     *
+     * @param mass the masses (in kilograms)
+     * @param diameter the diameters (in kilometers), the same length as the masses
+     * @return the gravity of each body (in m/s²)
+     */
+    public static double[] gravity(double[] mass, double[] diameter) {
+        double[] out = new double[checkLengths(mass, diameter)];
+        KERNEL.gravity(mass, diameter, out, out.length);
+        return out;
+    }
+
+    /**
+     * Computes the escape velocity of each body.
+     *
+     * @param mass the masses (in kilograms)
+     * @param diameter the diameters (in kilometers), the same length as the masses
+     * @return the escape velocity of each body (in m/s)
+     */
+    public static double[] escapeVelocity(double[] mass, double[] diameter) {
+        double[] out = new double[checkLengths(mass, diameter)];
+        KERNEL.escapeVelocity(mass, diameter, out, out.length);
+        return out;
+    }
+
+    /**
+     * Computes the average density of each body.
+     *
+     * @param mass the masses (in kilograms)
+     * @param diameter the diameters (in kilometers), the same length as the masses
+     * @return the density of each body (in kg/m³)
+     */
+    public static double[] density(double[] mass, double[] diameter) {
+        double[] out = new double[checkLengths(mass, diameter)];
+        KERNEL.density(mass, diameter, out, out.length);
+        return out;
+    }
+
+    /**
+     * Gets the kernel in use, e.g. to report whether the SIMD path is active.
+     *
+     * @return the batch physics kernel
+     */
+    public static Kernel kernel() {
+        return KERNEL;
+    }
+
+    private static int checkLengths(double[] mass, double[] diameter) {
+        if (mass.length != diameter.length) {
+            throw new IllegalArgumentException("Mass and diameter arrays differ in length: "
+                    + mass.length + " and " + diameter.length);
+        }
+        return mass.length;
+    }
+
+    // Uses the SIMD kernel if it was built and the incubator module is present, otherwise the scalar loops
+    private static Kernel loadKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("physics.vector", "true"))) {
+            return SCALAR;
+        }
+        try {
+            return (Kernel) Class.forName("utils.VectorPhysicsKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+}
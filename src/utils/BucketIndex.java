@@ -0,0 +1,164 @@
+package utils;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An index that groups elements into buckets by a key taken from each element, and can be kept up to date
+ * one element at a time. The index remembers the key it filed each element under, so an element whose key
+ * has changed is moved to its new bucket by {@link #update} without searching for it. Elements are matched
+ * by identity and sit in their bucket in the order they were filed. An element with a null key is held by
+ * the index but sits in no bucket.
+ *
+ * @param <K> the key type
+ * @param <T> the element type
+ */
+public class BucketIndex<K, T> {
+
+    private final Function<? super T, ? extends K> key;
+    private final Map<T, K> keys = new IdentityHashMap<>(); // element -> the key it is filed under
+    protected final Map<K, LinkedIdentitySet<T>> buckets;
+
+    /**
+     * Creates an empty index with hashed keys.
+     *
+     * @param key takes the key from an element
+     */
+    public BucketIndex(Function<? super T, ? extends K> key) {
+        this(key, new HashMap<>());
+    }
+
+    /**
+     * Creates an empty index that keeps its buckets in the given map.
+     *
+     * @param key takes the key from an element
+     * @param buckets an empty map to keep the buckets in
+     */
+    protected BucketIndex(Function<? super T, ? extends K> key, Map<K, LinkedIdentitySet<T>> buckets) {
+        this.key = key;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Files an element at the end of the bucket for its current key.
+     *
+     * @param element the element to add
+     * @return true if the element was added, false if the index already holds it
+     */
+    public boolean add(T element) {
+        if (keys.containsKey(element)) {
+            return false;
+        }
+        K k = key.apply(element);
+        keys.put(element, k);
+        if (k != null) {
+            buckets.computeIfAbsent(k, b -> new LinkedIdentitySet<>()).add(element);
+        }
+        return true;
+    }
+
+    /**
+     * Removes an element from the bucket it was filed under.
+     *
+     * @param element the element to remove
+     * @return true if the index held the element
+     */
+    public boolean remove(T element) {
+        if (!keys.containsKey(element)) {
+            return false;
+        }
+        unfile(element, keys.remove(element));
+        return true;
+    }
+
+    /**
+     * Moves an element to the end of the bucket for its current key if its key has changed since it was filed.
+     * Elements the index does not hold are ignored.
+     *
+     * @param element an element that may have changed
+     * @return true if the element moved to another bucket
+     */
+    public boolean update(T element) {
+        if (!keys.containsKey(element)) {
+            return false;
+        }
+        K filed = keys.get(element);
+        K current = key.apply(element);
+        if (Objects.equals(filed, current)) {
+            return false;
+        }
+        unfile(element, filed);
+        keys.remove(element);
+        add(element);
+        return true;
+    }
+
+    /**
+     * Puts an element in the place of another one. If both have the same key the replacement takes the previous
+     * element's place in its bucket; otherwise it is added at the end of the bucket for its own key.
+     *
+     * @param previous the element to replace
+     * @param replacement the element to put in its place
+     * @return true if the replacement took the previous element's place
+     */
+    public boolean replace(T previous, T replacement) {
+        K filed = keys.get(previous);
+        K current = key.apply(replacement);
+        if (!keys.containsKey(previous) || keys.containsKey(replacement) || !Objects.equals(filed, current)) {
+            remove(previous);
+            add(replacement);
+            return false;
+        }
+        keys.remove(previous);
+        keys.put(replacement, current);
+        if (current != null) {
+            buckets.get(current).replace(previous, replacement);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the index holds an element.
+     *
+     * @param element the element to look for
+     * @return true if the index holds that very element
+     */
+    public boolean contains(T element) {
+        return keys.containsKey(element);
+    }
+
+    /**
+     * Gets the elements filed under a key.
+     *
+     * @param k the key to look up
+     * @return the elements in the order they were filed, or null if there are none; callers must not modify the set
+     */
+    public LinkedIdentitySet<T> get(K k) {
+        return buckets.get(k);
+    }
+
+    /**
+     * Gets the number of elements the index holds.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    private void unfile(T element, K filed) {
+        if (filed == null) {
+            return;
+        }
+        LinkedIdentitySet<T> bucket = buckets.get(filed);
+        if (bucket != null) {
+            bucket.remove(element);
+            if (bucket.isEmpty()) {
+                buckets.remove(filed);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package utils;
+
+import models.CelestialBody;
+import models.PlanetarySystem;
+
+import java.util.Comparator;
+
+/**
+ * Reusable orderings for celestial bodies. Combine them with
+ * {@link Comparator#thenComparing} to build composite sort keys,
+ * e.g. {@code BY_SYSTEM_NAME.thenComparing(BY_MASS_DESCENDING)}.
+ * Bodies without a planetary system sort last for the system based orderings.
+ */
+public class CelestialComparators {
+
+    public static final Comparator<CelestialBody> BY_MASS_DESCENDING =
+            Comparator.comparingDouble(CelestialBody::getMass).reversed();
+
+    public static final Comparator<CelestialBody> BY_DIAMETER_ASCENDING =
+            Comparator.comparingDouble(CelestialBody::getDiameter);
+
+    // Uses the cached gravity, so a sort computes each body's gravity once rather than on every comparison
+    public static final Comparator<CelestialBody> BY_GRAVITY_DESCENDING =
+            Comparator.comparingDouble(CelestialBody::getGravity).reversed();
+
+    public static final Comparator<CelestialBody> BY_NAME_ASCENDING =
+            Comparator.comparing(CelestialBody::getName);
+
+    public static final Comparator<CelestialBody> BY_ORBITTING_STAR_NAME_ASCENDING =
+            Comparator.comparing(CelestialBody::getPlanetarySystem,
+                    Comparator.nullsLast(Comparator.comparing(PlanetarySystem::getOrbittingStarName)));
+
+    public static final Comparator<CelestialBody> BY_SYSTEM_NAME =
+            Comparator.comparing(CelestialBody::getPlanetarySystem,
+                    Comparator.nullsLast(Comparator.comparing(PlanetarySystem::getSystemName)));
+}
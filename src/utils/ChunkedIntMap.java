@@ -0,0 +1,212 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable map from int keys to int values, split by hash into segments of a few hundred entries under
+ * a root array. A changed copy shares every segment it does not touch: putting or removing one key copies
+ * the root and a single segment, and the number of segments doubles as the map grows, so a change costs
+ * O(n / SEGMENT_SIZE + SEGMENT_SIZE) instead of copying the whole map. Each segment keeps its keys sorted
+ * in a plain int array, so the map holds no boxed keys or values.
+ */
+public final class ChunkedIntMap {
+
+    static final int SEGMENT_SIZE = 256; // average entries per segment before the segments double
+
+    private static final int[] NONE = new int[0];
+    private static final ChunkedIntMap EMPTY = new ChunkedIntMap(new Segment[] {new Segment(NONE, NONE)}, 0);
+
+    private static final class Segment {
+        private final int[] keys; // sorted
+        private final int[] values;
+
+        private Segment(int[] keys, int[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    private final Segment[] segments; // a power of two of them
+    private final int size;
+
+    private ChunkedIntMap(Segment[] segments, int size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /**
+     * Gets the empty map.
+     *
+     * @return an empty map
+     */
+    public static ChunkedIntMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a map from parallel arrays of keys and values. When a key repeats, its first value is kept.
+     *
+     * @param keys the keys
+     * @param values the value of each key
+     * @param count how many entries of the arrays to use
+     * @return a new map
+     */
+    public static ChunkedIntMap of(int[] keys, int[] values, int count) {
+        int segmentCount = 1;
+        while (segmentCount * SEGMENT_SIZE < count) {
+            segmentCount *= 2;
+        }
+        return of(keys, values, count, segmentCount);
+    }
+
+    private static ChunkedIntMap of(int[] keys, int[] values, int count, int segmentCount) {
+        // each entry as (key << 32 | position), so sorting a segment puts the first value of a key first
+        long[][] entries = new long[segmentCount][];
+        int[] fill = new int[segmentCount];
+        for (int i = 0; i < count; i++) {
+            fill[segmentOf(keys[i], segmentCount)]++;
+        }
+        for (int s = 0; s < segmentCount; s++) {
+            entries[s] = new long[fill[s]];
+            fill[s] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int s = segmentOf(keys[i], segmentCount);
+            entries[s][fill[s]++] = (long) keys[i] << 32 | i;
+        }
+        Segment[] segments = new Segment[segmentCount];
+        int size = 0;
+        for (int s = 0; s < segmentCount; s++) {
+            Arrays.sort(entries[s]);
+            int[] segmentKeys = new int[entries[s].length];
+            int[] segmentValues = new int[entries[s].length];
+            int n = 0;
+            for (long entry : entries[s]) {
+                int key = (int) (entry >> 32);
+                if (n == 0 || segmentKeys[n - 1] != key) {
+                    segmentKeys[n] = key;
+                    segmentValues[n] = values[(int) entry];
+                    n++;
+                }
+            }
+            segments[s] = new Segment(Arrays.copyOf(segmentKeys, n), Arrays.copyOf(segmentValues, n));
+            size += n;
+        }
+        return new ChunkedIntMap(segments, size);
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key the key to look up
+     * @param missing the value to return if the key is absent
+     * @return the key's value, or missing
+     */
+    public int get(int key, int missing) {
+        Segment segment = segments[segmentOf(key, segments.length)];
+        int at = Arrays.binarySearch(segment.keys, key);
+        return at >= 0 ? segment.values[at] : missing;
+    }
+
+    /**
+     * Gets the number of keys.
+     *
+     * @return the map size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy in which a key has the given value.
+     *
+     * @param key the key
+     * @param value its value
+     * @return the new map, or this one if the key already has that value
+     */
+    public ChunkedIntMap put(int key, int value) {
+        int s = segmentOf(key, segments.length);
+        Segment segment = segments[s];
+        int at = Arrays.binarySearch(segment.keys, key);
+        if (at >= 0) {
+            if (segment.values[at] == value) {
+                return this;
+            }
+            int[] values = segment.values.clone();
+            values[at] = value;
+            return with(s, new Segment(segment.keys, values), size);
+        }
+        if (size >= segments.length * SEGMENT_SIZE) {
+            return grown().put(key, value);
+        }
+        at = -at - 1;
+        return with(s, new Segment(inserted(segment.keys, at, key), inserted(segment.values, at, value)), size + 1);
+    }
+
+    /**
+     * Returns a copy in which a key has the given value, unless it already has one.
+     *
+     * @param key the key
+     * @param value its value if it has none yet
+     * @return the new map, or this one if the key is already present
+     */
+    public ChunkedIntMap putIfAbsent(int key, int value) {
+        return Arrays.binarySearch(segments[segmentOf(key, segments.length)].keys, key) >= 0 ? this : put(key, value);
+    }
+
+    /**
+     * Returns a copy without a key, if it has the given value.
+     *
+     * @param key the key to remove
+     * @param value the value the key must have
+     * @return the new map, or this one if the key is absent or has another value
+     */
+    public ChunkedIntMap remove(int key, int value) {
+        int s = segmentOf(key, segments.length);
+        Segment segment = segments[s];
+        int at = Arrays.binarySearch(segment.keys, key);
+        if (at < 0 || segment.values[at] != value) {
+            return this;
+        }
+        return with(s, new Segment(removed(segment.keys, at), removed(segment.values, at)), size - 1);
+    }
+
+    private ChunkedIntMap with(int s, Segment segment, int newSize) {
+        Segment[] next = segments.clone();
+        next[s] = segment;
+        return new ChunkedIntMap(next, newSize);
+    }
+
+    // Twice as many segments, so they stay small as the map grows; each growth is O(n), so O(1) per put overall
+    private ChunkedIntMap grown() {
+        int[] keys = new int[size];
+        int[] values = new int[size];
+        int i = 0;
+        for (Segment segment : segments) {
+            System.arraycopy(segment.keys, 0, keys, i, segment.keys.length);
+            System.arraycopy(segment.values, 0, values, i, segment.values.length);
+            i += segment.keys.length;
+        }
+        return of(keys, values, size, segments.length * 2);
+    }
+
+    private static int segmentOf(int key, int segmentCount) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (segmentCount - 1);
+    }
+
+    private static int[] inserted(int[] array, int at, int value) {
+        int[] next = new int[array.length + 1];
+        System.arraycopy(array, 0, next, 0, at);
+        next[at] = value;
+        System.arraycopy(array, at, next, at + 1, array.length - at);
+        return next;
+    }
+
+    private static int[] removed(int[] array, int at) {
+        int[] next = new int[array.length - 1];
+        System.arraycopy(array, 0, next, 0, at);
+        System.arraycopy(array, at + 1, next, at, array.length - at - 1);
+        return next;
+    }
+}
@@ -0,0 +1,127 @@
+package utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list stored as fixed-size chunks under a small root array. A changed copy shares every chunk
+ * it does not touch: appending or replacing one element copies the root and a single chunk, so it costs
+ * O(n / CHUNK_SIZE + CHUNK_SIZE) rather than O(n). Removing an element shifts everything after it and
+ * rebuilds the chunks, like removing from an array.
+ *
+ * @param <T> the element type
+ */
+public final class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+
+    static final int CHUNK_SIZE = 1024;
+
+    private static final ChunkedList<?> EMPTY = new ChunkedList<>(new Object[0][], 0);
+
+    private final Object[][] chunks; // every chunk is full except the last
+    private final int size;
+
+    private ChunkedList(Object[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Gets the empty list.
+     *
+     * @return an empty list
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ChunkedList<T> empty() {
+        return (ChunkedList<T>) EMPTY;
+    }
+
+    /**
+     * Builds a list holding the given elements.
+     *
+     * @param elements the elements, in order
+     * @return a new list
+     */
+    public static <T> ChunkedList<T> of(Collection<? extends T> elements) {
+        return ChunkedList.<T>empty().plusAll(elements);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return (T) chunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy with elements appended.
+     *
+     * @param elements the elements to append, in order
+     * @return the new list
+     */
+    public ChunkedList<T> plusAll(Collection<? extends T> elements) {
+        if (elements.isEmpty()) {
+            return this;
+        }
+        int newSize = size + elements.size();
+        Object[][] next = Arrays.copyOf(chunks, (newSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        int i = size;
+        for (T element : elements) {
+            int c = i / CHUNK_SIZE;
+            if (i % CHUNK_SIZE == 0) {
+                next[c] = new Object[CHUNK_SIZE];
+            } else if (c < chunks.length && next[c] == chunks[c]) {
+                next[c] = chunks[c].clone(); // the partly filled last chunk is shared with this list
+            }
+            next[c][i % CHUNK_SIZE] = element;
+            i++;
+        }
+        return new ChunkedList<>(next, newSize);
+    }
+
+    /**
+     * Returns a copy with the element at an index replaced.
+     *
+     * @param index the index to replace
+     * @param element the new element
+     * @return the new list
+     */
+    public ChunkedList<T> with(int index, T element) {
+        get(index); // bounds check
+        Object[][] next = chunks.clone();
+        int c = index / CHUNK_SIZE;
+        next[c] = chunks[c].clone();
+        next[c][index % CHUNK_SIZE] = element;
+        return new ChunkedList<>(next, size);
+    }
+
+    /**
+     * Returns a copy without the element at an index. The elements after it move down one position.
+     *
+     * @param index the index to remove
+     * @return the new list
+     */
+    public ChunkedList<T> without(int index) {
+        get(index); // bounds check
+        Object[][] next = Arrays.copyOf(chunks, (size - 1 + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        int c = index / CHUNK_SIZE;
+        for (int i = c; i < next.length; i++) {
+            next[i] = new Object[CHUNK_SIZE]; // chunks before the removed element are shared
+        }
+        for (int i = c * CHUNK_SIZE, to = c * CHUNK_SIZE; i < size; i++) {
+            if (i != index) {
+                next[to / CHUNK_SIZE][to % CHUNK_SIZE] = chunks[i / CHUNK_SIZE][i % CHUNK_SIZE];
+                to++;
+            }
+        }
+        return new ChunkedList<>(next, size - 1);
+    }
+}
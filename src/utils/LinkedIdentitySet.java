@@ -0,0 +1,180 @@
+package utils;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A set that compares its elements by identity and iterates them in the order they were added.
+ * Adding, removing and replacing an element cost O(1): every element sits in a doubly linked list, and an
+ * identity map finds its node. {@link #replace} puts the new element where the old one was, so an index
+ * bucket can follow an in-place update of the list it indexes without searching the bucket.
+ *
+ * @param <T> the element type
+ */
+public class LinkedIdentitySet<T> extends AbstractCollection<T> {
+
+    private static final class Node<T> {
+        T element;
+        Node<T> previous;
+        Node<T> next;
+
+        Node(T element) {
+            this.element = element;
+        }
+    }
+
+    private final Map<T, Node<T>> nodes = new IdentityHashMap<>();
+    private Node<T> first;
+    private Node<T> last;
+
+    /**
+     * Adds an element at the end, unless the set already holds it.
+     *
+     * @param element the element to add
+     * @return true if the element was added
+     */
+    @Override
+    public boolean add(T element) {
+        if (nodes.containsKey(element)) {
+            return false;
+        }
+        Node<T> node = new Node<>(element);
+        nodes.put(element, node);
+        node.previous = last;
+        if (last == null) {
+            first = node;
+        } else {
+            last.next = node;
+        }
+        last = node;
+        return true;
+    }
+
+    /**
+     * Removes an element.
+     *
+     * @param element the element to remove
+     * @return true if the set held the element
+     */
+    @Override
+    public boolean remove(Object element) {
+        Node<T> node = nodes.remove(element);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Puts an element in the place of another one.
+     *
+     * @param previous the element to replace
+     * @param replacement the element to put in its place
+     * @return true if the previous element was replaced, false if the set did not hold it
+     *         or already holds the replacement
+     */
+    public boolean replace(T previous, T replacement) {
+        if (previous == replacement) {
+            return nodes.containsKey(previous);
+        }
+        if (!nodes.containsKey(previous) || nodes.containsKey(replacement)) {
+            return false;
+        }
+        Node<T> node = nodes.remove(previous);
+        node.element = replacement;
+        nodes.put(replacement, node);
+        return true;
+    }
+
+    /**
+     * Checks whether the set holds an element.
+     *
+     * @param element the element to look for
+     * @return true if the set holds that very element
+     */
+    @Override
+    public boolean contains(Object element) {
+        return nodes.containsKey(element);
+    }
+
+    /**
+     * Reorders the elements, e.g. after an element was added out of place.
+     *
+     * @param order the new order
+     */
+    public void sort(Comparator<? super T> order) {
+        List<T> elements = new ArrayList<>(this);
+        elements.sort(order);
+        Node<T> node = first;
+        for (T element : elements) {
+            node.element = element;
+            nodes.put(element, node);
+            node = node.next;
+        }
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        first = null;
+        last = null;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private Node<T> next = first;
+            private Node<T> current;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = next.next;
+                return current.element;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                nodes.remove(current.element);
+                unlink(current);
+                current = null;
+            }
+        };
+    }
+
+    private void unlink(Node<T> node) {
+        if (node.previous == null) {
+            first = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            last = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package utils;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Filters and counts over indexed collections, split into index ranges and run on the common fork-join pool.
+ * Like {@link SortUtility}, small inputs stay sequential because splitting them costs more than it saves.
+ * Matching positions always come back in ascending order, whichever path ran, so reports built from them
+ * print in list order.
+ * The tests must only read shared state, because they can run on several threads at once.
+ */
+public class ParallelQuery {
+
+    // Inputs at least this long are scanned in parallel
+    public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Finds the positions of the list elements that pass a test, choosing the parallel path for large lists.
+     *
+     * @param list the list to scan, which should support fast random access
+     * @param test the test each element must pass
+     * @return the matching positions, in ascending order
+     */
+    public static <T> int[] positionsMatching(List<T> list, Predicate<? super T> test) {
+        return positionsMatching(list.size(), i -> test.test(list.get(i)));
+    }
+
+    /**
+     * Finds the positions in the range 0 to size that pass a test, choosing the parallel path for large ranges.
+     *
+     * @param size the number of positions to scan
+     * @param test the test each position must pass
+     * @return the matching positions, in ascending order
+     */
+    public static int[] positionsMatching(int size, IntPredicate test) {
+        return range(size).filter(test).toArray(); // the stream is ordered, so chunks merge in order
+    }
+
+    /**
+     * Counts the positions in the range 0 to size that pass a test, choosing the parallel path for large ranges.
+     *
+     * @param size the number of positions to scan
+     * @param test the test each position must pass
+     * @return the number of matching positions
+     */
+    public static int count(int size, IntPredicate test) {
+        return (int) range(size).filter(test).count();
+    }
+
+    private static IntStream range(int size) {
+        IntStream range = IntStream.range(0, size);
+        return size >= PARALLEL_THRESHOLD ? range.parallel() : range;
+    }
+}
@@ -0,0 +1,73 @@
+package utils;
+
+import models.PlanetarySystem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dedupes planetary systems by system name and star name, so every celestial body in a planetary
+ * system can share one canonical {@link PlanetarySystem} object instead of carrying its own copy.
+ * This saves the duplicate objects and strings after loading, and lets callers compare systems by reference.
+ * <p>
+ * Planetary systems can be renamed, which changes their hash code, so the table is re-keyed
+ * the next time it is used after any system has changed.
+ */
+public class PlanetarySystemInterner {
+
+    private Map<PlanetarySystem, PlanetarySystem> canonical = new HashMap<>();
+    private int version = PlanetarySystem.getModificationCount();
+
+    /**
+     * Returns the canonical planetary system equal to the given one, making the given one canonical if none is known.
+     *
+     * @param planetarySystem the planetary system to intern, may be null
+     * @return the canonical equal planetary system, or null if given null
+     */
+    public PlanetarySystem intern(PlanetarySystem planetarySystem) {
+        if (planetarySystem == null) {
+            return null;
+        }
+        PlanetarySystem existing = table().putIfAbsent(planetarySystem, planetarySystem);
+        return existing == null ? planetarySystem : existing;
+    }
+
+    /**
+     * Makes the given planetary system the canonical one for its names, replacing any equal one known so far,
+     * e.g. when it is registered with the PlanetarySystemAPI.
+     *
+     * @param planetarySystem the planetary system to make canonical
+     */
+    public void register(PlanetarySystem planetarySystem) {
+        table().put(planetarySystem, planetarySystem);
+    }
+
+    /**
+     * Gets the number of distinct planetary systems known.
+     *
+     * @return the number of canonical planetary systems
+     */
+    public int size() {
+        return table().size();
+    }
+
+    /**
+     * Forgets every canonical planetary system, e.g. before loading a new catalogue.
+     */
+    public void clear() {
+        canonical.clear();
+    }
+
+    // Re-keys the table if any planetary system has changed since it was built; the first of equal systems wins
+    private Map<PlanetarySystem, PlanetarySystem> table() {
+        if (version != PlanetarySystem.getModificationCount()) {
+            Map<PlanetarySystem, PlanetarySystem> rekeyed = new HashMap<>();
+            for (PlanetarySystem planetarySystem : canonical.values()) {
+                rekeyed.putIfAbsent(planetarySystem, planetarySystem);
+            }
+            canonical = rekeyed;
+            version = PlanetarySystem.getModificationCount();
+        }
+        return canonical;
+    }
+}
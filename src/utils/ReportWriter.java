@@ -0,0 +1,119 @@
+package utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes report rows straight to an {@link Appendable} (a StringBuilder, System.out, a file Writer, ...)
+ * so that a report never has to be built up as one big String.
+ * By default rows are separated by a newline with nothing after the last row;
+ * a writer can instead end every row with a newline.
+ */
+public class ReportWriter {
+
+    private final Appendable out;
+    private final boolean terminateRows;
+    private int rowCount = 0;
+
+    /**
+     * Creates a report writer that separates rows with a newline.
+     *
+     * @param out where the rows are written
+     */
+    public ReportWriter(Appendable out) {
+        this(out, false);
+    }
+
+    /**
+     * Creates a report writer.
+     *
+     * @param out where the rows are written
+     * @param terminateRows if true every row ends with a newline, otherwise rows are only separated by one
+     */
+    public ReportWriter(Appendable out, boolean terminateRows) {
+        this.out = out;
+        this.terminateRows = terminateRows;
+    }
+
+    /**
+     * Writes a row.
+     *
+     * @param text the row text
+     * @throws IOException if the underlying Appendable fails
+     */
+    public void row(CharSequence text) throws IOException {
+        startRow();
+        out.append(text);
+        endRow();
+    }
+
+    /**
+     * Writes a row prefixed with its list index, e.g. "3: text".
+     *
+     * @param index the list index of the row's item
+     * @param text the row text
+     * @throws IOException if the underlying Appendable fails
+     */
+    public void row(int index, CharSequence text) throws IOException {
+        startRow();
+        out.append(Integer.toString(index)).append(": ").append(text);
+        endRow();
+    }
+
+    /**
+     * Writes the given message if no rows have been written.
+     *
+     * @param message the message for an empty report
+     * @throws IOException if the underlying Appendable fails
+     */
+    public void ifEmpty(CharSequence message) throws IOException {
+        if (rowCount == 0) {
+            out.append(message);
+        }
+    }
+
+    /**
+     * Gets the number of rows written so far.
+     *
+     * @return the row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private void startRow() throws IOException {
+        if (rowCount > 0 && !terminateRows) {
+            out.append('\n');
+        }
+    }
+
+    private void endRow() throws IOException {
+        if (terminateRows) {
+            out.append('\n');
+        }
+        rowCount++;
+    }
+
+    /**
+     * A report that can be streamed to any Appendable.
+     */
+    public interface Report {
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    /**
+     * Renders a report into a String, for callers that still want the whole text.
+     *
+     * @param report the report to render
+     * @return the report text
+     */
+    public static String asString(Report report) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            report.writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return sb.toString();
+    }
+}
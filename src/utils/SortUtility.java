@@ -0,0 +1,50 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Comparator based sorting used by the API classes.
+ * Both paths are stable, so equal elements keep their current relative order,
+ * which lets callers build composite orderings with {@link Comparator#thenComparing}.
+ */
+public class SortUtility {
+
+    // Lists at least this long are sorted with the parallel merge sort
+    public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Sorts the list in place, choosing the parallel path for large lists.
+     *
+     * @param list the list to sort
+     * @param comparator the ordering to apply
+     */
+    public static <T> void sort(List<T> list, Comparator<? super T> comparator) {
+        sort(list, comparator, list.size() >= PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Sorts the list in place.
+     *
+     * @param list the list to sort
+     * @param comparator the ordering to apply
+     * @param parallel if true, sort with {@link Arrays#parallelSort} on the common fork-join pool,
+     *                 otherwise with the sequential TimSort behind {@link List#sort}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sort(List<T> list, Comparator<? super T> comparator, boolean parallel) {
+        if (!parallel) {
+            list.sort(comparator);
+            return;
+        }
+        T[] elements = (T[]) list.toArray();
+        Arrays.parallelSort(elements, comparator);
+        ListIterator<T> it = list.listIterator();
+        for (T element : elements) {
+            it.next();
+            it.set(element);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package utils;
+
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * A {@link BucketIndex} that keeps its buckets ordered by key, so threshold, range, prefix and
+ * nearest-match queries find their buckets in O(log n). Adding, removing or re-keying an element
+ * costs O(log n), so the index can follow single changes instead of being rebuilt.
+ *
+ * @param <K> the key type
+ * @param <T> the element type
+ */
+public class SortedBucketIndex<K extends Comparable<? super K>, T> extends BucketIndex<K, T> {
+
+    /**
+     * Creates an empty index.
+     *
+     * @param key takes the key from an element
+     */
+    public SortedBucketIndex(Function<? super T, ? extends K> key) {
+        super(key, new TreeMap<>());
+    }
+
+    /**
+     * Gets the buckets ordered by key.
+     *
+     * @return a read-only view of the buckets; callers must not modify the sets
+     */
+    public NavigableMap<K, LinkedIdentitySet<T>> buckets() {
+        return Collections.unmodifiableNavigableMap((NavigableMap<K, LinkedIdentitySet<T>>) buckets);
+    }
+}
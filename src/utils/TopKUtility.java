@@ -0,0 +1,69 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the K elements with the highest numeric key without sorting the whole input.
+ * A min-heap of at most K entries is kept, so selection runs in O(n log K) time and O(K) memory.
+ * Offer candidates one at a time with {@link #offer}, then collect them with {@link #toList}.
+ */
+public class TopKUtility<T> {
+
+    private final int k;
+    private final PriorityQueue<Entry<T>> heap;
+    private long order = 0;
+
+    /**
+     * Creates an empty selector.
+     *
+     * @param k the maximum number of elements to keep
+     */
+    public TopKUtility(int k) {
+        this.k = Math.max(k, 0);
+        // Heap head is the weakest entry: lowest key, and the latest one among equal keys
+        this.heap = new PriorityQueue<>(Math.max(this.k, 1), (a, b) -> a.key != b.key
+                ? Double.compare(a.key, b.key)
+                : Long.compare(b.order, a.order));
+    }
+
+    /**
+     * Offers a candidate, keeping it only if it ranks among the k highest so far.
+     *
+     * @param item the candidate
+     * @param key the candidate's numeric key
+     */
+    public void offer(T item, double key) {
+        if (heap.size() < k) {
+            heap.add(new Entry<>(item, key, order));
+        } else if (k > 0 && key > heap.peek().key) {
+            heap.poll();
+            heap.add(new Entry<>(item, key, order));
+        }
+        order++;
+    }
+
+    /**
+     * Returns the kept elements, highest key first. When keys are equal,
+     * the element offered first comes first. The selector is empty afterwards.
+     *
+     * @return a new list with at most k elements
+     */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().item);
+        }
+        // Drained weakest first, so reverse into highest first
+        for (int i = 0, j = result.size() - 1; i < j; i++, j--) {
+            T temp = result.get(i);
+            result.set(i, result.get(j));
+            result.set(j, temp);
+        }
+        return result;
+    }
+
+    private record Entry<T>(T item, double key, long order) {
+    }
+}
@@ -1,6 +1,7 @@
 package utils;
 
 import java.util.List;
+import java.util.NavigableMap;
 
 public class Utilities {
 
@@ -86,4 +87,24 @@ public class Utilities {
     public static boolean isValidIndex(List list, int indexToCheck){
         return ((indexToCheck >= 0) && (indexToCheck < list.size()));
     }
+
+    /**
+     * Gets the entries of a map whose keys start with a prefix. The range ends just before the first string
+     * after every string with the prefix, so keys with any characters after the prefix are included.
+     *
+     * @param map a map with string keys in natural order
+     * @param prefix the start of the keys to keep
+     * @return a view of the entries whose keys start with the prefix
+     */
+    public static <V> NavigableMap<String, V> withPrefix(NavigableMap<String, V> map, String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--; // no string with this char follows the prefix, so the next one differs in an earlier char
+        }
+        if (end == 0) {
+            return map.tailMap(prefix, true);
+        }
+        String successor = prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+        return map.subMap(prefix, true, successor, false);
+    }
 }
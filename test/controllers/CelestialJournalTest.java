@@ -0,0 +1,181 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CelestialJournalTest {
+
+    private final File journalFile = new File("testJournal.journal");
+    private final File snapshotFile = new File("testJournal.bin");
+    private PlanetarySystemAPI planetarySystemAPI;
+    private CelestialSystemAPI celestialAPI;
+    private PlanetarySystem solarSystem;
+    private Star sun;
+    private GasPlanet jupiter;
+    private CelestialJournal journal;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        planetarySystemAPI = new PlanetarySystemAPI(new File("testPlanetarySystems.xml"));
+        celestialAPI = new CelestialSystemAPI(new File("testCelestialBody.xml"));
+        solarSystem = new PlanetarySystem("Solar System", "Sun");
+        planetarySystemAPI.addPLanetSystem(solarSystem);
+        sun = new Star("Sun", 1.0e30, 1.4e6, solarSystem, 'G', 1.0);
+        jupiter = new GasPlanet("Jupiter", 1.9e27, 1.42e5, solarSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        celestialAPI.addCelestialObject(sun);
+        celestialAPI.addCelestialObject(jupiter);
+
+        journal = newJournal(planetarySystemAPI, celestialAPI, 1);
+        journal.checkpoint(); // snapshot holds the sun and jupiter, journal is empty
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        journal.close();
+        journalFile.delete();
+        snapshotFile.delete();
+    }
+
+    @Test
+    void changesAreReplayedOnTopOfTheSnapshot() throws Exception {
+        IcePlanet hoth = new IcePlanet("Hoth", 1.0e26, 4.9e4, solarSystem, -200, "Icy Surface", false, "Water Ice");
+        celestialAPI.addCelestialObject(hoth);
+        journal.logAdded(hoth);
+        jupiter.setMass(2.0e27);
+        celestialAPI.updateCelestial(jupiter.getId(), jupiter);
+        journal.logUpdated(jupiter.getId(), jupiter);
+        celestialAPI.deleteCelestialId(sun.getId());
+        journal.logDeleted(sun.getId());
+        journal.close();
+
+        CelestialSystemAPI reloaded = reload();
+        assertEquals(2, reloaded.numberOfCelestialBodies());
+        assertNull(reloaded.getCelestialBodyById(sun.getId()));
+        assertEquals(2.0e27, reloaded.getCelestialBodyById(jupiter.getId()).getMass());
+        assertEquals(hoth.displayInfo(), reloaded.getCelestialBodyById(hoth.getId()).displayInfo());
+        assertEquals(solarSystem, reloaded.getCelestialBodyById(hoth.getId()).getPlanetarySystem());
+    }
+
+    @Test
+    void replayingTwiceChangesNothing() throws Exception {
+        IcePlanet hoth = new IcePlanet("Hoth", 1.0e26, 4.9e4, solarSystem, -200, "Icy Surface", false, "Water Ice");
+        celestialAPI.addCelestialObject(hoth);
+        journal.logAdded(hoth);
+        celestialAPI.deleteCelestialId(sun.getId());
+        journal.logDeleted(sun.getId());
+
+        CelestialSystemAPI reloaded = reload();
+        String once = reloaded.listAllCelestialBodies();
+        assertEquals(2, journal.replay());
+        assertEquals(once, reloaded.listAllCelestialBodies());
+    }
+
+    @Test
+    void checkpointEmptiesTheJournal() throws Exception {
+        jupiter.setName("Jove");
+        celestialAPI.updateCelestial(jupiter.getId(), jupiter);
+        journal.logUpdated(jupiter.getId(), jupiter);
+        assertEquals(1, journal.getRecordsSinceCheckpoint());
+
+        journal.checkpoint();
+        assertEquals(0, journal.getRecordsSinceCheckpoint());
+        assertEquals(6, journalFile.length()); // just the header
+
+        CelestialSystemAPI reloaded = reload();
+        assertEquals(0, journal.getRecordsSinceCheckpoint());
+        assertEquals("Jove", reloaded.getCelestialBodyById(jupiter.getId()).getName());
+    }
+
+    @Test
+    void recordsAreWrittenOneGroupAtATime() throws Exception {
+        journal.close();
+        journal = newJournal(planetarySystemAPI, celestialAPI, 3);
+        long emptyLength = journalFile.length();
+
+        journal.logDeleted(1);
+        journal.logDeleted(2);
+        assertEquals(emptyLength, journalFile.length()); // still buffered
+        journal.logDeleted(3);
+        long afterGroup = journalFile.length();
+        assertTrue(afterGroup > emptyLength);
+
+        journal.logDeleted(4);
+        journal.sync();
+        assertTrue(journalFile.length() > afterGroup);
+        assertEquals(4, journal.getRecordsSinceCheckpoint());
+    }
+
+    @Test
+    void aTornRecordAtTheEndIsDropped() throws Exception {
+        celestialAPI.deleteCelestialId(sun.getId());
+        journal.logDeleted(sun.getId());
+        jupiter.setMass(3.0e27);
+        celestialAPI.updateCelestial(jupiter.getId(), jupiter);
+        journal.logUpdated(jupiter.getId(), jupiter);
+        journal.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.setLength(raf.length() - 3); // crash part way through the last record
+        }
+        long withoutTornRecord = 6 + 8 + 5; // header, then one framed delete
+
+        CelestialSystemAPI reloaded = reload();
+        assertEquals(withoutTornRecord, journalFile.length());
+        assertNull(reloaded.getCelestialBodyById(sun.getId()));
+        assertEquals(1.9e27, reloaded.getCelestialBodyById(jupiter.getId()).getMass());
+
+        journal.logDeleted(jupiter.getId()); // new records follow the last good one
+        journal.close();
+        assertEquals(0, reload().numberOfCelestialBodies());
+    }
+
+    @Test
+    void checkpointIsTakenOnceDue() throws Exception {
+        journal.close();
+        journal = new CelestialJournal(journalFile, new BinarySnapshot(snapshotFile, planetarySystemAPI, celestialAPI),
+                celestialAPI, 1, 2);
+        celestialAPI.deleteCelestialId(sun.getId());
+        journal.logDeleted(sun.getId());
+        assertFalse(journal.checkpointIfDue());
+        assertEquals(1, journal.getRecordsSinceCheckpoint());
+        celestialAPI.deleteCelestialId(jupiter.getId());
+        journal.logDeleted(jupiter.getId());
+        assertEquals(2, journal.getRecordsSinceCheckpoint()); // logging never checkpoints by itself
+        assertTrue(journal.checkpointIfDue());
+        assertEquals(0, journal.getRecordsSinceCheckpoint());
+
+        assertEquals(0, reload().numberOfCelestialBodies());
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> newJournal(planetarySystemAPI, celestialAPI, 0));
+    }
+
+    /**
+     * Loads the snapshot into fresh APIs and replays the journal, as the Driver does at startup.
+     */
+    private CelestialSystemAPI reload() throws Exception {
+        journal.close();
+        PlanetarySystemAPI loadedSystems = new PlanetarySystemAPI(new File("testPlanetarySystems.xml"));
+        CelestialSystemAPI loaded = new CelestialSystemAPI(new File("testCelestialBody.xml"));
+        loaded.setPlanetarySystemInterner(loadedSystems.getInterner());
+        journal = newJournal(loadedSystems, loaded, 1);
+        new BinarySnapshot(snapshotFile, loadedSystems, loaded).load();
+        journal.replay();
+        return loaded;
+    }
+
+    private CelestialJournal newJournal(PlanetarySystemAPI systems, CelestialSystemAPI bodies, int groupCommitSize) {
+        return new CelestialJournal(journalFile, new BinarySnapshot(snapshotFile, systems, bodies), bodies,
+                groupCommitSize, CelestialJournal.DEFAULT_CHECKPOINT_EVERY);
+    }
+}
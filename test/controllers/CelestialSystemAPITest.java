@@ -3,9 +3,18 @@ package controllers;
 import models.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,10 +26,12 @@ class CelestialSystemAPITest {
     private IcePlanet testIcePlanet;
     private PlanetarySystem testSystem;
 
+    @TempDir
+    File tempDir;
+
     @BeforeEach
     void setUp() {
-        File testFile = new File("testCelestialBody.xml");
-        api = new CelestialSystemAPI(testFile);
+        api = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
 
         testSystem = new PlanetarySystem("TestSystem", "Alpha");
 
@@ -106,6 +117,84 @@ class CelestialSystemAPITest {
         assertFalse(result.contains("Neptune"));
     }
 
+    @Test
+    void testWriteAllCelestialBodiesMatchesList() throws IOException {
+        StringWriter out = new StringWriter();
+        api.writeAllCelestialBodies(out);
+        assertEquals(api.listAllCelestialBodies(), out.toString());
+        assertTrue(out.toString().startsWith("0: Star: Sun"));
+        assertFalse(out.toString().endsWith("\n"));
+    }
+
+    @Test
+    void testListReportsWhenNothingMatches() {
+        assertEquals("No celestial body matching the criteria", api.listAllCelestialObjectsHeavierThan(1e40));
+        assertEquals("No stars for spectral type O", api.listAllStarsForSpectralType('O'));
+    }
+
+    @Test
+    void testPlanetaryReportsKeepListOrderOnLargeCatalogues() {
+        PlanetarySystem otherSystem = new PlanetarySystem("AnotherSystem", "Beta");
+        for (int i = 0; i < 10000; i++) {
+            PlanetarySystem system = i % 4 == 0 ? testSystem : otherSystem;
+            api.addCelestialObject(new Star("Star" + i, 1.0e30, 1.4e6, system, i % 2 == 0 ? 'O' : 'B', 1.0));
+        }
+        assertEquals(3 + 2500, api.numberOfCelestialBodyByChosenPlanetarySystem(testSystem));
+        assertEquals(7500, api.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("AnotherSystem", "Beta")));
+
+        String[] rows = api.listAllCelestialObjectsForGivenPlanetary(otherSystem).split("\n");
+        assertEquals(7500, rows.length);
+        assertTrue(rows[0].contains("Star1,"));
+        assertTrue(rows[rows.length - 1].contains("Star9999,"));
+        assertEquals(5000, api.listAllStarsForSpectralType('O').split("\n").length);
+    }
+
+    @Test
+    void testPlanetaryQueriesFollowAddDeleteUpdateAndRename() {
+        PlanetarySystem otherSystem = new PlanetarySystem("AnotherSystem", "Beta");
+        Star otherStar = new Star("Beta", 3.0e30, 1.6e6, otherSystem, 'B', 1500);
+        api.addCelestialObject(otherStar);
+        assertEquals(3, api.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("TestSystem", "Alpha")));
+        assertEquals(1, api.numberOfCelestialBodyByChosenPlanetarySystem(otherSystem));
+
+        api.deleteCelestialId(testGasPlanet.getId());
+        assertEquals(2, api.numberOfCelestialBodyByChosenPlanetarySystem(testSystem));
+
+        Star movedStar = new Star("Sun", 1.0e30, 1.4e6, otherSystem, 'G', 1.0);
+        api.updateCelestial(testStar.getId(), movedStar);
+        assertEquals(1, api.numberOfCelestialBodyByChosenPlanetarySystem(testSystem));
+        assertTrue(api.listAllCelestialObjectsForGivenPlanetary(otherSystem).startsWith("Star: Sun"));
+
+        testIcePlanet.setPlanetarySystem(otherSystem);
+        assertEquals(0, api.numberOfCelestialBodyByChosenPlanetarySystem(testSystem));
+        otherSystem.setSystemName("Renamed");
+        assertEquals(3, api.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("Renamed", "Beta")));
+        assertEquals(0, api.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("AnotherSystem", "Beta")));
+    }
+
+    @Test
+    void testRenamingAPlanetarySystemMovesOnlyItsBodies() {
+        PlanetarySystem copy = new PlanetarySystem("TestSystem", "Alpha"); // equal to the shared system, but not it
+        Star copied = new Star("Copied", 1.0e30, 1.4e6, copy, 'G', 1.0);
+        api.addCelestialObject(copied);
+        copied.setPlanetarySystem(copy); // not shared, so a rename of the shared system leaves it behind
+        PlanetarySystem otherSystem = new PlanetarySystem("AnotherSystem", "Beta");
+        api.addCelestialObject(new Star("Beta", 3.0e30, 1.6e6, otherSystem, 'B', 1500));
+
+        testStar.getPlanetarySystem().setOrbittingStarName("Gamma");
+        assertEquals(3, api.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("TestSystem", "Gamma")));
+        assertEquals(1, api.numberOfCelestialBodyByChosenPlanetarySystem(copy));
+
+        testStar.getPlanetarySystem().setSystemName("AnotherSystem");
+        testStar.getPlanetarySystem().setOrbittingStarName("Beta"); // now equal to the other system, so the bodies join its bucket
+        String[] rows = api.listAllCelestialObjectsForGivenPlanetary(otherSystem).split("\n");
+        assertEquals(4, rows.length);
+        assertTrue(rows[0].startsWith("Star: Sun"), "bodies that join a system are put in list order");
+        assertTrue(rows[3].startsWith("Star: Beta"));
+        assertEquals(0, api.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("TestSystem", "Gamma")));
+        assertEquals(0, api.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("AnotherSystem", "Gamma")));
+    }
+
     @Test
     void testSortByMassDescending() {
         api.sortByMassDescending();
@@ -113,6 +202,37 @@ class CelestialSystemAPITest {
         assertTrue(sorted.get(0).getMass() >= sorted.get(1).getMass());
     }
 
+    @Test
+    void testSortByGravityDescending() {
+        api.sortByGravityDescending();
+        List<CelestialBody> sorted = api.getCelestialList();
+        assertTrue(sorted.get(0).getGravity() >= sorted.get(1).getGravity());
+        assertTrue(sorted.get(1).getGravity() >= sorted.get(2).getGravity());
+    }
+
+    @Test
+    void testSortByNameAscending() {
+        api.sortByNameAscending();
+        List<CelestialBody> sorted = api.getCelestialList();
+        assertEquals("Jupiter", sorted.get(0).getName());
+        assertEquals("Neptune", sorted.get(1).getName());
+        assertEquals("Sun", sorted.get(2).getName());
+    }
+
+    @Test
+    void testSortBySystemThenMassDescending() {
+        PlanetarySystem otherSystem = new PlanetarySystem("AnotherSystem", "Beta");
+        Star otherStar = new Star("Beta", 3.0e30, 1.6e6, otherSystem, 'B', 1500);
+        api.addCelestialObject(otherStar);
+
+        api.sortBySystemThenMassDescending();
+        List<CelestialBody> sorted = api.getCelestialList();
+        assertEquals(otherStar, sorted.get(0));
+        assertEquals(testStar, sorted.get(1));
+        assertEquals(testGasPlanet, sorted.get(2));
+        assertEquals(testIcePlanet, sorted.get(3));
+    }
+
     @Test
     void testSearchCelestialBodyByName() {
         CelestialBody found = CelestialSystemAPI.searchCelestialBodyByName("sun");
@@ -120,6 +240,32 @@ class CelestialSystemAPITest {
         assertEquals("Sun", found.getName());
     }
 
+    @Test
+    void testPrefixSearchFindsNamesWithAnyCharacterAfterThePrefix() {
+        Star highChar = new Star("Nep\uffffb", 1.0e30, 1.4e6, testSystem, 'G', 1.0);
+        Star emoji = new Star("Nep\uD83D\uDE00", 1.0e30, 1.4e6, testSystem, 'G', 1.0);
+        api.addCelestialObject(highChar);
+        api.addCelestialObject(emoji);
+
+        assertEquals(List.of(testIcePlanet, emoji, highChar), CelestialSystemAPI.searchCelestialBodiesByNamePrefix("nep"));
+        assertEquals(List.of(highChar), CelestialSystemAPI.searchCelestialBodiesByNamePrefix("Nep\uffff"));
+    }
+
+    @Test
+    void testSearchCelestialBodiesByNameAndPrefix() {
+        IcePlanet secondNeptune = new IcePlanet("NEPTUNE", 1.0e26, 4.9e4, testSystem,
+                -200, "Icy Surface", false, "Methane Ice");
+        api.addCelestialObject(secondNeptune);
+
+        assertEquals(List.of(testIcePlanet, secondNeptune), CelestialSystemAPI.searchCelestialBodiesByName("neptune"));
+        assertEquals(List.of(testIcePlanet, secondNeptune), CelestialSystemAPI.searchCelestialBodiesByNamePrefix("Nep"));
+        assertTrue(CelestialSystemAPI.searchCelestialBodiesByNamePrefix("x").isEmpty());
+
+        testStar.setName("Sol");
+        assertNull(CelestialSystemAPI.searchCelestialBodyByName("Sun"));
+        assertEquals(testStar, CelestialSystemAPI.searchCelestialBodyByName("SOL"));
+    }
+
     @Test
     void testTopFiveGasPlanets() {
         List<GasPlanet> top = api.topFiveHighestRadiationGasPlanet();
@@ -127,6 +273,312 @@ class CelestialSystemAPITest {
         assertEquals(testGasPlanet.getRadiationLevel(), top.get(0).getRadiationLevel());
     }
 
+    @Test
+    void testTopHighestRadiationGasPlanetsKeepsHighestK() {
+        for (int i = 1; i <= 8; i++) {
+            api.addCelestialObject(new GasPlanet("Gas" + i, 1.0e25, 1.0e5, testSystem,
+                    -100, "Gas Surface", false, "Hydrogen", "Rocky", i * 10.0));
+        }
+        List<GasPlanet> top = api.topFiveHighestRadiationGasPlanet();
+        assertEquals(5, top.size());
+        assertEquals(80.0, top.get(0).getRadiationLevel());
+        assertEquals(75.0, top.get(1).getRadiationLevel());
+        assertEquals(50.0, top.get(4).getRadiationLevel());
+
+        assertEquals(2, api.topHighestRadiationGasPlanets(2).size());
+        assertTrue(api.topHighestRadiationGasPlanets(0).isEmpty());
+    }
+
+    @Test
+    void testTopHighestMassAndLuminosity() {
+        List<CelestialBody> heaviest = api.topHighestMass(2);
+        assertEquals(testStar, heaviest.get(0));
+        assertEquals(testGasPlanet, heaviest.get(1));
+
+        List<Star> brightest = api.topHighestLuminosityStars(5);
+        assertEquals(1, brightest.size());
+        assertEquals(testStar, brightest.get(0));
+    }
+
+    @Test
+    void testColumnarCatalogueIsOnlyCopiedAgainAfterItsOwnBodiesChange() {
+        ColumnarCatalogue columns = api.getColumnarCatalogue();
+        new Star("Elsewhere", 1.0e30, 1.4e6, testSystem, 'G', 1.0).setMass(2.0e30); // not in the catalogue
+        assertSame(columns, api.getColumnarCatalogue());
+
+        testGasPlanet.setMass(2.0e27);
+        ColumnarCatalogue copied = api.getColumnarCatalogue();
+        assertNotSame(columns, copied);
+        assertEquals(2.0e27, copied.get(ColumnarCatalogue.Column.MASS, 1));
+        assertEquals(testStar, api.topHighestGravity(1).get(0));
+    }
+
+    @Test
+    void testTypeCountsFollowAddDeleteAndUpdate() {
+        assertEquals(1, api.numberOfStars());
+        assertEquals(1, api.numberOfGasPlanets());
+        assertEquals(1, api.numberOfIcePlanets());
+        assertEquals(0, api.numberOfDwarfPlanets());
+
+        api.addCelestialObject(new Star("Vega", 4.0e30, 2.4e6, testSystem, 'A', 4000));
+        assertEquals(2, api.numberOfStars());
+
+        api.deleteCelestialId(testStar.getId());
+        assertEquals(1, api.numberOfStars());
+        assertEquals("1: Name: Neptune, Ice Composition: Methane Ice", api.listAllIcePlanets());
+
+        IcePlanet replacement = new IcePlanet("Pluto", 1.3e22, 2.4e3, testSystem,
+                -230, "Icy Surface", false, "Nitrogen Ice");
+        api.updateIcePlanet(testIcePlanet.getId(), replacement);
+        assertEquals(1, api.numberOfIcePlanets());
+        assertTrue(api.listAllIcePlanets().contains("Pluto"));
+        assertFalse(api.listAllIcePlanets().contains("Neptune"));
+    }
+
+    @Test
+    void testANewInstanceDropsTheQueryIndexesOfThePreviousOne() {
+        assertEquals(testStar, CelestialSystemAPI.searchCelestialBodyByMass(1.0e30)); // builds the indexes
+
+        CelestialSystemAPI second = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        assertTrue(CelestialSystemAPI.searchCelestialBodiesByName("Sun").isEmpty());
+        assertNull(CelestialSystemAPI.searchCelestialBodyByMass(1.0e30));
+        assertFalse(second.listAllCelestialObjectsHeavierThan(1e28).contains("Sun"));
+
+        Star vega = new Star("Vega", 4.0e30, 2.4e6, testSystem, 'A', 4000);
+        second.addCelestialObject(vega);
+        assertEquals(vega, CelestialSystemAPI.searchCelestialBodyByMass(4.0e30));
+        assertEquals(List.of(vega), CelestialSystemAPI.searchCelestialBodiesByName("vega"));
+    }
+
+    @Test
+    void testRangeQueriesFollowSetters() {
+        assertFalse(api.listAllCelestialObjectsHeavierThan(1e28).contains("Jupiter"));
+        testGasPlanet.setMass(5.0e28);
+        assertTrue(api.listAllCelestialObjectsHeavierThan(1e28).contains("Jupiter"));
+
+        assertTrue(api.listAllCelestialObjectsSmallerThan(4.9e4).contains("Neptune"));
+        assertFalse(api.listAllCelestialObjectsSmallerThan(4.9e4).contains("Jupiter"));
+    }
+
+    @Test
+    void testQueriesFollowChangesAfterTheIndexesAreBuilt() {
+        assertEquals(testIcePlanet, CelestialSystemAPI.searchCelestialBodyByNearestMass(1.0e26)); // builds the indexes
+        api.sortByMassDescending(); // Sun, Jupiter, Neptune
+
+        testIcePlanet.setMass(2.0e30);
+        testGasPlanet.setName("Saturn");
+        Star vega = new Star("Vega", 1.0e30, 2.4e6, testSystem, 'A', 4000);
+        api.addCelestialObject(vega);
+        assertEquals(List.of(testStar, testIcePlanet, vega),
+                api.getCelestialBodiesWithMassBetween(1.0e30, 2.0e30));
+        assertEquals(testStar, CelestialSystemAPI.searchCelestialBodyByMass(1.0e30)); // first in list order
+        assertEquals(testIcePlanet, CelestialSystemAPI.searchCelestialBodyByNearestMass(1.9e30));
+        assertNull(CelestialSystemAPI.searchCelestialBodyByName("Jupiter"));
+        assertEquals(testGasPlanet, CelestialSystemAPI.searchCelestialBodyByName("saturn"));
+
+        api.deleteCelestialId(testStar.getId());
+        testStar.setMass(1.5e30); // no longer in the catalogue, so not indexed again
+        assertEquals(List.of(testIcePlanet, vega), api.getCelestialBodiesWithMassBetween(1.0e30, 2.0e30));
+        assertEquals(vega, CelestialSystemAPI.searchCelestialBodyByMass(1.0e30));
+
+        Star replacement = new Star("Deneb", 1.2e30, 1.0e8, testSystem, 'A', 5000);
+        api.updateCelestial(vega.getId(), replacement);
+        vega.setName("Saturn");
+        assertEquals(List.of(testIcePlanet, replacement), api.getCelestialBodiesWithMassBetween(1.0e30, 2.0e30));
+        assertEquals(List.of(testGasPlanet), CelestialSystemAPI.searchCelestialBodiesByName("Saturn"));
+        assertEquals(replacement, CelestialSystemAPI.searchCelestialBodyByNearestDiameter(1.0e9));
+        assertTrue(api.getCelestialBodiesWithMassBetween(2.0e30, 1.0e30).isEmpty());
+    }
+
+    @Test
+    void testSearchByMassAndDiameter() {
+        assertEquals(testGasPlanet, CelestialSystemAPI.searchCelestialBodyByMass(1.9e27));
+        assertNull(CelestialSystemAPI.searchCelestialBodyByMass(1.8e27));
+        assertEquals(testIcePlanet, CelestialSystemAPI.searchCelestialBodyByDiameter(4.9e4));
+        assertEquals(testGasPlanet, CelestialSystemAPI.searchCelestialBodyByNearestMass(1.5e27));
+        assertEquals(testStar, CelestialSystemAPI.searchCelestialBodyByNearestDiameter(1.0e9));
+
+        List<CelestialBody> midSized = api.getCelestialBodiesWithDiameterBetween(4.9e4, 1.42e5);
+        assertEquals(List.of(testGasPlanet, testIcePlanet), midSized);
+        assertTrue(api.getCelestialBodiesWithMassBetween(1.0, 2.0).isEmpty());
+    }
+
+    @Test
+    void testSaveAndLoadStreamsEveryBody() {
+        api.save();
+        assertTrue(new File(tempDir, "testCelestialBody.xml").isFile()); // the file the API was given
+        CelestialSystemAPI reloaded = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        reloaded.load();
+        assertEquals(3, reloaded.numberOfCelestialBodies());
+        assertEquals(1, reloaded.numberOfGasPlanets());
+        assertEquals("Neptune", reloaded.getCelestialBodyById(testIcePlanet.getId()).getName());
+    }
+
+    @Test
+    void testLoadedBodiesShareTheRegisteredPlanetarySystem() throws Exception {
+        api.save();
+        PlanetarySystemAPI planetarySystemAPI = new PlanetarySystemAPI(new File(tempDir, "planetarySystemsTest.xml"));
+        PlanetarySystem registered = new PlanetarySystem("TestSystem", "Alpha");
+        planetarySystemAPI.addPLanetSystem(registered);
+
+        CelestialSystemAPI reloaded = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        reloaded.setPlanetarySystemInterner(planetarySystemAPI.getInterner());
+        reloaded.load();
+        for (CelestialBody body : reloaded.getCelestialList()) {
+            assertSame(registered, body.getPlanetarySystem());
+            assertTrue(reloaded.bodyHasAsPlanetarySystem(body, registered));
+        }
+
+        Star added = new Star("Sirius", 2.0e30, 1.7e6, new PlanetarySystem("TestSystem", "Alpha"), 'A', 25);
+        reloaded.addCelestialObject(added);
+        assertSame(registered, added.getPlanetarySystem());
+        assertEquals(1, planetarySystemAPI.getInterner().size());
+    }
+
+    @Test
+    void testBinarySnapshotRoundTrip() throws Exception {
+        File snapshotFile = new File(tempDir, "testSnapshot.bin");
+        PlanetarySystemAPI systems = new PlanetarySystemAPI(new File(tempDir, "testPlanetarySystems.xml"));
+        systems.addPLanetSystem(testSystem);
+        new BinarySnapshot(snapshotFile, systems, api).save();
+
+        PlanetarySystemAPI loadedSystems = new PlanetarySystemAPI(new File(tempDir, "testPlanetarySystems.xml"));
+        CelestialSystemAPI loaded = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        new BinarySnapshot(snapshotFile, loadedSystems, loaded).load();
+
+        assertEquals(1, loadedSystems.getPlanetarySystems().size());
+        assertEquals(3, loaded.numberOfCelestialBodies());
+        GasPlanet gasPlanet = (GasPlanet) loaded.getCelestialBodyById(testGasPlanet.getId());
+        assertEquals(testGasPlanet.getRadiationLevel(), gasPlanet.getRadiationLevel());
+        assertEquals(testGasPlanet.getCoreComposition(), gasPlanet.getCoreComposition());
+        assertSame(loadedSystems.getPlanetarySystemByName("TestSystem"), gasPlanet.getPlanetarySystem());
+        assertSame(gasPlanet.getPlanetarySystem(), loaded.getCelestialBodyById(testStar.getId()).getPlanetarySystem());
+    }
+
+    @Test
+    void testSaveSkipsAnUnchangedCatalogue() throws Exception {
+        assertTrue(api.hasUnsavedChanges());
+        api.save();
+        assertFalse(api.hasUnsavedChanges());
+
+        Files.writeString(api.getFile().toPath(), "not rewritten");
+        api.save();
+        assertEquals("not rewritten", Files.readString(api.getFile().toPath()));
+
+        testGasPlanet.setRadiationLevel(80.0);
+        assertTrue(api.hasUnsavedChanges());
+        api.save();
+        assertFalse(api.hasUnsavedChanges());
+        CelestialSystemAPI reloaded = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        reloaded.load();
+        assertFalse(reloaded.hasUnsavedChanges());
+        assertEquals(80.0, ((GasPlanet) reloaded.getCelestialBodyById(testGasPlanet.getId())).getRadiationLevel());
+    }
+
+    @Test
+    void testSaveAsyncWritesTheCatalogueAsItWasWhenCalled() throws Exception {
+        CompletableFuture<Void> saved = api.saveAsync();
+        testGasPlanet.setRadiationLevel(80.0); // too late for this save
+        saved.join();
+        assertTrue(api.hasUnsavedChanges());
+
+        CelestialSystemAPI reloaded = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        reloaded.load();
+        assertEquals(api.numberOfCelestialBodies(), reloaded.numberOfCelestialBodies());
+        assertNotEquals(80.0, ((GasPlanet) reloaded.getCelestialBodyById(testGasPlanet.getId())).getRadiationLevel());
+    }
+
+    @Test
+    void testSavingUsesUpNoIds() throws Exception {
+        int before = new Star("Probe", 1.0e30, 1.4e6, testSystem, 'G', 1.0).getId();
+        api.save();
+        testGasPlanet.setRadiationLevel(80.0);
+        api.save();
+        assertEquals(before + 1, new Star("Probe", 1.0e30, 1.4e6, testSystem, 'G', 1.0).getId());
+    }
+
+    @Test
+    void testSaveAsyncCopiesBodiesOfUnknownTypes() throws Exception {
+        TestPlanet odd = new TestPlanet("Oddity", 1.0e24, 1.0e4, testSystem, 10, "Rocky", true);
+        api.addCelestialObject(odd);
+        CompletableFuture<Void> saved = api.saveAsync();
+        odd.setName("Changed");
+        saved.join();
+
+        String xml = Files.readString(api.getFile().toPath());
+        assertTrue(xml.contains("Oddity"));
+        assertFalse(xml.contains("Changed"));
+    }
+
+    @Test
+    void testSnapshotRewritesOnlyChangedSegments() throws Exception {
+        File snapshotFile = new File(tempDir, "testSnapshot.bin");
+        PlanetarySystemAPI systems = new PlanetarySystemAPI(new File(tempDir, "testPlanetarySystems.xml"));
+        systems.addPLanetSystem(testSystem);
+        Star farStar = new Star("Vega", 2.1e30, 2.3e6, testSystem, 'A', 40000);
+        farStar.restoreId(1_000_000); // a different id block, so a segment of its own
+        api.addCelestialObject(farStar);
+        BinarySnapshot snapshot = new BinarySnapshot(snapshotFile, systems, api);
+        snapshot.save();
+        long fullLength = snapshotFile.length();
+        snapshot.save();
+        assertEquals(fullLength, snapshotFile.length()); // nothing changed, nothing written
+
+        farStar.setLuminosity(50000);
+        snapshot.save();
+        long afterOneSegment = snapshotFile.length();
+        assertTrue(afterOneSegment > fullLength);
+        assertTrue(afterOneSegment - fullLength < fullLength - 70); // less than every segment plus header
+
+        testSystem.setOrbittingStarName("Beta"); // only the directory changes
+        api.sortByNameAscending();
+        api.deleteCelestialId(testIcePlanet.getId());
+        snapshot.save();
+
+        PlanetarySystemAPI loadedSystems = new PlanetarySystemAPI(new File(tempDir, "testPlanetarySystems.xml"));
+        CelestialSystemAPI loaded = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        new BinarySnapshot(snapshotFile, loadedSystems, loaded).load();
+        assertEquals(List.of("Jupiter", "Sun", "Vega"),
+                loaded.getCelestialList().stream().map(CelestialBody::getName).toList());
+        assertEquals(50000, ((Star) loaded.getCelestialBodyById(1_000_000)).getLuminosity());
+        assertEquals("Beta", loadedSystems.getPlanetarySystemByName("TestSystem").getOrbittingStarName());
+        assertSame(loadedSystems.getPlanetarySystemByName("TestSystem"), loaded.getCelestialBodyById(1_000_000).getPlanetarySystem());
+    }
+
+    @Test
+    void testSnapshotFallsBackToThePreviousSaveIfTheHeaderIsDamaged() throws Exception {
+        File snapshotFile = new File(tempDir, "testSnapshot.bin");
+        PlanetarySystemAPI systems = new PlanetarySystemAPI(new File(tempDir, "testPlanetarySystems.xml"));
+        systems.addPLanetSystem(testSystem);
+        BinarySnapshot snapshot = new BinarySnapshot(snapshotFile, systems, api);
+        snapshot.save();
+        testStar.setName("Sol");
+        snapshot.save(); // written to the second header slot
+
+        try (RandomAccessFile raf = new RandomAccessFile(snapshotFile, "rw")) {
+            raf.seek(6 + 32 + 8);
+            raf.writeLong(12345); // as if the crash hit while the header was being written
+        }
+        CelestialSystemAPI loaded = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        new BinarySnapshot(snapshotFile, new PlanetarySystemAPI(new File(tempDir, "testPlanetarySystems.xml")), loaded).load();
+        assertEquals("Sun", loaded.getCelestialBodyById(testStar.getId()).getName());
+    }
+
+    @Test
+    void testSnapshotsOfOtherVersionsAreRefused() throws Exception {
+        File snapshotFile = new File(tempDir, "testSnapshot.bin");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(snapshotFile))) {
+            out.writeInt(0x53504345);
+            out.writeShort(1);
+            out.writeInt(0);
+        }
+        BinarySnapshot snapshot = new BinarySnapshot(snapshotFile,
+                new PlanetarySystemAPI(new File(tempDir, "testPlanetarySystems.xml")), api);
+        IOException e = assertThrows(IOException.class, snapshot::load);
+        assertTrue(e.getMessage().startsWith("Unsupported snapshot version 1"));
+        assertEquals(3, api.numberOfCelestialBodies()); // nothing was replaced
+    }
+
     @Test
     void testIsValidIndex() {
         assertTrue(api.isValidIndex(0));
@@ -138,5 +590,70 @@ class CelestialSystemAPITest {
         assertNotEquals(-1, api.isValidId(testStar.getId()));
         assertEquals(-1, api.isValidId(9999));
     }
-}
 
+    @Test
+    void testIsValidIdAfterDeleteAndSort() {
+        api.deleteCelestialIndex(0);
+        assertEquals(-1, api.isValidId(testStar.getId()));
+        assertEquals(0, api.isValidId(testGasPlanet.getId()));
+        assertEquals(1, api.isValidId(testIcePlanet.getId()));
+
+        api.sortByNameAscending();
+        assertEquals(0, api.isValidId(testGasPlanet.getId()));
+        assertEquals(testIcePlanet, api.getCelestialBodyById(testIcePlanet.getId()));
+    }
+
+    @Test
+    void testShuffleKeepsIdAndSystemLookups() {
+        api.shuffle(new Random(7));
+        List<CelestialBody> shuffled = api.getCelestialList();
+        for (int i = 0; i < shuffled.size(); i++) {
+            assertEquals(i, api.isValidId(shuffled.get(i).getId()));
+        }
+        assertEquals(3, api.numberOfCelestialBodyByChosenPlanetarySystem(testSystem));
+    }
+
+    @Test
+    void testUpdateCelestialKeepsIdLookup() {
+        IcePlanet replacement = new IcePlanet("Uranus", 8.7e25, 5.1e4, testSystem,
+                -195, "Icy Surface", false, "Water Ice");
+        assertTrue(api.updateCelestial(testIcePlanet.getId(), replacement));
+        assertEquals(-1, api.isValidId(testIcePlanet.getId()));
+        assertEquals(replacement, api.getCelestialBodyById(replacement.getId()));
+        assertFalse(api.updateCelestial(testStar.getId(), replacement));
+    }
+
+    @Test
+    void testUpdateThatChangesAnIdFindsTheNextBodyWithTheOldId() {
+        Star twin = new Star("Twin", 1.0e30, 1.4e6, testSystem, 'G', 1.0);
+        twin.restoreId(testStar.getId()); // a duplicate id, as an edited file can hold
+        api.addCelestialObject(twin);
+
+        Star replacement = new Star("Vega", 4.0e30, 2.4e6, testSystem, 'A', 4000);
+        assertTrue(api.updateCelestial(testStar.getId(), replacement));
+        assertEquals(3, api.isValidId(testStar.getId()));
+        assertSame(twin, api.getCelestialBodyById(testStar.getId()));
+        assertSame(replacement, api.getCelestialBodyById(replacement.getId()));
+    }
+
+    @Test
+    void testDuplicateIdsFollowDeletesAndUpdates() {
+        int id = testStar.getId();
+        Star twin = new Star("Twin", 1.0e30, 1.4e6, testSystem, 'G', 1.0);
+        twin.restoreId(id);
+        Star triplet = new Star("Triplet", 1.0e30, 1.4e6, testSystem, 'G', 1.0);
+        triplet.restoreId(id);
+        api.addCelestialObject(twin);
+        api.addCelestialObject(triplet);
+
+        api.deleteCelestialId(testGasPlanet.getId()); // the later bodies move up
+        assertTrue(api.updateCelestial(id, new Star("Vega", 4.0e30, 2.4e6, testSystem, 'A', 4000)));
+        assertEquals(2, api.isValidId(id));
+        assertSame(twin, api.getCelestialBodyById(id));
+        assertSame(twin, api.deleteCelestialId(id));
+        assertEquals(2, api.isValidId(id));
+        assertSame(triplet, api.getCelestialBodyById(id));
+        assertEquals(List.of("Vega", "Neptune", "Triplet"),
+                api.getCelestialBodiesInSystem(testSystem).stream().map(CelestialBody::getName).toList());
+    }
+}
@@ -0,0 +1,84 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarCatalogueTest {
+
+    private Star testStar;
+    private GasPlanet testGasPlanet;
+    private IcePlanet testIcePlanet;
+    private ColumnarCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        PlanetarySystem testSystem = new PlanetarySystem("TestSystem", "Alpha");
+        testStar = new Star("Sun", 1.0e30, 1.4e6, testSystem, 'G', 1500);
+        testGasPlanet = new GasPlanet("Jupiter", 1.9e27, 1.42e5, testSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        testIcePlanet = new IcePlanet("Neptune", 1.0e26, 4.9e4, testSystem,
+                -200, "Icy Surface", false, "Methane Ice");
+        catalogue = ColumnarCatalogue.of(List.of(testStar, testGasPlanet, testIcePlanet));
+    }
+
+    @Test
+    void columnsHoldEachRowsFields() {
+        assertEquals(3, catalogue.size());
+        assertEquals(1.9e27, catalogue.get(ColumnarCatalogue.Column.MASS, 1));
+        assertEquals(-200, catalogue.get(ColumnarCatalogue.Column.AVERAGE_TEMPERATURE, 2));
+        assertEquals(1500, catalogue.get(ColumnarCatalogue.Column.LUMINOSITY, 0));
+        assertEquals(0, catalogue.get(ColumnarCatalogue.Column.LUMINOSITY, 1));
+        assertSame(testIcePlanet, catalogue.getCelestialBody(2));
+    }
+
+    @Test
+    void scansReturnMatchingRows() {
+        assertArrayEquals(new int[]{0, 1}, catalogue.rowsGreaterThan(ColumnarCatalogue.Column.MASS, 1e26));
+        assertArrayEquals(new int[]{2}, catalogue.rowsAtMost(ColumnarCatalogue.Column.DIAMETER, 4.9e4));
+        assertEquals(75.0, catalogue.sum(ColumnarCatalogue.Column.RADIATION_LEVEL));
+        assertEquals(1, catalogue.count(CelestialRecordCodec.STAR));
+    }
+
+    @Test
+    void gravityMatchesPerObjectCalculation() {
+        double[] gravity = catalogue.gravity();
+        assertEquals(testStar.calculateGravity(), gravity[0]);
+        assertEquals(testGasPlanet.calculateGravity(), gravity[1]);
+        assertEquals(testIcePlanet.calculateGravity(), gravity[2]);
+    }
+
+    @Test
+    void derivedColumnsMatchTheCachedGetters() {
+        double[] density = catalogue.derived(ColumnarCatalogue.Derived.DENSITY);
+        double[] escapeVelocity = catalogue.derived(ColumnarCatalogue.Derived.ESCAPE_VELOCITY);
+        double[] volume = catalogue.derived(ColumnarCatalogue.Derived.VOLUME);
+        assertEquals(testGasPlanet.getDensity(), density[1]);
+        assertEquals(testIcePlanet.getEscapeVelocity(), escapeVelocity[2]);
+        assertEquals(testStar.getVolume(), volume[0]);
+        assertEquals(testStar.getSurfaceArea(), catalogue.derived(ColumnarCatalogue.Derived.SURFACE_AREA)[0]);
+        assertEquals(testStar.getGravity(), catalogue.gravity()[0]);
+    }
+
+    @Test
+    void untaggedSubclassesAreCountedAsOther() {
+        TestPlanet testPlanet = new TestPlanet("Test", 1.0e24, 1.0e4, null, 10, "Rocky", true);
+        ColumnarCatalogue withOther = ColumnarCatalogue.of(List.of(testStar, testPlanet));
+        assertEquals(1, withOther.count(CelestialRecordCodec.OTHER));
+        assertEquals(10, withOther.get(ColumnarCatalogue.Column.AVERAGE_TEMPERATURE, 1));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        ColumnarCatalogue growing = new ColumnarCatalogue(1);
+        for (int i = 0; i < 40; i++) {
+            growing.add(testGasPlanet);
+        }
+        assertEquals(40, growing.size());
+        assertEquals(40 * 75.0, growing.sum(ColumnarCatalogue.Column.RADIATION_LEVEL));
+    }
+}
@@ -0,0 +1,111 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentCelestialSystemAPITest {
+
+    private PlanetarySystem testSystem;
+    private Star testStar;
+    private GasPlanet testGasPlanet;
+    private ConcurrentCelestialSystemAPI api;
+
+    @BeforeEach
+    void setUp() {
+        testSystem = new PlanetarySystem("TestSystem", "Alpha");
+        testStar = new Star("Sun", 1.0e30, 1.4e6, testSystem, 'G', 1500);
+        testGasPlanet = new GasPlanet("Jupiter", 1.9e27, 1.42e5, testSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        api = new ConcurrentCelestialSystemAPI();
+        api.addCelestialObject(testStar);
+        api.addCelestialObject(testGasPlanet);
+    }
+
+    @Test
+    void crudMatchesCelestialSystemAPI() {
+        assertEquals(2, api.numberOfCelestialBodies());
+        assertEquals(1, api.numberOfStars());
+        assertSame(testGasPlanet, api.getCelestialBodyById(testGasPlanet.getId()));
+        assertEquals(1, api.isValidId(testGasPlanet.getId()));
+
+        Star updated = new Star("Sol", 2.0e30, 1.4e6, testSystem, 'G', 1600);
+        assertTrue(api.updateCelestial(testStar.getId(), updated));
+        assertFalse(api.updateCelestial(testGasPlanet.getId(), updated));
+        assertSame(updated, api.getCelestialBodyByIndex(0));
+
+        assertSame(testGasPlanet, api.deleteCelestialId(testGasPlanet.getId()));
+        assertNull(api.deleteCelestialId(testGasPlanet.getId()));
+        assertEquals(-1, api.isValidId(testGasPlanet.getId()));
+        assertEquals(0, api.numberOfGasPlanets());
+        assertEquals("No Gas Planets", api.listAllGasPlanets());
+    }
+
+    @Test
+    void updateThatChangesAnIdFindsTheNextBodyWithTheOldId() {
+        Star twin = new Star("Twin", 1.0e30, 1.4e6, testSystem, 'G', 1.0);
+        twin.restoreId(testStar.getId()); // a duplicate id, as an edited file can hold
+        api.addCelestialObject(twin);
+
+        Star replacement = new Star("Vega", 4.0e30, 2.4e6, testSystem, 'A', 4000);
+        assertTrue(api.updateCelestial(testStar.getId(), replacement));
+        assertEquals(2, api.isValidId(testStar.getId()));
+        assertSame(twin, api.getCelestialBodyById(testStar.getId()));
+        assertSame(replacement, api.getCelestialBodyById(replacement.getId()));
+    }
+
+    @Test
+    void listsReadFromOneSnapshot() {
+        List<CelestialBody> before = api.getCelestialList();
+        api.deleteCelestialIndex(0);
+        assertEquals(2, before.size());
+        assertEquals(1, api.getCelestialList().size());
+        assertTrue(api.listAllCelestialObjectsHeavierThan(1e26).contains("Jupiter"));
+        assertEquals("No celestial body matching the criteria", api.listAllCelestialObjectsSmallerThan(1));
+    }
+
+    @Test
+    void writersAndReadersCanRunTogether() throws Exception {
+        int writers = 4, perWriter = 250;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    api.addCelestialObject(new Star("Star" + i, 1.0e30, 1.4e6, testSystem, 'G', i));
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    api.listAllCelestialBodies();
+                    api.searchCelestialBodyByName("Jupiter");
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get(); // rethrows anything a reader or writer threw
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(2 + writers * perWriter, api.numberOfCelestialBodies());
+        assertEquals(1 + writers * perWriter, api.numberOfStars());
+        Set<Integer> ids = new HashSet<>();
+        for (CelestialBody cb : api.getCelestialList()) {
+            assertTrue(ids.add(cb.getId()), "duplicate id " + cb.getId());
+        }
+    }
+}
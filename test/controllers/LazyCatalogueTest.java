@@ -0,0 +1,99 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyCatalogueTest {
+
+    private final File file = new File("testCatalogue.lazy");
+    private PlanetarySystem testSystem;
+    private PlanetarySystem otherSystem;
+    private Star testStar;
+    private GasPlanet testGasPlanet;
+    private IcePlanet testIcePlanet;
+    private DwarfPlanet testDwarfPlanet;
+    private LazyCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testSystem = new PlanetarySystem("TestSystem", "Alpha");
+        otherSystem = new PlanetarySystem("OtherSystem", "Beta");
+        testStar = new Star("Sun", 1.0e30, 1.4e6, testSystem, 'G', 1500);
+        testGasPlanet = new GasPlanet("Jupiter", 1.9e27, 1.42e5, testSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        testIcePlanet = new IcePlanet("Neptune", 1.0e26, 4.9e4, otherSystem,
+                -200, "Icy Surface", false, "Methane Ice");
+        testDwarfPlanet = new DwarfPlanet("Pluto", 1.3e22, 2.4e3, null,
+                -230, "Rocky Surface", false, "Nitrogen Ice");
+
+        LazyCatalogue.write(file, List.of(testStar, testGasPlanet, testIcePlanet, testDwarfPlanet));
+        catalogue = LazyCatalogue.open(file, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        catalogue.close();
+        file.delete();
+    }
+
+    @Test
+    void openingReadsOnlyTheDirectory() {
+        assertEquals(4, catalogue.numberOfCelestialBodies());
+        assertEquals("Neptune", catalogue.getName(2));
+        assertEquals(CelestialRecordCodec.GAS_PLANET, catalogue.getTypeTag(1));
+        assertEquals(testSystem, catalogue.getPlanetarySystem(0));
+        assertNull(catalogue.getPlanetarySystem(3));
+        assertEquals(2, catalogue.indexOfId(testIcePlanet.getId()));
+        assertEquals(2, catalogue.numberOfCelestialBodiesInSystem("testsystem"));
+        assertEquals(1.9e27, catalogue.getMass(1));
+        assertEquals(2.4e3, catalogue.getDiameter(3));
+        assertEquals(0, catalogue.getHydrations());
+    }
+
+    @Test
+    void bodiesAreHydratedOnFirstUse() {
+        GasPlanet gasPlanet = (GasPlanet) catalogue.getCelestialBodyById(testGasPlanet.getId());
+        assertEquals(testGasPlanet.getId(), gasPlanet.getId());
+        assertEquals(testGasPlanet.displayInfo(), gasPlanet.displayInfo());
+        assertSame(catalogue.getPlanetarySystem(1), gasPlanet.getPlanetarySystem());
+        assertSame(gasPlanet, catalogue.getCelestialBodyById(testGasPlanet.getId()));
+        assertEquals(1, catalogue.getHydrations());
+        assertEquals(testDwarfPlanet.displayInfo(), catalogue.getCelestialBodyByIndex(3).displayInfo());
+        assertNull(catalogue.getCelestialBodyByIndex(4));
+        assertNull(catalogue.getCelestialBodyById(-1));
+    }
+
+    @Test
+    void onlyTheBodiesOfTheRequestedSystemAreHydrated() {
+        List<CelestialBody> bodies = catalogue.getCelestialBodiesInSystem("TestSystem");
+        assertEquals(List.of("Sun", "Jupiter"), bodies.stream().map(CelestialBody::getName).toList());
+        assertEquals(2, catalogue.getHydrations());
+    }
+
+    @Test
+    void theLeastRecentlyUsedBodyIsEvicted() {
+        CelestialBody star = catalogue.getCelestialBodyByIndex(0);
+        catalogue.getCelestialBodyByIndex(1);
+        catalogue.getCelestialBodyByIndex(0); // the star is now the most recently used
+        catalogue.getCelestialBodyByIndex(2); // evicts the gas planet
+        assertEquals(2, catalogue.getCacheSize());
+        assertEquals(3, catalogue.getHydrations());
+
+        assertSame(star, catalogue.getCelestialBodyByIndex(0));
+        assertEquals(3, catalogue.getHydrations());
+        catalogue.getCelestialBodyByIndex(1);
+        assertEquals(4, catalogue.getHydrations());
+    }
+
+    @Test
+    void invalidCacheCapacitiesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LazyCatalogue.open(file, 0));
+    }
+}
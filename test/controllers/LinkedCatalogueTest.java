@@ -0,0 +1,98 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkedCatalogueTest {
+
+    private PlanetarySystemAPI planetarySystemAPI;
+    private CelestialSystemAPI celestialAPI;
+    private PlanetarySystem solarSystem;
+    private Star sun;
+    private GasPlanet jupiter;
+    private IcePlanet hoth;
+    private LinkedCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        planetarySystemAPI = new PlanetarySystemAPI(new File("planetarySystemsTest.xml"));
+        celestialAPI = new CelestialSystemAPI(new File("celestialBodyTest.xml"));
+        solarSystem = new PlanetarySystem("Solar System", "Sun");
+        planetarySystemAPI.addPLanetSystem(solarSystem);
+        planetarySystemAPI.addPLanetSystem(new PlanetarySystem("Hoth System", "Hoth Star"));
+
+        // a copy of the registered system, as each body gets after loading from XML
+        sun = new Star("Sun", 1.0e30, 1.4e6, new PlanetarySystem("Solar System", "Sun"), 'G', 1.0);
+        jupiter = new GasPlanet("Jupiter", 1.9e27, 1.42e5, solarSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        hoth = new IcePlanet("Hoth", 1.0e26, 4.9e4, new PlanetarySystem("Hoth System", "Hoth Star"),
+                -200, "Icy Surface", false, "Water Ice");
+        celestialAPI.addCelestialObject(sun);
+        celestialAPI.addCelestialObject(jupiter);
+        celestialAPI.addCelestialObject(hoth);
+
+        catalogue = new LinkedCatalogue(planetarySystemAPI, celestialAPI);
+    }
+
+    @Test
+    void linkingSharesTheRegisteredSystem() {
+        assertSame(solarSystem, sun.getPlanetarySystem());
+        assertEquals(List.of(sun, jupiter), catalogue.getCelestialBodiesOf("solar system"));
+        assertEquals(1, catalogue.numberOfCelestialBodiesOf("Hoth System"));
+        assertEquals(0, catalogue.numberOfCelestialBodiesOf("Nowhere"));
+    }
+
+    @Test
+    void renamesAndStarChangesReachEveryBody() {
+        assertTrue(catalogue.updatePlanetarySystem("Solar System", "Sol"));
+        assertEquals("Sol", sun.getPlanetarySystem().getOrbittingStarName());
+
+        assertFalse(catalogue.renamePlanetarySystem("Solar System", "Hoth System"));
+        assertTrue(catalogue.renamePlanetarySystem("Solar System", "Home"));
+        assertEquals("Home", jupiter.getPlanetarySystem().getSystemName());
+        assertEquals(List.of(sun, jupiter), catalogue.getCelestialBodiesOf("Home"));
+        assertEquals(2, celestialAPI.numberOfCelestialBodyByChosenPlanetarySystem(new PlanetarySystem("Home", "Sol")));
+    }
+
+    @Test
+    void removingASystemRemovesItsBodies() {
+        assertEquals(2, catalogue.removePlanetarySystemByName("Solar System"));
+        assertEquals(-1, catalogue.removePlanetarySystemByName("Solar System"));
+        assertEquals(1, celestialAPI.numberOfCelestialBodies());
+        assertSame(hoth, celestialAPI.getCelestialBodyById(hoth.getId()));
+        assertNull(celestialAPI.getCelestialBodyById(sun.getId()));
+    }
+
+    @Test
+    void bodyChangesMoveTheirLinks() {
+        assertTrue(catalogue.moveCelestialBody(jupiter, "Hoth System"));
+        assertFalse(catalogue.moveCelestialBody(jupiter, "Nowhere"));
+        assertEquals(List.of(jupiter, hoth), catalogue.getCelestialBodiesOf("Hoth System")); // list order
+
+        Star newSun = new Star("New Sun", 1.0e30, 1.4e6, solarSystem, 'G', 1.0);
+        assertTrue(catalogue.addCelestialObject(newSun));
+        assertNotNull(catalogue.deleteCelestialId(sun.getId()));
+        assertEquals(List.of(newSun), catalogue.getCelestialBodiesOf("Solar System"));
+        assertTrue(catalogue.listAllCelestialObjectsForGivenPlanetary("Solar System").contains("New Sun"));
+        assertEquals("Invalid Planetary System", catalogue.listAllCelestialObjectsForGivenPlanetary("Nowhere"));
+    }
+
+    @Test
+    void changesMadeThroughTheCatalogueDirectlyAreSeen() {
+        Star twin = new Star("Twin Sun", 2.0e30, 1.4e6, new PlanetarySystem("Solar System", "Sun"), 'G', 1.0);
+        celestialAPI.addCelestialObject(twin);
+        assertSame(solarSystem, twin.getPlanetarySystem());
+
+        celestialAPI.sortByMassDescending();
+        assertEquals(List.of(twin, sun, jupiter), catalogue.getCelestialBodiesOf("Solar System"));
+        hoth.setPlanetarySystem(solarSystem);
+        assertEquals(4, catalogue.numberOfCelestialBodiesOf("Solar System"));
+        assertEquals(0, catalogue.numberOfCelestialBodiesOf("Hoth System"));
+    }
+}
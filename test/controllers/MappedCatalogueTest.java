@@ -0,0 +1,75 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCatalogueTest {
+
+    private final File file = new File("testCatalogue.map");
+    private PlanetarySystem testSystem;
+    private Star testStar;
+    private GasPlanet testGasPlanet;
+    private IcePlanet testIcePlanet;
+    private MappedCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testSystem = new PlanetarySystem("TestSystem", "Alpha");
+        testStar = new Star("Sun", 1.0e30, 1.4e6, testSystem, 'G', 1500);
+        testGasPlanet = new GasPlanet("Jupiter", 1.9e27, 1.42e5, testSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        testIcePlanet = new IcePlanet("Neptune", 1.0e26, 4.9e4, testSystem,
+                -200, "Icy Surface", false, "Methane Ice");
+
+        MappedCatalogue.write(file, List.of(testStar, testGasPlanet, testIcePlanet));
+        catalogue = MappedCatalogue.open(file);
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void numericFieldsAreReadFromTheMappedFile() {
+        assertEquals(3, catalogue.numberOfCelestialBodies());
+        assertEquals(1.9e27, catalogue.getMass(1));
+        assertEquals(4.9e4, catalogue.getDiameter(2));
+        assertEquals(75.0, catalogue.getRadiationLevel(1));
+        assertEquals(1500, catalogue.getLuminosity(0));
+        assertEquals("Neptune", catalogue.getName(2));
+    }
+
+    @Test
+    void countsComeFromTheHeader() {
+        assertEquals(1, catalogue.numberOfType(CelestialRecordCodec.STAR));
+        assertEquals(1, catalogue.numberOfType(CelestialRecordCodec.GAS_PLANET));
+        assertEquals(1, catalogue.numberOfType(CelestialRecordCodec.ICE_PLANET));
+        assertEquals(0, catalogue.numberOfType(CelestialRecordCodec.DWARF_PLANET));
+    }
+
+    @Test
+    void rowsBecomeFullModelObjects() {
+        GasPlanet gasPlanet = (GasPlanet) catalogue.getCelestialBodyByIndex(catalogue.indexOfId(testGasPlanet.getId()));
+        assertEquals(testGasPlanet.getId(), gasPlanet.getId());
+        assertEquals(testGasPlanet.displayInfo(), gasPlanet.displayInfo());
+        assertEquals(testSystem, gasPlanet.getPlanetarySystem());
+        assertSame(gasPlanet.getPlanetarySystem(), catalogue.getCelestialBodyByIndex(0).getPlanetarySystem());
+        assertNull(catalogue.getCelestialBodyByIndex(3));
+    }
+
+    @Test
+    void idsAreFoundThroughTheIdTable() {
+        assertEquals(0, catalogue.indexOfId(testStar.getId()));
+        assertEquals(2, catalogue.indexOfId(testIcePlanet.getId()));
+        assertEquals(-1, catalogue.indexOfId(testIcePlanet.getId() + 1000));
+        assertEquals(-1, catalogue.indexOfId(-1));
+    }
+}
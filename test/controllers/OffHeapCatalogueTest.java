@@ -0,0 +1,134 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCatalogueTest {
+
+    private PlanetarySystem testSystem;
+    private Star testStar;
+    private GasPlanet testGasPlanet;
+    private IcePlanet testIcePlanet;
+    private OffHeapCatalogue catalogue;
+
+    @BeforeEach
+    void setUp() {
+        testSystem = new PlanetarySystem("TestSystem", "Alpha");
+        testStar = new Star("Sun", 1.0e30, 1.4e6, testSystem, 'G', 1500);
+        testGasPlanet = new GasPlanet("Jupiter", 1.9e27, 1.42e5, testSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        testIcePlanet = new IcePlanet("Neptune", 1.0e26, 4.9e4, testSystem,
+                -200, "Icy Surface", false, "Methane Ice");
+
+        catalogue = new OffHeapCatalogue();
+        catalogue.addCelestialObject(testStar);
+        catalogue.addCelestialObject(testGasPlanet);
+        catalogue.addCelestialObject(testIcePlanet);
+    }
+
+    @Test
+    void bodiesRoundTripThroughOffHeapRecords() {
+        GasPlanet gasPlanet = (GasPlanet) catalogue.getCelestialBodyById(testGasPlanet.getId());
+        assertNotSame(testGasPlanet, gasPlanet);
+        assertEquals(testGasPlanet.getId(), gasPlanet.getId());
+        assertEquals(testGasPlanet.displayInfo(), gasPlanet.displayInfo());
+        assertEquals(testSystem, gasPlanet.getPlanetarySystem());
+        assertEquals(testStar.displayInfo(), catalogue.getCelestialBodyById(testStar.getId()).displayInfo());
+        assertEquals(2, catalogue.indexOfId(testIcePlanet.getId()));
+        assertEquals(1.0e26, catalogue.getMass(2));
+        assertNull(catalogue.getCelestialBodyById(-5));
+        assertFalse(catalogue.addCelestialObject(testStar));
+    }
+
+    @Test
+    void updateAndDeleteChangeTheStoredRecords() {
+        IcePlanet updated = new IcePlanet("Uranus", 8.7e25, 5.1e4, testSystem,
+                -195, "Icy Surface", false, "Water Ice");
+        assertTrue(catalogue.updateCelestial(testIcePlanet.getId(), updated));
+        assertFalse(catalogue.updateCelestial(testStar.getId(), updated));
+        assertEquals("Uranus", catalogue.getCelestialBodyById(testIcePlanet.getId()).getName());
+        assertEquals(testIcePlanet.getId(), catalogue.getCelestialBodyById(testIcePlanet.getId()).getId());
+
+        assertEquals("Sun", catalogue.deleteCelestialId(testStar.getId()).getName());
+        assertNull(catalogue.getCelestialBodyById(testStar.getId()));
+        assertNull(catalogue.deleteCelestialId(testStar.getId()));
+        assertEquals(2, catalogue.numberOfCelestialBodies());
+        assertEquals(0, catalogue.numberOfType(CelestialRecordCodec.STAR));
+        assertEquals(1, catalogue.numberOfType(CelestialRecordCodec.GAS_PLANET));
+        assertNotNull(catalogue.getCelestialBodyById(testGasPlanet.getId()));
+        assertEquals(0, catalogue.indexOfId(testGasPlanet.getId())); // later rows moved up
+        assertEquals("Uranus", catalogue.getCelestialBodyByIndex(1).getName());
+    }
+
+    @Test
+    void updatesOnlyStoreTheStringsTheyChange() {
+        long size = catalogue.getStringTableSize();
+        GasPlanet sameStrings = new GasPlanet("Jupiter", 2.0e27, 1.5e5, new PlanetarySystem("TestSystem", "Alpha"),
+                -100, "Gas Surface", true, "Hydrogen, Helium", "Rocky", 80.0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(catalogue.updateCelestial(testGasPlanet.getId(), sameStrings));
+        }
+        assertEquals(size, catalogue.getStringTableSize());
+        assertEquals(sameStrings.displayInfo(), catalogue.getCelestialBodyById(testGasPlanet.getId()).displayInfo());
+
+        sameStrings.setName("Saturn");
+        catalogue.updateCelestial(testGasPlanet.getId(), sameStrings);
+        assertEquals(size + Integer.BYTES + "Saturn".length(), catalogue.getStringTableSize());
+        assertEquals("Saturn", catalogue.getCelestialBodyById(testGasPlanet.getId()).getName());
+    }
+
+    @Test
+    void bodiesOfOneSystemShareItsInstance() {
+        PlanetarySystem system = catalogue.getCelestialBodyById(testStar.getId()).getPlanetarySystem();
+        assertEquals(testSystem, system);
+        assertSame(system, catalogue.getCelestialBodyById(testIcePlanet.getId()).getPlanetarySystem());
+        assertSame(system, catalogue.getCelestialBodyById(testStar.getId()).getPlanetarySystem());
+    }
+
+    @Test
+    void stringsLeftBehindAreReclaimed() {
+        PlanetarySystem system = catalogue.getCelestialBodyById(testStar.getId()).getPlanetarySystem();
+        GasPlanet renamed = new GasPlanet("Jupiter", 1.9e27, 1.42e5, testSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        for (int i = 0; i < 10000; i++) {
+            renamed.setName("Jupiter" + i);
+            assertTrue(catalogue.updateCelestial(testGasPlanet.getId(), renamed));
+        }
+        assertTrue(catalogue.getStringTableSize() < 1 << 17, "the table is compacted once most of it is dead");
+        assertEquals("Jupiter9999", catalogue.getCelestialBodyById(testGasPlanet.getId()).getName());
+        assertEquals(testIcePlanet.displayInfo(), catalogue.getCelestialBodyById(testIcePlanet.getId()).displayInfo());
+        assertSame(system, catalogue.getCelestialBodyById(testIcePlanet.getId()).getPlanetarySystem());
+
+        for (int i = 0; i < 10000; i++) {
+            catalogue.addCelestialObject(new Star("Star" + i, 1.0e30, 1.4e6, testSystem, 'G', i));
+        }
+        long full = catalogue.getStringTableSize();
+        while (catalogue.numberOfCelestialBodies() > 3) {
+            catalogue.deleteCelestialId(catalogue.getCelestialBodyByIndex(catalogue.numberOfCelestialBodies() - 1).getId());
+        }
+        assertTrue(catalogue.getStringTableSize() < full, "deleted records give their strings back");
+        assertEquals("Jupiter9999", catalogue.getCelestialBodyByIndex(1).getName());
+    }
+
+    @Test
+    void idTableGrowsAndSurvivesDeletes() {
+        OffHeapCatalogue large = new OffHeapCatalogue();
+        int[] ids = new int[3000];
+        for (int i = 0; i < ids.length; i++) {
+            Star star = new Star("Star" + i, 1.0e30 + i, 1.4e6, testSystem, 'G', i);
+            ids[i] = star.getId();
+            large.addCelestialObject(star);
+        }
+        for (int i = 0; i < ids.length; i += 2) {
+            large.deleteCelestialId(ids[i]);
+        }
+        assertEquals(1500, large.numberOfCelestialBodies());
+        for (int i = 1; i < ids.length; i += 2) {
+            assertEquals("Star" + i, large.getCelestialBodyById(ids[i]).getName());
+        }
+        assertNull(large.getCelestialBodyById(ids[0]));
+    }
+}
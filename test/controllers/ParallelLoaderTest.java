@@ -0,0 +1,69 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelLoaderTest {
+
+    @TempDir
+    File tempDir;
+
+    private File planetarySystemsFile;
+    private File celestialBodiesFile;
+
+    @BeforeEach
+    void setUp() {
+        planetarySystemsFile = new File(tempDir, "testParallelPlanetarySystems.xml");
+        celestialBodiesFile = new File(tempDir, "testCelestialBody.xml");
+    }
+
+    @Test
+    void bothFilesAreLoadedAndBodiesShareTheRegisteredSystems() throws Exception {
+        PlanetarySystemAPI planetarySystemAPI = new PlanetarySystemAPI(planetarySystemsFile);
+        CelestialSystemAPI celestialAPI = new CelestialSystemAPI(celestialBodiesFile);
+        PlanetarySystem solarSystem = new PlanetarySystem("Solar System", "Sun");
+        planetarySystemAPI.addPLanetSystem(solarSystem);
+        Star sun = new Star("Sun", 1.0e30, 1.4e6, solarSystem, 'G', 1.0);
+        GasPlanet jupiter = new GasPlanet("Jupiter", 1.9e27, 1.42e5, solarSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        celestialAPI.addCelestialObject(sun);
+        celestialAPI.addCelestialObject(jupiter);
+        planetarySystemAPI.save();
+        celestialAPI.save();
+
+        PlanetarySystemAPI loadedSystems = new PlanetarySystemAPI(planetarySystemsFile);
+        CelestialSystemAPI loadedBodies = new CelestialSystemAPI(celestialBodiesFile);
+        loadedBodies.setPlanetarySystemInterner(loadedSystems.getInterner());
+        ParallelLoader loader = new ParallelLoader(loadedSystems, loadedBodies);
+        loader.load();
+
+        assertEquals(1, loadedSystems.getPlanetarySystems().size());
+        assertEquals(2, loadedBodies.numberOfCelestialBodies());
+        PlanetarySystem registered = loadedSystems.getPlanetarySystemByName("Solar System");
+        assertSame(registered, loadedBodies.getCelestialBodyById(sun.getId()).getPlanetarySystem());
+        assertSame(registered, loadedBodies.getCelestialBodyById(jupiter.getId()).getPlanetarySystem());
+        assertEquals(2, loadedBodies.numberOfCelestialBodyByChosenPlanetarySystem(registered));
+        assertFalse(loadedSystems.hasUnsavedChanges());
+        assertFalse(loadedBodies.hasUnsavedChanges());
+        assertTrue(loader.describeTimings().contains("Total:"));
+    }
+
+    @Test
+    void theCelestialBodiesStillLoadIfThePlanetarySystemsCannotBeRead() throws Exception {
+        CelestialSystemAPI celestialAPI = new CelestialSystemAPI(celestialBodiesFile);
+        celestialAPI.addCelestialObject(new Star("Sun", 1.0e30, 1.4e6, null, 'G', 1.0));
+        celestialAPI.save();
+
+        PlanetarySystemAPI loadedSystems = new PlanetarySystemAPI(planetarySystemsFile); // never saved
+        CelestialSystemAPI loadedBodies = new CelestialSystemAPI(celestialBodiesFile);
+        loadedBodies.setPlanetarySystemInterner(loadedSystems.getInterner());
+        assertThrows(Exception.class, () -> new ParallelLoader(loadedSystems, loadedBodies).load());
+        assertEquals(1, loadedBodies.numberOfCelestialBodies());
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -57,6 +58,51 @@ class PlanetarySystemAPITest {
             assertFalse(populatedDevices.addPLanetSystem(planetarySystem2)); // Try adding again, should fail due to duplicate
         }
 
+        @Test
+        void addDuplicateNameIgnoresCase() {
+            emptyDevices.addPLanetSystem(planetarySystem2);
+            assertFalse(emptyDevices.addPLanetSystem(new PlanetarySystem("SOLAR SYSTEM", "Other Sun")));
+            assertEquals(planetarySystem2, emptyDevices.getPlanetarySystemByName("solar system"));
+        }
+
+        @Test
+        void searchByPrefixAfterRename() {
+            emptyDevices.addPLanetSystem(planetarySystem1);
+            emptyDevices.addPLanetSystem(planetarySystem2);
+            assertEquals(1, emptyDevices.searchPlanetarySystemsByPrefix("sol").size());
+
+            planetarySystem2.setSystemName("Sol");
+            assertNull(emptyDevices.getPlanetarySystemByName("Solar System"));
+            assertEquals(planetarySystem2, emptyDevices.getPlanetarySystemByName("SOL"));
+            assertEquals(1, emptyDevices.retrievePlanetarySystemIndex("sol"));
+        }
+
+        @Test
+        void searchByPrefixFindsNamesWithAnyCharacterAfterThePrefix() {
+            PlanetarySystem highChar = new PlanetarySystem("Sol\uffff", "Star");
+            PlanetarySystem emoji = new PlanetarySystem("Sol\uD83D\uDE00", "Star");
+            emptyDevices.addPLanetSystem(highChar);
+            emptyDevices.addPLanetSystem(emoji);
+            emptyDevices.addPLanetSystem(planetarySystem2);
+
+            assertEquals(List.of(planetarySystem2, emoji, highChar), emptyDevices.searchPlanetarySystemsByPrefix("sol"));
+            assertEquals(List.of(highChar), emptyDevices.searchPlanetarySystemsByPrefix("Sol\uffff"));
+        }
+
+        @Test
+        void renamingAnotherApisSystemLeavesTheNameIndexAlone() {
+            emptyDevices.addPLanetSystem(planetarySystem2);
+            PlanetarySystem removed = new PlanetarySystem("Empty Galaxy", "No star");
+            emptyDevices.addPLanetSystem(removed);
+            emptyDevices.removePlanetarySystem(removed);
+
+            removed.setSystemName("Solar System"); // no longer held, so it cannot take the name
+            planetarySystemEmpty.setSystemName("Sol"); // never held
+            assertSame(planetarySystem2, emptyDevices.getPlanetarySystemByName("Solar System"));
+            assertNull(emptyDevices.getPlanetarySystemByName("Sol"));
+            assertNull(emptyDevices.getPlanetarySystemByName("Empty Galaxy"));
+        }
+
         @Test
         void removePlanetarySystemByObject() {
             assertTrue(populatedDevices.getPlanetarySystems().contains(planetarySystem2));
@@ -64,6 +110,23 @@ class PlanetarySystemAPITest {
             assertFalse(populatedDevices.getPlanetarySystems().contains(planetarySystem2));
         }
 
+        @Test
+        void positionsFollowRemovesAndSorts() {
+            emptyDevices.addPLanetSystem(planetarySystem2);
+            emptyDevices.addPLanetSystem(planetarySystem1);
+            emptyDevices.addPLanetSystem(planetarySystemEmpty);
+            assertEquals(2, emptyDevices.retrievePlanetarySystemIndex("empty galaxy"));
+
+            assertTrue(emptyDevices.removePlanetarySystem(new PlanetarySystem("Solar System", "Sun"))); // an equal copy
+            assertEquals(1, emptyDevices.retrievePlanetarySystemIndex("Empty Galaxy"));
+            assertFalse(emptyDevices.removePlanetarySystem(new PlanetarySystem("Empty Galaxy", "Other star")));
+
+            emptyDevices.sortPlanetarySystemsByName();
+            assertEquals(0, emptyDevices.retrievePlanetarySystemIndex("Empty Galaxy"));
+            assertEquals(1, emptyDevices.retrievePlanetarySystemIndex("Galaxy Far, far away"));
+            assertEquals(-1, emptyDevices.retrievePlanetarySystemIndex("Solar System"));
+        }
+
         @Test
         void removePlanetarySystemByName() {
             assertTrue(populatedDevices.getPlanetarySystems().contains(planetarySystem2));
@@ -0,0 +1,176 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoredCelestialSystemAPITest {
+
+    @TempDir
+    File tempDir;
+
+    private CelestialSystemAPI heap;
+    private PlanetarySystem solarSystem;
+    private Star sun;
+    private GasPlanet jupiter;
+    private IcePlanet neptune;
+
+    @BeforeEach
+    void setUp() {
+        heap = new CelestialSystemAPI(new File(tempDir, "testCelestialBody.xml"));
+        solarSystem = new PlanetarySystem("Solar System", "Sun");
+        sun = new Star("Sun", 1.0e30, 1.4e6, solarSystem, 'G', 1500);
+        jupiter = new GasPlanet("Jupiter", 1.9e27, 1.42e5, solarSystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        neptune = new IcePlanet("Neptune", 1.0e26, 4.9e4, new PlanetarySystem("Other System", "Vega"),
+                -200, "Icy Surface", false, "Water Ice");
+        heap.addCelestialObject(sun);
+        heap.addCelestialObject(jupiter);
+        heap.addCelestialObject(neptune);
+    }
+
+    @Test
+    void mappedModeReportsLikeTheHeapCatalogue() throws Exception {
+        CelestialSystemAPI mapped = openMapped();
+
+        assertEquals(heap.listAllCelestialBodies(), mapped.listAllCelestialBodies());
+        assertEquals(heap.listAllGasPlanets(), mapped.listAllGasPlanets());
+        assertEquals(heap.listAllStars(), mapped.listAllStars());
+        assertEquals(heap.listAllStarsForSpectralType('G'), mapped.listAllStarsForSpectralType('G'));
+        assertEquals(heap.listAllCelestialObjectsHeavierThan(1.0e26), mapped.listAllCelestialObjectsHeavierThan(1.0e26));
+        assertEquals(heap.listAllCelestialObjectsSmallerThan(1.42e5), mapped.listAllCelestialObjectsSmallerThan(1.42e5));
+        assertEquals(heap.listAllCelestialObjectsForGivenPlanetary(solarSystem),
+                mapped.listAllCelestialObjectsForGivenPlanetary(solarSystem));
+        assertEquals(1, mapped.numberOfIcePlanets());
+        assertEquals(2, mapped.numberOfCelestialBodyByChosenPlanetarySystem(solarSystem));
+        assertEquals(1, mapped.isValidId(jupiter.getId()));
+        assertEquals(jupiter.displayInfo(), mapped.getCelestialBodyById(jupiter.getId()).displayInfo());
+        assertEquals("Jupiter", mapped.topFiveHighestRadiationGasPlanet().get(0).getName());
+        assertEquals(sun.displayInfo(), mapped.topHighestLuminosityStars(3).get(0).displayInfo());
+        assertTrue(mapped.topHighestLuminosityStars(0).isEmpty());
+        assertEquals(List.of("Sun", "Jupiter"), mapped.topHighestMass(2).stream().map(CelestialBody::getName).toList());
+    }
+
+    @Test
+    void mappedModeRefusesChangesAndLeavesTheHeapCatalogueAlone() throws Exception {
+        CelestialSystemAPI mapped = openMapped();
+
+        assertFalse(mapped.addCelestialObject(new Star("Vega", 4.0e30, 2.4e6, solarSystem, 'A', 4000)));
+        assertNull(mapped.deleteCelestialId(sun.getId()));
+        assertFalse(mapped.updateCelestial(sun.getId(), new Star("Sol", 2.0e30, 1.4e6, solarSystem, 'G', 1)));
+        assertThrows(UnsupportedOperationException.class, mapped::sortByNameAscending);
+        assertEquals(3, mapped.numberOfCelestialBodies());
+        assertFalse(mapped.hasUnsavedChanges());
+
+        assertEquals(3, heap.numberOfCelestialBodies());
+        assertSame(sun, heap.getCelestialBodyById(sun.getId()));
+        assertSame(jupiter, CelestialSystemAPI.searchCelestialBodyByName("Jupiter"));
+    }
+
+    @Test
+    void lazyModeReportsLikeTheHeapCatalogueAndOnlyReadsWhatItShows() throws Exception {
+        File file = new File(tempDir, "bodies.lazy");
+        LazyCatalogue.write(file, heap.getCelestialList());
+        try (LazyCatalogue lazy = LazyCatalogue.open(file, 2)) {
+            CelestialSystemAPI api = new StoredCelestialSystemAPI(file, lazy);
+
+            assertEquals(heap.listAllCelestialObjectsHeavierThan(1.0e28), api.listAllCelestialObjectsHeavierThan(1.0e28));
+            assertEquals(List.of("Sun"), api.topHighestMass(1).stream().map(CelestialBody::getName).toList());
+            assertEquals(2, api.numberOfCelestialBodyByChosenPlanetarySystem(solarSystem));
+            assertEquals(1, lazy.getHydrations()); // only the sun was read
+
+            assertEquals(heap.listAllCelestialBodies(), api.listAllCelestialBodies());
+            assertEquals(heap.listAllIcePlanets(), api.listAllIcePlanets());
+            assertEquals(heap.listAllCelestialObjectsSmallerThan(1.42e5), api.listAllCelestialObjectsSmallerThan(1.42e5));
+            assertFalse(api.addCelestialObject(new Star("Vega", 4.0e30, 2.4e6, solarSystem, 'A', 4000)));
+        }
+        try (CelestialSystemAPI api = CelestialSystemAPI.openLazy(file, 1)) {
+            assertEquals(heap.listAllStars(), api.listAllStars());
+            api.close(); // closes the file, so a body not yet read can no longer be
+            assertThrows(UncheckedIOException.class, api::listAllGasPlanets);
+        }
+    }
+
+    @Test
+    void offHeapModeChangesLikeTheHeapCatalogue() {
+        CelestialSystemAPI offHeap = CelestialSystemAPI.offHeap(new File(tempDir, "offHeap.xml"));
+        for (CelestialBody body : heap.getCelestialList()) {
+            assertTrue(offHeap.addCelestialObject(body));
+        }
+        assertFalse(offHeap.addCelestialObject(sun)); // ids are unique off the heap
+        Star vega = new Star("Vega", 4.0e30, 2.4e6, solarSystem, 'A', 4000);
+        assertTrue(heap.addCelestialObject(vega));
+        assertTrue(offHeap.addCelestialObject(vega));
+        Star sol = new Star("Sol", 2.0e30, 1.4e6, solarSystem, 'G', 1);
+        assertTrue(heap.updateCelestial(sun.getId(), sol));
+        assertTrue(offHeap.updateCelestial(sun.getId(), sol));
+        assertFalse(offHeap.updateCelestial(jupiter.getId(), sol));
+        assertEquals(jupiter.displayInfo(), offHeap.deleteCelestialIndex(1).displayInfo());
+        heap.deleteCelestialIndex(1);
+
+        assertEquals(heap.listAllCelestialBodies(), offHeap.listAllCelestialBodies());
+        assertEquals(List.of(), offHeap.getCelestialBodiesInSystem(new PlanetarySystem("Nowhere", "None")));
+        assertEquals(heap.numberOfStars(), offHeap.numberOfStars());
+        assertEquals(vega.getId(), offHeap.getCelestialBodyByIndex(2).getId());
+        heap.sortByNameAscending();
+        offHeap.sortByNameAscending();
+        assertEquals(heap.listAllCelestialBodies(), offHeap.listAllCelestialBodies());
+        heap.shuffle(new Random(7));
+        offHeap.shuffle(new Random(7));
+        assertEquals(heap.listAllCelestialBodies(), offHeap.listAllCelestialBodies());
+        assertEquals(heap.isValidId(vega.getId()), offHeap.isValidId(vega.getId()));
+        assertEquals(1, offHeap.deleteCelestialBodies(List.of(offHeap.getCelestialBodyById(vega.getId()))));
+        assertEquals(2, offHeap.numberOfCelestialBodies());
+    }
+
+    @Test
+    void offHeapModeSavesAndLoadsTheHeapCataloguesFile() {
+        CelestialSystemAPI offHeap = CelestialSystemAPI.offHeap(new File(tempDir, "offHeap.xml"));
+        offHeap.addCelestialObject(jupiter);
+        offHeap.addCelestialObject(neptune);
+        assertTrue(offHeap.hasUnsavedChanges());
+        offHeap.save();
+        assertFalse(offHeap.hasUnsavedChanges());
+
+        CelestialSystemAPI reloaded = CelestialSystemAPI.offHeap(offHeap.getFile());
+        reloaded.load();
+        assertEquals(offHeap.listAllCelestialBodies(), reloaded.listAllCelestialBodies());
+        CelestialSystemAPI onHeap = new CelestialSystemAPI(offHeap.getFile());
+        onHeap.load();
+        assertEquals(offHeap.listAllCelestialBodies(), onHeap.listAllCelestialBodies());
+    }
+
+    @Test
+    void readingStoredBodiesUsesUpNoIds() throws Exception {
+        CelestialSystemAPI mapped = openMapped();
+        CelestialSystemAPI offHeap = CelestialSystemAPI.offHeap(new File(tempDir, "offHeap.xml"));
+        heap.getCelestialList().forEach(offHeap::addCelestialObject);
+        File lazyFile = new File(tempDir, "bodies.lazy");
+        LazyCatalogue.write(lazyFile, heap.getCelestialList());
+        int before = new Star("Probe", 1.0e30, 1.4e6, solarSystem, 'G', 1).getId();
+
+        try (LazyCatalogue lazy = LazyCatalogue.open(lazyFile, 1)) {
+            CelestialSystemAPI lazyApi = new StoredCelestialSystemAPI(lazyFile, lazy);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(heap.listAllCelestialBodies(), mapped.listAllCelestialBodies());
+                assertEquals(heap.listAllCelestialBodies(), offHeap.listAllCelestialBodies());
+                assertEquals(heap.listAllCelestialBodies(), lazyApi.listAllCelestialBodies());
+            }
+        }
+        assertEquals(before + 1, new Star("Probe", 1.0e30, 1.4e6, solarSystem, 'G', 1).getId());
+    }
+
+    private CelestialSystemAPI openMapped() throws Exception {
+        File file = new File(tempDir, "bodies.mapped");
+        MappedCatalogue.write(file, heap.getCelestialList());
+        return CelestialSystemAPI.openMapped(file);
+    }
+}
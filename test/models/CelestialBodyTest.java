@@ -104,6 +104,46 @@ class CelestialBodyTest {
         assertEquals(1.0, star.getDiameter());
     }
 
+    @Test
+    void testDerivedPhysicsFollowMassAndDiameter() {
+        assertEquals(star.calculateGravity(), star.getGravity());
+        assertEquals(Math.PI, star.getSurfaceArea(), 1e-12);
+        assertEquals(Math.PI / 6.0, star.getVolume(), 1e-12);
+        assertEquals(5778 / (Math.PI / 6.0 * 1e9), star.getDensity(), 1e-12);
+
+        star.setMass(11556);
+        assertEquals(star.calculateGravity(), star.getGravity());
+        assertEquals(Math.sqrt(2 * CelestialBody.GRAVITATIONAL_CONSTANT * 11556 / 500), star.getEscapeVelocity(), 1e-15);
+
+        star.setDiameter(2.0);
+        assertEquals(star.calculateGravity(), star.getGravity());
+        assertEquals(4 * Math.PI, star.getSurfaceArea(), 1e-12);
+        //invalid values are ignored and keep the cached values
+        star.setDiameter(0);
+        assertEquals(4 * Math.PI, star.getSurfaceArea(), 1e-12);
+    }
+
+    @Test
+    void testSettersMarkTheBodyChanged() {
+        int tick = CelestialBody.getChangeClock();
+        assertFalse(star.isChangedSince(tick));
+        star.setLuminosity(1000); // a StellarObject setter, not just the CelestialBody ones
+        assertTrue(star.isChangedSince(tick));
+
+        GasPlanet gasPlanet = new GasPlanet("Jupiter", 1.9e27, 1.42e5, planetarySystem,
+                -108, "Gas Surface", false, "Hydrogen, Helium", "Rocky", 75.0);
+        tick = CelestialBody.getChangeClock();
+        gasPlanet.setRadiationLevel(80.0);
+        assertTrue(gasPlanet.isChangedSince(tick));
+        tick = CelestialBody.getChangeClock();
+        gasPlanet.setAverageTemperature(999); // rejected, so nothing changed
+        assertFalse(gasPlanet.isChangedSince(tick));
+
+        tick = PlanetarySystem.getChangeClock();
+        planetarySystem.setOrbittingStarName("Sol");
+        assertTrue(planetarySystem.isChangedSince(tick));
+    }
+
     @Test
     void testSetValidName() {
         assertEquals("Sun", star.getName());
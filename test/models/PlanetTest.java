@@ -52,9 +52,10 @@ public class PlanetTest {
 
         TestPlanet earth = new TestPlanet("Earth", 5.972e24, 12742, system, 15, "rocky", true);
 
-        // Gravity = (mass * G) / (radius^2)
-        double expectedGravity = (5.972e24 * 6.67430e-11) / Math.pow(12742 / 2.0, 2);
+        // Gravity = (mass * G) / (radius^2), with the radius in meters
+        double expectedGravity = (5.972e24 * 6.67430e-11) / Math.pow(12742 / 2.0 * 1000, 2);
         assertEquals(expectedGravity, earth.calculateGravity(), 1e-10);
+        assertEquals(9.82, earth.calculateGravity(), 0.01);
     }
 
     @Test
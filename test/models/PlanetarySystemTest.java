@@ -3,6 +3,10 @@ package models;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
+
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PlanetarySystemTest {
@@ -77,6 +81,16 @@ class PlanetarySystemTest {
         assertNotEquals(pValid, new PlanetarySystem("Our Solar System", "The Sun"));
     }
 
+    @Test
+    void hashCodeIsConsistentWithEquals() {
+        assertEquals(pValid.hashCode(), new PlanetarySystem("Solar System", "Sun").hashCode());
+        //equal systems must land on the same hash key
+        Map<PlanetarySystem, String> map = new HashMap<>();
+        map.put(pValid, "found");
+        assertEquals("found", map.get(new PlanetarySystem("Solar System", "Sun")));
+        assertNull(map.get(new PlanetarySystem("Solar System", "The Sun")));
+    }
+
     @Nested
     class ToString {
         @Test
@@ -42,7 +42,7 @@ class StarTest {
 
 @Test
     void testCalculateGravity() {
-    assertEquals(1.54E-6, star.calculateGravity(), .00001);
+    assertEquals(1.54E-12, star.calculateGravity(), 1e-14);
 }
 
 @Test
@@ -0,0 +1,68 @@
+package utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundSaverTest {
+
+    private final Path target = Path.of("testBackgroundSaver.txt");
+    private final Queue<Runnable> tasks = new ArrayDeque<>(); // writes only run when the test says so
+    private final BackgroundSaver saver = new BackgroundSaver(target, tasks::add);
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(target);
+    }
+
+    @Test
+    void overlappingSavesAreCoalesced() throws Exception {
+        CompletableFuture<Void> first = saver.save(text("first"));
+        CompletableFuture<Void> second = saver.save(text("second"));
+        CompletableFuture<Void> third = saver.save(text("third"));
+        assertSame(second, third);
+        assertTrue(saver.isSaving());
+
+        tasks.remove().run();
+        assertTrue(first.isDone());
+        assertEquals("first", Files.readString(target));
+        assertFalse(third.isDone());
+
+        tasks.remove().run();
+        assertTrue(third.isDone());
+        assertEquals("third", Files.readString(target)); // "second" is never written
+        assertTrue(tasks.isEmpty());
+        assertFalse(saver.isSaving());
+    }
+
+    @Test
+    void aFailedSaveLeavesTheFileAsItWas() throws Exception {
+        Files.writeString(target, "saved");
+        CompletableFuture<Void> failed = saver.save(out -> {
+            out.write("half".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        });
+        tasks.remove().run();
+
+        IOException e = assertThrows(IOException.class, () -> BackgroundSaver.await(failed));
+        assertEquals("disk full", e.getMessage());
+        assertEquals("saved", Files.readString(target));
+        File[] leftOver = new File(".").listFiles((dir, name) -> name.startsWith(target + ".") && name.endsWith(".tmp"));
+        assertEquals(0, leftOver.length);
+        assertFalse(saver.isSaving());
+    }
+
+    private static BackgroundSaver.Capture text(String text) {
+        return out -> out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package utils;
+
+import models.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchPhysicsTest {
+
+    private final Star sun = new Star("Sun", 1.0e30, 1.4e6, null, 'G', 1500);
+    private final IcePlanet neptune = new IcePlanet("Neptune", 1.0e26, 4.9e4, null,
+            -200, "Icy Surface", false, "Methane Ice");
+
+    @Test
+    void batchResultsMatchThePerObjectPath() {
+        // long enough to run both the vector loop and its scalar tail
+        int n = 37;
+        double[] mass = new double[n];
+        double[] diameter = new double[n];
+        CelestialBody[] bodies = new CelestialBody[n];
+        for (int i = 0; i < n; i++) {
+            bodies[i] = i % 2 == 0 ? sun : neptune;
+            mass[i] = bodies[i].getMass();
+            diameter[i] = bodies[i].getDiameter();
+        }
+        double[] gravity = BatchPhysics.gravity(mass, diameter);
+        double[] escapeVelocity = BatchPhysics.escapeVelocity(mass, diameter);
+        double[] density = BatchPhysics.density(mass, diameter);
+        for (int i = 0; i < n; i++) {
+            assertEquals(bodies[i].calculateGravity(), gravity[i]);
+            assertEquals(bodies[i].getEscapeVelocity(), escapeVelocity[i]);
+            assertEquals(bodies[i].getDensity(), density[i]);
+        }
+    }
+
+    @Test
+    void scalarKernelFillsOnlyTheGivenLength() {
+        double[] out = new double[3];
+        BatchPhysics.SCALAR.gravity(new double[]{1.0e30, 1.0e26, 5}, new double[]{1.4e6, 4.9e4, 5}, out, 2);
+        assertEquals(sun.calculateGravity(), out[0]);
+        assertEquals(neptune.calculateGravity(), out[1]);
+        assertEquals(0, out[2]);
+    }
+
+    @Test
+    void mismatchedArraysAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BatchPhysics.gravity(new double[2], new double[3]));
+    }
+}
@@ -0,0 +1,66 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BucketIndexTest {
+
+    private static final class Item {
+        String group;
+
+        Item(String group) {
+            this.group = group;
+        }
+    }
+
+    @Test
+    void changedElementsMoveToTheBucketForTheirNewKey() {
+        BucketIndex<String, Item> index = new BucketIndex<>(item -> item.group);
+        Item a = new Item("x");
+        Item b = new Item("x");
+        Item c = new Item(null);
+        index.add(a);
+        index.add(b);
+        index.add(c);
+        assertEquals(List.of(a, b), List.copyOf(index.get("x")));
+        assertTrue(index.contains(c));
+
+        assertFalse(index.update(a)); // same key, stays put
+        a.group = "y";
+        c.group = "x";
+        assertTrue(index.update(a));
+        assertTrue(index.update(c));
+        assertEquals(List.of(b, c), List.copyOf(index.get("x")));
+        assertEquals(List.of(a), List.copyOf(index.get("y")));
+
+        assertFalse(index.update(new Item("z"))); // not held
+        assertTrue(index.remove(a));
+        assertNull(index.get("y"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void aReplacementTakesThePlaceOfAnElementWithTheSameKey() {
+        SortedBucketIndex<String, Item> index = new SortedBucketIndex<>(item -> item.group);
+        Item a = new Item("b");
+        Item b = new Item("b");
+        Item c = new Item("a");
+        index.add(a);
+        index.add(b);
+        index.add(c);
+        assertEquals(List.of("a", "b"), List.copyOf(index.buckets().keySet()));
+
+        Item sameKey = new Item("b");
+        assertTrue(index.replace(a, sameKey));
+        assertEquals(List.of(sameKey, b), List.copyOf(index.get("b")));
+
+        Item otherKey = new Item("a");
+        assertFalse(index.replace(b, otherKey));
+        assertEquals(List.of(sameKey), List.copyOf(index.get("b")));
+        assertEquals(List.of(c, otherKey), List.copyOf(index.get("a")));
+        assertFalse(index.contains(b));
+    }
+}
@@ -0,0 +1,45 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedIntMapTest {
+
+    @Test
+    void putsAndRemovesLeaveTheOriginalAlone() {
+        ChunkedIntMap map = ChunkedIntMap.empty().put(7, 1).put(-3, 2);
+        ChunkedIntMap changed = map.put(7, 5).remove(-3, 2);
+        assertEquals(1, map.get(7, -1));
+        assertEquals(2, map.get(-3, -1));
+        assertEquals(5, changed.get(7, -1));
+        assertEquals(-1, changed.get(-3, -1));
+        assertEquals(1, changed.size());
+
+        assertSame(map, map.putIfAbsent(7, 9));
+        assertSame(map, map.put(7, 1));
+        assertSame(map, map.remove(7, 4)); // only removed while it has the given value
+    }
+
+    @Test
+    void keysSurviveTheSegmentsGrowing() {
+        int count = ChunkedIntMap.SEGMENT_SIZE * 8;
+        ChunkedIntMap map = ChunkedIntMap.empty();
+        for (int key = 0; key < count; key++) {
+            map = map.put(key * 31, key);
+        }
+        assertEquals(count, map.size());
+        for (int key = 0; key < count; key++) {
+            assertEquals(key, map.get(key * 31, -1));
+        }
+        assertEquals(-1, map.get(1, -1));
+    }
+
+    @Test
+    void buildingFromArraysKeepsTheFirstValueOfAKey() {
+        ChunkedIntMap map = ChunkedIntMap.of(new int[] {4, 8, 4, 9}, new int[] {0, 1, 2, 3}, 3);
+        assertEquals(2, map.size());
+        assertEquals(0, map.get(4, -1));
+        assertEquals(-1, map.get(9, -1)); // beyond count
+    }
+}
@@ -0,0 +1,43 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedListTest {
+
+    @Test
+    void changedCopiesLeaveTheOriginalAlone() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < ChunkedList.CHUNK_SIZE + 10; i++) {
+            expected.add(i);
+        }
+        ChunkedList<Integer> list = ChunkedList.of(expected.subList(0, 5));
+        ChunkedList<Integer> longer = list.plusAll(expected.subList(5, expected.size())); // fills a chunk and starts another
+        assertEquals(expected.subList(0, 5), list);
+        assertEquals(expected, longer);
+
+        ChunkedList<Integer> replaced = longer.with(ChunkedList.CHUNK_SIZE, -1);
+        assertEquals(ChunkedList.CHUNK_SIZE, longer.get(ChunkedList.CHUNK_SIZE));
+        assertEquals(-1, replaced.get(ChunkedList.CHUNK_SIZE));
+
+        ChunkedList<Integer> removed = longer.without(3);
+        expected.remove(3);
+        assertEquals(expected, removed);
+        assertEquals(3, longer.get(3));
+        assertSame(longer, longer.plusAll(List.of()));
+    }
+
+    @Test
+    void indexesAreCheckedAndTheListCannotBeModified() {
+        ChunkedList<String> list = ChunkedList.of(List.of("a", "b"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.with(-1, "c"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.without(2));
+        assertThrows(UnsupportedOperationException.class, () -> list.add("c"));
+        assertTrue(ChunkedList.empty().isEmpty());
+    }
+}
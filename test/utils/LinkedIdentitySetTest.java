@@ -0,0 +1,57 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkedIdentitySetTest {
+
+    private final LinkedIdentitySet<String> set = new LinkedIdentitySet<>();
+
+    @Test
+    void elementsKeepTheirPlaceWhenReplacedOrRemoved() {
+        String a = "a";
+        String b = new String("b");
+        String c = "c";
+        set.add(a);
+        set.add(b);
+        set.add(c);
+        assertFalse(set.add(a));
+        assertFalse(set.contains(new String("b"))); // compared by identity
+        assertEquals(List.of("a", "b", "c"), List.copyOf(set));
+
+        String d = "d";
+        assertTrue(set.replace(b, d));
+        assertEquals(List.of("a", "d", "c"), List.copyOf(set));
+        assertFalse(set.replace(b, "e"));
+
+        assertTrue(set.remove(a));
+        assertTrue(set.remove(c));
+        assertFalse(set.remove(c));
+        assertEquals(List.of("d"), List.copyOf(set));
+        set.add(a);
+        assertEquals(List.of("d", "a"), List.copyOf(set));
+    }
+
+    @Test
+    void sortingAndRemovingThroughTheIterator() {
+        set.add("c");
+        set.add("a");
+        set.add("b");
+        set.sort(Comparator.naturalOrder());
+        assertEquals(List.of("a", "b", "c"), List.copyOf(set));
+
+        Iterator<String> iterator = set.iterator();
+        iterator.next();
+        iterator.next();
+        iterator.remove();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        assertEquals(List.of("a", "c"), List.copyOf(set));
+        assertTrue(set.contains("c"));
+        assertEquals(2, set.size());
+    }
+}